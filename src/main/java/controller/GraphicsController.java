@@ -1,12 +1,20 @@
 package controller;
 
+import javafx.collections.FXCollections;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
 import javafx.scene.control.*;
 import javafx.scene.layout.BorderPane;
+import javafx.stage.FileChooser;
 
+import tree.TraversalOrder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.net.URL;
+import java.nio.file.Files;
 import java.util.ResourceBundle;
 
 /**
@@ -19,10 +27,11 @@ public final class GraphicsController implements Initializable {
 
 	// Panels and other GUI components
 	@FXML private BorderPane root_container;
-	@FXML private TextArea traversal_textarea;
+	@FXML private ListView<Integer> traversal_list;
 	@FXML private TextField input_field;
 
 	private GraphicsTree graphicsTree;
+	private TraversalOrder traversalOrder;   // Order shown in the traversal list, or null
 
 	/**
 	 * Constructs the GUI components and performs events for displaying and
@@ -47,6 +56,7 @@ public final class GraphicsController implements Initializable {
 	@FXML private void searchOnAction(ActionEvent event) {
 		try {
 			graphicsTree.search(Integer.parseInt(input_field.getText().trim()));
+			refreshTraversal(); // A self-adjusting tree may have moved the key
 		} catch (NumberFormatException nfe) {
 			Alert alert = new Alert(Alert.AlertType.ERROR,
 					"Error searching for value. The input field can only accept numbers.", 	ButtonType.OK);
@@ -64,6 +74,7 @@ public final class GraphicsController implements Initializable {
 	@FXML private void deleteOnAction(ActionEvent event) {
 		try {
 			graphicsTree.delete(Integer.parseInt(input_field.getText().trim()));
+			refreshTraversal();
 		} catch (NumberFormatException nfe) {
 			Alert alert = new Alert(Alert.AlertType.ERROR, "Error deleting value. The input field can only accept numbers.",
 					ButtonType.OK);
@@ -75,7 +86,8 @@ public final class GraphicsController implements Initializable {
 
 	private void clearTree() {
 		graphicsTree.makeEmpty();
-		traversal_textarea.setText("");
+		traversalOrder = null;
+		traversal_list.setItems(FXCollections.<Integer>emptyObservableList());
 	}
 	/**
 	 * Performs the action when the clear button is clicked.
@@ -94,6 +106,7 @@ public final class GraphicsController implements Initializable {
 	@FXML private void insertOnAction(ActionEvent event) {
 		try {
 			graphicsTree.insert(Integer.parseInt(input_field.getText().trim()));
+			refreshTraversal();
 		} catch (NumberFormatException nfe) {
 			Alert alert = new Alert(Alert.AlertType.ERROR, "Error inserting value. The input field can only accept numbers.",
 					ButtonType.OK);
@@ -107,23 +120,74 @@ public final class GraphicsController implements Initializable {
 	 * Performs the action when the first traversal button is clicked.
 	 */
 	@FXML private void inorderOnAction(ActionEvent event) {
-		graphicsTree.setInorder();
-		traversal_textarea.setText(graphicsTree.printTree());
+		showTraversal(TraversalOrder.INORDER);
 	}
 
 	/**
 	 *  Performs the action when the second traversal button is clicked.
 	 */
 	@FXML private void preorderOnAction(ActionEvent event) {
-		graphicsTree.setPreorder();
-		traversal_textarea.setText(graphicsTree.printTree());
+		showTraversal(TraversalOrder.PREORDER);
 	}
 
 	/**
 	 *  Performs the action when the third traversal button is clicked.
 	 */
 	@FXML private void postorderOnAction(ActionEvent event) {
-		graphicsTree.setPostorder();
-		traversal_textarea.setText(graphicsTree.printTree());
+		showTraversal(TraversalOrder.POSTORDER);
+	}
+
+	/**
+	 *  Performs the action when the fourth traversal button is clicked.
+	 */
+	@FXML private void levelorderOnAction(ActionEvent event) {
+		showTraversal(TraversalOrder.LEVELORDER);
+	}
+
+	/**
+	 * Performs the action when the export button is clicked. Writes the
+	 * traversal shown in the list, or the in-order traversal if none is
+	 * shown, to a text file.
+	 */
+	@FXML private void exportOnAction(ActionEvent event) {
+		FileChooser chooser = new FileChooser();
+		chooser.setTitle("Export Traversal");
+		chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Text Files", "*.txt"));
+		File file = chooser.showSaveDialog(root_container.getScene().getWindow());
+		if (file == null) {
+			return;   // Cancelled
+		}
+
+		TraversalOrder order = traversalOrder != null ? traversalOrder : TraversalOrder.INORDER;
+		try (OutputStream out = Files.newOutputStream(file.toPath())) {
+			graphicsTree.exportTree(order, out);
+		} catch (IOException ioe) {
+			Alert alert = new Alert(Alert.AlertType.ERROR, "Error exporting the tree to " + file.getName() + ".",
+					ButtonType.OK);
+			alert.showAndWait()
+					.filter(response -> response == ButtonType.OK)
+					.ifPresent(response -> alert.close());
+		}
+	}
+
+	/**
+	 * Shows a traversal in the list. The list is virtualized and pages its
+	 * keys in from the tree as it is scrolled, so only the visible keys are
+	 * laid out however large the tree is.
+	 * @param order the traversal order
+	 */
+	private void showTraversal(TraversalOrder order) {
+		traversalOrder = order;
+		traversal_list.setItems(graphicsTree.traversalView(order));
+		traversal_list.scrollTo(0);
+	}
+
+	/**
+	 * Shows the traversal in the list again after the tree has changed.
+	 */
+	private void refreshTraversal() {
+		if (traversalOrder != null) {
+			traversal_list.setItems(graphicsTree.traversalView(traversalOrder));
+		}
 	}
 }
@@ -1,5 +1,6 @@
 package controller;
 
+import javafx.collections.ObservableList;
 import javafx.geometry.Point2D;
 import javafx.scene.canvas.Canvas;
 import javafx.scene.canvas.GraphicsContext;
@@ -8,7 +9,10 @@ import javafx.scene.control.ButtonType;
 
 import tree.*;
 import shape.*;
-import java.util.Objects;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * Draws the tree and updates the graphics to display according to the
@@ -22,13 +26,23 @@ public final class GraphicsTree extends Canvas {
 	/**
 	 * The initial input values for the tree.
 	 */
-	private static final Integer[] NUMBERS_ARRAY = { 50, 25, 30, 12, 10, 75, 70, 80, 110 };
-
-	private BinarySearchTree tree;  	// The BST
-	private TreeIterator treeIterator;  // The BST Iterator
-	private Circle insertCircle;        // Insert circle 
+	private static final int[] NUMBERS_ARRAY = { 50, 25, 30, 12, 10, 75, 70, 80, 110 };
+
+	private VersionedTree history;      // Every version of the BST, null for other engines
+	private DrawableTree tree;          // The tree engine, showing the current version
+	private TreeLayout layout;          // Node positions of the last drawn tree, null before the first
+	private TreeFrame frame;            // The picture on screen, null if the canvas is blank
+	private final TreeExporter exporter = new TreeExporter(); // Streams traversals out
+	private Integer insertKey;          // Key of the last inserted node
+	private SearchPath searchPath;      // Path of the last successful search
 	private int maxTreeHeight; 			// Max tree height;
 
+	/**
+	 * The view model of the tree: one circle per search key, created when
+	 * the node is first drawn and dropped when the key is deleted.
+	 */
+	private final Map<Integer, Circle> circles = new HashMap<>();
+
 	/**
 	 * Draws the tree and updates the graphics to display according to the
 	 * searching, inserting, deleting, and traversal options.
@@ -42,9 +56,20 @@ public final class GraphicsTree extends Canvas {
 	}
 	
 	/**
-     * Changes the tree rendered by this panel.
-     */
-    public void setTree(BinarySearchTree root) {  tree = root; }
+	 * Changes the tree rendered by this panel. Any engine with a drawable
+	 * shape can be shown; versions are kept, and a rejected insert undone,
+	 * only for a tree.BinarySearchTree in copy-on-write mode.
+	 * @param engine the tree to render
+	 */
+	public void setTree(DrawableTree engine) {
+		if (engine instanceof BinarySearchTree && ((BinarySearchTree) engine).isCopyOnWrite()) {
+			history = new VersionedTree((BinarySearchTree) engine);
+		} else {
+			history = null;
+		}
+		tree = engine;
+		circles.clear();
+	}
 
 	/**
 	 * Creates the initial binary search tree with the default values
@@ -52,13 +77,12 @@ public final class GraphicsTree extends Canvas {
 	 */
 	public void createTree() {
 
-		tree = new BinarySearchTree(); // Create an empty tree
+		history = new VersionedTree(BalanceMode.NONE); // Create an empty tree
+		tree = history.getTree();
+		circles.clear();
 		setMaxTreeHeight(7); 		   // Set the default max tree height 
 
-		for (Integer number : NUMBERS_ARRAY) {
-			Circle circle = new Circle(number);
-			tree.insertItem(circle);
-		}
+		history.insertAll(NUMBERS_ARRAY);
 
 		drawTree();
 	}
@@ -80,59 +104,40 @@ public final class GraphicsTree extends Canvas {
 	 * 
 	 * @param searchKey a <code>Integer</code> number for finding a tree.TreeNode
 	 */
-	public void search(Integer searchKey) {
+	public void search(int searchKey) {
 
-		// Try to search for a number.
-		try { 
-			tree.retrieveItem(searchKey); // number was found
-		} catch (NullPointerException e) { // Not found
+		// Try to search for a number. A self-adjusting engine may move the
+		// key, so the path is traced afterwards on the tree that is drawn.
+		tree.retrieveItem(searchKey);
+		searchPath = tree.searchPath(searchKey);
+		if (!searchPath.isFound()) { // Not found
 			//JOptionPane.showMessageDialog(null, searchKey + " was not found.");
-			tree.setResetColor(tree.root); // Reset color
+			searchPath = null; // Reset color
 		}
 
 		drawTree();
 	}
 
 	/**
-	 * Prints the tree traversal order to the upper left-hand
-	 * side of the screen.
-	 * @return outputString
+	 * Streams a traversal of the tree to a byte stream without building it
+	 * in memory, however large the tree is.
+	 * @param order the traversal order
+	 * @param out the destination, neither flushed nor closed
+	 * @return The number of keys written
+	 * @throws IOException if the stream fails
 	 */
-	public String printTree() {
-
-		// Traversal text output string
-		StringBuilder outputString = new StringBuilder();
-
-		// Add the next tree iterator to the output
-		while (treeIterator.hasNext()) {
-			outputString.append(treeIterator.next()).append(" ");
-		}
-
-		return outputString.toString(); // return the output string
+	public long exportTree(TraversalOrder order, OutputStream out) throws IOException {
+		return exporter.export(tree, order, out);
 	}
 
 	/**
-	 * Retrieves the pre-order traversal option.
+	 * Makes a lazily paged list of the keys in one traversal order, for a
+	 * virtualized list view. Only the keys the view shows are fetched.
+	 * @param order the traversal order
+	 * @return A read-only list of the keys as the tree is now
 	 */
-	public void setPreorder() {
-		treeIterator = new TreeIterator(tree);
-		treeIterator.setPreorder();
-	}
-
-	/**
-	 * Retrieves the in-order traversal option.
-	 */
-	public void setInorder() {
-		treeIterator = new TreeIterator(tree);
-		treeIterator.setInorder();
-	}
-
-	/**
-	 * Retrieves the post-order traversal option.
-	 */
-	public void setPostorder() {
-		treeIterator = new TreeIterator(tree);
-		treeIterator.setPostorder();
+	public ObservableList<Integer> traversalView(TraversalOrder order) {
+		return new TraversalList(tree, order);
 	}
 
 	/**
@@ -140,15 +145,15 @@ public final class GraphicsTree extends Canvas {
 	 * displays an notification request to change the max height.
 	 * @param searchKey a <code>integer</code> number to insert in the tree
 	 */
-	public void insert(Integer searchKey) {
-		insertCircle = new Circle(searchKey);
-		tree.insertItem(insertCircle);
+	public void insert(int searchKey) {
+		insertKey = searchKey;
+		boolean inserted = insertItem(searchKey);
 		int heightOption = 2;
 		drawTree();
 
 
 	//	 If the height of the tree equals max height
-		if (tree.getHeight(tree.getRoot()) == maxTreeHeight) {
+		if (drawnHeight() == maxTreeHeight) {
 			// Display option message
 
 			Alert alert = new Alert(Alert.AlertType.WARNING, "Reached max height. Would you like to increase the height?",
@@ -169,7 +174,7 @@ public final class GraphicsTree extends Canvas {
 					int newHeight = heightOption;
 //					int newHeight = Integer.parseInt(heightOption);
 					// Confirm height input is within acceptable range
-					if (newHeight > tree.getHeight(tree.getRoot()) && newHeight <= 10) {
+					if (newHeight > drawnHeight() && newHeight <= 10) {
 						setMaxTreeHeight(newHeight);
 					} else {
 						throw new TreeException("tree.TreeException on change height.");
@@ -183,8 +188,7 @@ public final class GraphicsTree extends Canvas {
 							.filter(response -> response == ButtonType.OK)
 							.ifPresent(response -> alert.close());
 
-					tree.deleteItem(insertCircle.getSearchKey()); // Remove the inserted circle
-					tree.setResetColor(tree.root); 				  // Reset highlight flag for all nodes
+					rollback(inserted, searchKey); // Remove the inserted circle
 				}
 
 				// Option 'No' selected: Reverse changes and exit
@@ -196,8 +200,7 @@ public final class GraphicsTree extends Canvas {
 						.ifPresent(response -> alert.close());
 
 
-				tree.deleteItem(insertCircle.getSearchKey()); // Remove the inserted circle
-				tree.setResetColor(tree.root);                // Reset highlight flag for all nodes
+				rollback(inserted, searchKey); // Remove the inserted circle
 
 
 
@@ -206,17 +209,60 @@ public final class GraphicsTree extends Canvas {
 		}
 	}
 
+	/**
+	 * Gets the height of the tree as it was last drawn. Every change is
+	 * drawn before its height is checked, and the layout already knows it,
+	 * while an engine without cached heights would walk the whole tree.
+	 * @return The tree height, zero before the first drawing
+	 */
+	private int drawnHeight() {
+		return layout == null ? 0 : layout.height();
+	}
+
+	/**
+	 * Reverses an insert by going back to the version before it. An insert
+	 * of a key that was already in the tree recorded no version, so there
+	 * is nothing to undo.
+	 * @param inserted <code>true</code> if the insert recorded a version
+	 * @param searchKey the inserted search key
+	 */
+	private void rollback(boolean inserted, int searchKey) {
+		if (inserted) {
+			if (history != null) {
+				history.undo();
+			} else {
+				tree.deleteItem(searchKey);
+			}
+			circles.remove(searchKey);
+		}
+		searchPath = null; // Reset highlight for all nodes
+	}
+
+	/**
+	 * Inserts a key, recording a version when the tree keeps them.
+	 * @param searchKey the key to insert
+	 * @return <code>true</code> if the key was not in the tree before
+	 */
+	private boolean insertItem(int searchKey) {
+		if (history != null) {
+			return history.insertItem(searchKey);
+		}
+		int oldSize = tree.getSize();
+		tree.insertItem(searchKey);
+		return tree.getSize() != oldSize;
+	}
+
 	/**
 	 * Deletes a number from the tree. If the number is not able to be deleted display
 	 * a notification message.
 	 * @param searchKey <code>integer</code> number to delete from the tree
 	 */
-	public void delete(Integer searchKey) {
-		try {
-			tree.deleteItem(searchKey);
-		} catch (TreeException e) {
+	public void delete(int searchKey) {
+		boolean deleted = history != null ? history.deleteItem(searchKey) : tree.deleteItem(searchKey);
+		if (!deleted) {
 			//JOptionPane.showMessageDialog(null, "Unable to delete " + searchKey);
 		}
+		circles.remove(searchKey);
 
 		drawTree();
 	}
@@ -225,126 +271,102 @@ public final class GraphicsTree extends Canvas {
 	 * Deletes all the nodes in the tree.
 	 */
 	public void makeEmpty() {
-		tree.makeEmpty();
+		if (history != null) {
+			history.makeEmpty();
+		} else {
+			tree.makeEmpty();
+		}
+		circles.clear();
 		maxTreeHeight = 6;
-        getGraphicsContext2D().clearRect(0, 0, getWidth(), getHeight());
+		clearCanvas();
 	}
 
 	/**
-	 * Draws the binary tree on the component.
+	 * Draws the binary tree on the component. The layout of the last drawn
+	 * tree is reused for every subtree that has not changed since, and the
+	 * largest such subtree stays where it is on screen. The versioned tree
+	 * never changes a node in place, so for it only the nodes a change made
+	 * are laid out and compared, however large the tree. The new picture is
+	 * compared with the one on screen, and only the regions where they
+	 * differ are cleared and drawn again; a resize, a change of tree height
+	 * or scale, or a change spread over many regions or most of the canvas
+	 * repaints the whole canvas.
 	 */
 	protected void drawTree() {
-		double width = getWidth();
-		double height = getHeight();
+		layout = TreeLayout.of(tree, layout);
+		TreeFrame next = new TreeFrame(layout, getWidth(), getHeight(), searchPath, insertKey, frame);
+		double[] dirty = next.dirtyRegions(frame);
 
 		GraphicsContext gc = getGraphicsContext2D();
-		gc.clearRect(0, 0, width, height);
-
-		// If the tree is not empty; draw the lines and circles
-		if (tree.root != null) {
-		int treeHeight = tree.getHeight(tree.root);
-			
-			// Get the tree height
-			drawTree(gc, tree.getRoot(), 0, this.getWidth(), 0, this.getHeight() / treeHeight);
-			drawCircles(gc, tree.getRoot(), 0, this.getWidth(), 0, this.getHeight() / treeHeight);
-		}
-	}
-	
-	/**
-	 * Draws the lines recursively until there are no more tree nodes.
-	 * @param gc graphics2D class for extending drawing tools
-	 * @param treeNode a tree with <code>integer</code> index numbers
-	 * @param xMin the minimum width to draw on the component
-	 * @param xMax the minimum width to draw on the component
-	 * @param yMin the maximum width to draw on the component
-	 * @param yMax the maximum height to draw on the component
-	 */
-	protected void drawTree(GraphicsContext gc, TreeNode treeNode, double xMin, double xMax, double yMin, double yMax) {
-
-		Point2D linePoint1; 	// Point_1
-		Point2D linePoint2;   // Point_2
-		Line newLine = new Line();  // Blank line
-		
-		// If left node is not null then draw a line to it
-		if (treeNode.leftCircle != null) {
-			newLine.setHighlighter(false);
-			
-			if (treeNode.leftCircle.highlightFlag) {
-				newLine.setHighlighter(true);
+		if (dirty == null) {
+			gc.clearRect(0, 0, next.width, next.height);
+			paint(gc, next, 0, 0, next.width, next.height);
+		} else {
+			for (int i = 0; i < dirty.length; i += 4) {
+				gc.save();
+				gc.beginPath();
+				gc.rect(dirty[i], dirty[i + 1], dirty[i + 2], dirty[i + 3]);
+				gc.clip();
+				gc.clearRect(dirty[i], dirty[i + 1], dirty[i + 2], dirty[i + 3]);
+				paint(gc, next, dirty[i], dirty[i + 1], dirty[i + 2], dirty[i + 3]);
+				gc.restore();
 			}
-			
-			// Determine the start and end points of the line
-			linePoint1 = new Point2D(((xMin + xMax) / 2), yMin + yMax / 2);
-			linePoint2 = new Point2D(((xMin + (xMin + xMax) / 2) / 2), yMin + yMax + yMax / 2);
-			newLine.setPoint(linePoint1, linePoint2);// Set the points
-			newLine.draw(gc);// Draw the line
-			
-			// Recurse left circle nodes
-			drawTree(gc, treeNode.leftCircle, xMin, (xMin + xMax) / 2, yMin + yMax, yMax);
 		}
+		frame = next;
 
-		// If right node is not null then draw a line to it
-		if (treeNode.rightCircle != null) {
-			newLine.setHighlighter(false);
-			
-			// Color the line if the tree circle is flagged for color 
-			if (treeNode.rightCircle.highlightFlag) {
-				newLine.setHighlighter(true);
-			}
-	
-			// Determine the start and end points of the line
-			linePoint1 = new Point2D((xMin + xMax) / 2, yMin + yMax / 2);
-			linePoint2 = new Point2D((xMax + (xMin + xMax) / 2) / 2, yMin + yMax + yMax / 2);
-			newLine.setPoint(linePoint1, linePoint2);
-			newLine.draw(gc);// Draw the line
-		
-			// Recurse right circle nodes
-			drawTree(gc, treeNode.rightCircle, (xMin + xMax) / 2, xMax, yMin + yMax, yMax);
-		}
+		// A search path and a new node are highlighted once
+		searchPath = null;
+		insertKey = null;
 	}
 
 	/**
-	 * Draws circles for every root, parent and child tree nodes.
-	 * @param gc graphics2D class for expanding the drawing tools
-	 * @param treeNode a tree with <code>Integer</code> index numbers
-	 * @param xMin the minimum width to draw on the component
-	 * @param xMax the maximum width to draw on the component
-	 * @param yMin the minimum height to draw on the component
-	 * @param yMax the maximum height to draw on the component
+	 * Draws the lines, then the circles, of every node that may reach into
+	 * a region of the canvas. Subtrees outside the region are skipped.
+	 * @param gc the graphics context of the canvas
+	 * @param picture the frame to draw
+	 * @param regionX the left edge of the region
+	 * @param regionY the top edge of the region
+	 * @param regionWidth the region width
+	 * @param regionHeight the region height
 	 */
-	public void drawCircles(GraphicsContext gc, TreeNode treeNode, double xMin, double xMax, double yMin, double yMax) {
-
-		// Create a new point
-		Point2D point = new Point2D((xMin + xMax) / 2, yMin + yMax / 2);
-
-		// treeNodes are flagged for highlight: Search and insertion nodes
-		if (treeNode.highlightFlag || Objects.equals(treeNode.rootCircle, insertCircle)) {
-			insertCircle = null;		    // Reset insert circle
-			treeNode.highlightFlag = false; // Reset highlight flag
-			treeNode.rootCircle.setHighlighter(true); // Highlight turned on
-			treeNode.rootCircle.setPoint(point); 	
-
-			// default no highlight
-		} else {
-			treeNode.rootCircle.setHighlighter(false); // Highlight turned off
-			treeNode.rootCircle.setPoint(point);
-		}
-
-		// Draw the circle
-		treeNode.rootCircle.draw(gc);
-
-		// Recurse left circles
-		if (treeNode.leftCircle != null) {
-			drawCircles(gc, treeNode.leftCircle, xMin, (xMin + xMax) / 2, yMin + yMax,	yMax);
-		}
+	private void paint(GraphicsContext gc, TreeFrame picture,
+			double regionX, double regionY, double regionWidth, double regionHeight) {
+		Line line = new Line();
+
+		picture.visit(regionX, regionY, regionWidth, regionHeight, (node, x, y) -> {
+			drawLine(gc, line, picture, x, y, node.left, node.leftDx);
+			drawLine(gc, line, picture, x, y, node.right, node.rightDx);
+		});
+
+		picture.visit(regionX, regionY, regionWidth, regionHeight, (node, x, y) -> {
+			Circle circle = circles.computeIfAbsent(node.key, Circle::new);
+			circle.setHighlighter(picture.circleLit(node.key));
+			circle.setPoint(new Point2D(x, y));
+			circle.draw(gc);
+		});
+	}
 
-		// Recurse right circles
-		if (treeNode.rightCircle != null) {
-			drawCircles(gc, treeNode.rightCircle, (xMin + xMax) / 2, xMax, yMin + yMax, yMax);
+	/**
+	 * Draws the line from a node to one of its children.
+	 * @param gc the graphics context of the canvas
+	 * @param line the reusable line shape
+	 * @param picture the frame to draw
+	 * @param x the canvas x of the node
+	 * @param y the canvas y of the node
+	 * @param child the layout of the child, or null
+	 * @param childDx the layout x of the child relative to the node
+	 */
+	private void drawLine(GraphicsContext gc, Line line, TreeFrame picture, double x, double y,
+			TreeLayout.Node child, double childDx) {
+		if (child != null) {
+			line.setHighlighter(picture.lineLit(child.key));
+			line.setPoint(new Point2D(x, y), new Point2D(picture.childX(x, childDx), y + picture.rowHeight));
+			line.draw(gc);
 		}
 	}
 
 	public void clearCanvas() {
+		frame = null;
 		getGraphicsContext2D().clearRect(0, 0, this.getWidth(), this.getHeight());
 	}
 }
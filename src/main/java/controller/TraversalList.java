@@ -0,0 +1,132 @@
+package controller;
+
+import javafx.collections.ObservableListBase;
+
+import tree.TraversalOrder;
+import tree.TreeEngine;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.PrimitiveIterator;
+
+/**
+ * A read-only list view of one traversal of the tree, for a virtualized
+ * ListView. Keys are fetched lazily a page at a time from a traversal
+ * cursor as the view asks for them, and only the most recently used pages
+ * are kept, so showing a traversal of millions of keys costs a few pages
+ * of memory. Reading forward continues the cursor; reading back before it
+ * restarts the traversal and skips ahead, keeping the pages just before
+ * the one asked for, so scrolling back restarts once per several pages.
+ * A Morris walk would leave the tree threaded each time a cursor is
+ * dropped, so it is read as a plain in-order walk.
+ *
+ * Pages are read from the tree as it is when they are fetched, so a list
+ * is only valid until the tree changes; the view then makes a new one.
+ * @author Eric Canull
+ * @version 1.0
+ */
+final class TraversalList extends ObservableListBase<Integer> {
+
+	/**
+	 * The number of keys fetched at a time.
+	 */
+	static final int PAGE_SIZE = 512;
+
+	/**
+	 * The number of pages kept, least recently used dropped first.
+	 */
+	private static final int MAX_PAGES = 16;
+
+	private final TreeEngine tree;
+	private final TraversalOrder order;
+	private final int size;
+
+	@SuppressWarnings("serial")
+	private final Map<Integer, int[]> pages = new LinkedHashMap<Integer, int[]>(MAX_PAGES, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Integer, int[]> eldest) {
+			return size() > MAX_PAGES;
+		}
+	};
+
+	private PrimitiveIterator.OfInt cursor;  // The traversal, positioned at cursorIndex
+	private int cursorIndex;
+
+	/**
+	 * A read-only list view of one traversal of the tree.
+	 * @param tree the tree to traverse
+	 * @param order the traversal order
+	 */
+	TraversalList(TreeEngine tree, TraversalOrder order) {
+		this.tree = tree;
+		this.order = order == TraversalOrder.MORRIS_INORDER ? TraversalOrder.INORDER : order;
+		this.size = tree.getSize();
+	}
+
+	/**
+	 * Gets a key of the traversal, fetching its page if needed.
+	 * @param index the position in the traversal
+	 * @return The key, or null if the tree has shrunk since the list was made
+	 */
+	@Override
+	public Integer get(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("No key " + index);
+		}
+
+		int pageNumber = index / PAGE_SIZE;
+		int[] page = pages.get(pageNumber);
+		if (page == null) {
+			fetchPages(pageNumber);
+			page = pages.get(pageNumber);
+		}
+
+		int offset = index % PAGE_SIZE;
+		return offset < page.length ? page[offset] : null;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Reads a page, moving the cursor forward to it. If the cursor is past
+	 * the page, the traversal restarts and the pages before it are read
+	 * as well, for a view scrolling backward.
+	 * @param pageNumber the page to read
+	 */
+	private void fetchPages(int pageNumber) {
+		int firstPage = pageNumber;
+		if (cursor == null || pageNumber * PAGE_SIZE < cursorIndex) {
+			cursor = tree.traversal(order);
+			cursorIndex = 0;
+			firstPage = Math.max(0, pageNumber - MAX_PAGES / 2 + 1);
+		}
+
+		int start = firstPage * PAGE_SIZE;
+		while (cursorIndex < start && cursor.hasNext()) {
+			cursor.nextInt();
+			cursorIndex++;
+		}
+		for (int next = firstPage; next <= pageNumber; next++) {
+			pages.put(next, readPage(next));
+		}
+	}
+
+	/**
+	 * Reads the page the cursor is at.
+	 * @param pageNumber the page under the cursor
+	 * @return The keys of the page; short if the traversal ran out
+	 */
+	private int[] readPage(int pageNumber) {
+		int[] page = new int[Math.min(PAGE_SIZE, size - pageNumber * PAGE_SIZE)];
+		int length = 0;
+		while (length < page.length && cursor.hasNext()) {
+			page[length++] = cursor.nextInt();
+			cursorIndex++;
+		}
+		return length == page.length ? page : Arrays.copyOf(page, length);
+	}
+}
@@ -0,0 +1,525 @@
+package controller;
+
+import shape.Circle;
+import tree.SearchPath;
+
+import java.util.Arrays;
+
+/**
+ * One drawn picture of the tree: its layout, where on the canvas the root
+ * and the rows go, and which circles and lines are highlighted. Node
+ * positions are worked out from the layout while walking down it, so a
+ * frame costs nothing per node until a part of it is painted. Two frames
+ * are compared by walking their layouts side by side, so that only the
+ * parts of the canvas whose picture changed are repainted, and a repaint
+ * skips every subtree whose box is outside a dirty region.
+ *
+ * Nodes are placed by a cached tidy layout at natural spacing, or less when
+ * the tree would not fit, with one row of the canvas per tree level. A new
+ * frame keeps the largest unchanged subtree where the frame before drew
+ * it, as long as the tree still fits that way, so a change moves only the
+ * nodes around it; otherwise the tree is centered on the canvas.
+ * @author Eric Canull
+ * @version 1.0
+ */
+final class TreeFrame {
+
+	/**
+	 * How far a circle, with its border, reaches from its center.
+	 */
+	static final double CIRCLE_EXTENT = Circle.RADIUS + 3;
+
+	/**
+	 * How far a line, with its width, reaches from its ends.
+	 */
+	static final double LINE_EXTENT = 3;
+
+	/**
+	 * The most dirty regions repainted one by one; past it, or once the
+	 * regions add up to the area of the canvas, the whole canvas is
+	 * repainted.
+	 */
+	private static final int MAX_DIRTY_REGIONS = 64;
+
+	/**
+	 * The distance in pixels between neighbors on a level when the tree fits.
+	 */
+	private static final double NODE_SPACING = 2 * CIRCLE_EXTENT + 6;
+
+	/**
+	 * The ratio between the scales a tree too wide for natural spacing is
+	 * drawn at. A scale is kept until the tree outgrows it, so most changes
+	 * to a wide tree do not rescale the whole picture.
+	 */
+	private static final double SCALE_STEP = Math.pow(2, 1.0 / 8);
+
+	/**
+	 * Positions closer than this many pixels are the same place on screen.
+	 * The layout adds up offsets along the path from the root, so a node
+	 * that has not moved can be off by a rounding error.
+	 */
+	private static final double SAME_PLACE = 1e-6;
+
+	final TreeLayout layout;
+	final double width;
+	final double height;
+
+	final double scale;           // Pixels per layout unit
+	final double rowHeight;       // Pixels per tree level
+	private final double originX; // Canvas x of layout x 0, the root
+
+	private final int[] pathKeys;      // The keys on the highlighted search path, sorted
+	private final Integer insertKey;   // The key of the highlighted new node, or null
+
+	/**
+	 * Visits a node of a frame with its place on the canvas.
+	 */
+	@FunctionalInterface
+	interface NodeVisitor {
+		void visit(TreeLayout.Node node, double x, double y);
+	}
+
+	/**
+	 * Lays out one picture of the tree.
+	 * @param layout the layout of the tree
+	 * @param width the canvas width
+	 * @param height the canvas height
+	 * @param searchPath the path to highlight, or null
+	 * @param insertKey the key of a new node to highlight, or null
+	 * @param older the frame on screen, whose unchanged parts are kept in
+	 *        place if possible, or null
+	 */
+	TreeFrame(TreeLayout layout, double width, double height, SearchPath searchPath, Integer insertKey,
+			TreeFrame older) {
+		this.layout = layout;
+		this.width = width;
+		this.height = height;
+		this.insertKey = insertKey;
+		pathKeys = searchPath == null ? new int[0] : searchPath.toArray();
+		Arrays.sort(pathKeys);
+
+		// A tree with no width, a single node, fits at any scale
+		TreeLayout.Node root = layout.root;
+		double span = root == null ? 0 : root.maxX - root.minX;
+		double fitScale = span == 0 ? NODE_SPACING : Math.max(0, width - 2 * CIRCLE_EXTENT) / span;
+		scale = fitScale >= NODE_SPACING ? NODE_SPACING : stepDown(fitScale);
+		rowHeight = height / Math.max(1, layout.height());
+		originX = root == null ? width / 2 : anchor(older);
+	}
+
+	/**
+	 * Rounds a scale below natural spacing down to the next step.
+	 * @param fitScale the largest scale at which the tree fits
+	 * @return The scale to draw at, zero if the tree cannot fit at all
+	 */
+	private static double stepDown(double fitScale) {
+		if (fitScale <= 0) {
+			return 0;
+		}
+		double steps = Math.ceil(Math.log(NODE_SPACING / fitScale) / Math.log(SCALE_STEP));
+		double stepped = NODE_SPACING / Math.pow(SCALE_STEP, steps);
+		// Guard against the logarithms rounding up past the fit
+		return stepped <= fitScale ? stepped : stepped / SCALE_STEP;
+	}
+
+	/**
+	 * Chooses where the root goes. Of the subtrees the layout kept from
+	 * the tree on screen, the largest that can stay where it is drawn
+	 * while the whole tree fits on the canvas decides; if none can, or the
+	 * canvas was resized, the tree is centered. Each subtree tried costs a
+	 * walk down to it in both frames.
+	 * @param older the frame on screen, or null
+	 * @return The canvas x of the root
+	 */
+	private double anchor(TreeFrame older) {
+		TreeLayout.Node root = layout.root;
+		double centered = width / 2 - (root.minX + root.maxX) / 2 * scale;
+		if (older == null || older.width != width || older.height != height || older.scale != scale
+				|| older.layout.root == null) {
+			return centered;
+		}
+		if (older.layout == layout) {
+			return fits(older.originX) ? older.originX : centered;
+		}
+
+		double[] oldPlace = new double[3];
+		double[] newPlace = new double[3];
+		for (TreeLayout.Node node : layout.unchanged) {
+			if (!older.locate(node, oldPlace) || !locate(node, newPlace)
+					|| Math.abs(older.y(oldPlace[1]) - y(newPlace[1])) >= SAME_PLACE) {
+				continue;
+			}
+			double candidate = older.originX + (oldPlace[0] - newPlace[0]) * scale;
+			if (fits(candidate)) {
+				return candidate;
+			}
+		}
+		return centered;
+	}
+
+	/**
+	 * Checks if every circle is on the canvas with the root at a given x.
+	 */
+	private boolean fits(double rootX) {
+		return rootX + layout.root.minX * scale >= CIRCLE_EXTENT
+				&& rootX + layout.root.maxX * scale <= width - CIRCLE_EXTENT;
+	}
+
+	/**
+	 * Walks down from the root to a node of the layout.
+	 * @param node the node to find
+	 * @param place receives the layout x of the node relative to the root,
+	 *        its level, and the layout x of its parent
+	 * @return <code>true</code> if the node is in this frame's layout
+	 */
+	private boolean locate(TreeLayout.Node node, double[] place) {
+		return locate(node.key, place) == node;
+	}
+
+	/**
+	 * Walks down from the root to a key.
+	 * @param searchKey the key to find
+	 * @param place receives the layout x of the key's node relative to the
+	 *        root, its level, and the layout x of its parent
+	 * @return The node holding the key, or null
+	 */
+	private TreeLayout.Node locate(int searchKey, double[] place) {
+		TreeLayout.Node node = layout.root;
+		double x = 0;
+		double parentX = 0;
+		int level = 0;
+		while (node != null && node.key != searchKey) {
+			parentX = x;
+			if (searchKey < node.key) {
+				x += node.leftDx;
+				node = node.left;
+			} else {
+				x += node.rightDx;
+				node = node.right;
+			}
+			level++;
+		}
+		place[0] = x;
+		place[1] = level;
+		place[2] = parentX;
+		return node;
+	}
+
+	/**
+	 * Gets the canvas y of a tree level.
+	 */
+	private double y(double level) {
+		return (level + 0.5) * rowHeight;
+	}
+
+	/**
+	 * Determines if the circle of a key is highlighted.
+	 * @param searchKey the key of a node
+	 * @return <code>true</code> if the key is on the search path or was just inserted
+	 */
+	boolean circleLit(int searchKey) {
+		return lineLit(searchKey) || (insertKey != null && insertKey == searchKey);
+	}
+
+	/**
+	 * Determines if the line from the parent of a key is highlighted.
+	 * @param searchKey the key of a node
+	 * @return <code>true</code> if the key is on the search path
+	 */
+	boolean lineLit(int searchKey) {
+		return Arrays.binarySearch(pathKeys, searchKey) >= 0;
+	}
+
+	/**
+	 * Gets the canvas x of a child.
+	 * @param x the canvas x of the parent
+	 * @param childDx the layout x of the child relative to the parent
+	 * @return The canvas x of the child
+	 */
+	double childX(double x, double childDx) {
+		return x + childDx * scale;
+	}
+
+	/**
+	 * Finds the regions of the canvas whose picture differs from an older
+	 * frame. The layouts are walked side by side from their roots, a pair
+	 * of nodes in the same place of both trees at a time. A node whose key
+	 * or place changed dirties its circle in both frames, and the line to
+	 * it when either end moved. A subtree present in only one frame dirties
+	 * all of it. A layout node kept from the older frame stands for its
+	 * whole subtree: skipped if it is the node the older frame had in the
+	 * same place and it did not move, and dirtying its box in both frames
+	 * otherwise, so the walk only visits the nodes the new layout made and
+	 * their children. Highlights that changed are found by key.
+	 * @param older the frame on screen, or null
+	 * @return The dirty regions, four numbers each (x, y, width, height),
+	 *         or null if the whole canvas must be repainted
+	 */
+	double[] dirtyRegions(TreeFrame older) {
+		if (older == null || older.width != width || older.height != height
+				|| older.layout.height() != layout.height() || older.scale != scale) {
+			return null;
+		}
+
+		Damage damage = new Damage(width * height);
+		Pairs pairs = new Pairs();
+		if (older.layout.root != null || layout.root != null) {
+			pairs.push(older.layout.root, layout.root, older.originX, originX, Double.NaN, Double.NaN, 0);
+		}
+
+		while (pairs.size > 0 && !damage.full()) {
+			int i = --pairs.size;
+			TreeLayout.Node oldNode = pairs.oldNodes[i];
+			TreeLayout.Node newNode = pairs.newNodes[i];
+			double oldX = pairs.oldX[i];
+			double newX = pairs.newX[i];
+			double oldParentX = pairs.oldParentX[i];
+			double newParentX = pairs.newParentX[i];
+			int level = pairs.levels[i];
+
+			if (oldNode == null || newNode == null) {
+				// Present in one frame only: its whole subtree changed
+				if (oldNode != null) {
+					damage.subtree(older, oldNode, oldX, oldParentX, level);
+				} else {
+					damage.subtree(this, newNode, newX, newParentX, level);
+				}
+				continue;
+			}
+
+			// The rows are the same, so a node in the same place of both
+			// trees moved if its x did
+			boolean moved = Math.abs(oldX - newX) >= SAME_PLACE;
+			boolean parentMoved = level > 0 && Math.abs(oldParentX - newParentX) >= SAME_PLACE;
+			if ((oldNode == newNode && moved) || (oldNode != newNode && !layout.isNew(newNode))) {
+				// An equal subtree moved, or one was kept from elsewhere
+				damage.subtree(older, oldNode, oldX, oldParentX, level);
+				damage.subtree(this, newNode, newX, newParentX, level);
+				continue;
+			}
+
+			if (oldNode != newNode && (moved || oldNode.key != newNode.key)) {
+				damage.circle(older, oldX, level);
+				damage.circle(this, newX, level);
+			}
+			if (moved || parentMoved) {
+				damage.line(older, oldParentX, oldX, level);
+				damage.line(this, newParentX, newX, level);
+			}
+			if (oldNode == newNode) {
+				continue;   // Equal and in place below here
+			}
+
+			pairs.push(oldNode.left, newNode.left, older.childX(oldX, oldNode.leftDx),
+					childX(newX, newNode.leftDx), oldX, newX, level + 1);
+			pairs.push(oldNode.right, newNode.right, older.childX(oldX, oldNode.rightDx),
+					childX(newX, newNode.rightDx), oldX, newX, level + 1);
+		}
+
+		dirtyHighlights(older, damage, older.pathKeys, older.insertKey);
+		dirtyHighlights(older, damage, pathKeys, insertKey);
+		return damage.full() ? null : Arrays.copyOf(damage.regions, 4 * damage.count);
+	}
+
+	/**
+	 * Dirties, in both frames, the circles and lines of the keys that one
+	 * frame highlights and the other does not.
+	 * @param older the frame on screen
+	 * @param damage the regions found so far
+	 * @param keys the keys on a highlighted search path
+	 * @param newKey the key of a highlighted new node, or null
+	 */
+	private void dirtyHighlights(TreeFrame older, Damage damage, int[] keys, Integer newKey) {
+		for (int searchKey : keys) {
+			dirtyHighlight(older, damage, searchKey);
+		}
+		if (newKey != null) {
+			dirtyHighlight(older, damage, newKey);
+		}
+	}
+
+	private void dirtyHighlight(TreeFrame older, Damage damage, int searchKey) {
+		boolean circle = older.circleLit(searchKey) != circleLit(searchKey);
+		boolean line = older.lineLit(searchKey) != lineLit(searchKey);
+		if (circle || line) {
+			damage.key(older, searchKey, circle, line);
+			damage.key(this, searchKey, circle, line);
+		}
+	}
+
+	/**
+	 * Visits the nodes whose subtree box, widened by the reach of a circle,
+	 * meets a region, parents before children.
+	 * @param regionX the left edge of the region
+	 * @param regionY the top edge of the region
+	 * @param regionWidth the region width
+	 * @param regionHeight the region height
+	 * @param visitor called with each node and its place on the canvas
+	 */
+	void visit(double regionX, double regionY, double regionWidth, double regionHeight,
+			NodeVisitor visitor) {
+		if (layout.root == null) {
+			return;
+		}
+
+		int capacity = layout.height() + 1;
+		TreeLayout.Node[] nodes = new TreeLayout.Node[capacity];
+		double[] xs = new double[capacity];
+		int[] levels = new int[capacity];
+		int stackSize = 0;
+		nodes[0] = layout.root;
+		xs[0] = originX;
+		stackSize++;
+		while (stackSize > 0) {
+			stackSize--;
+			TreeLayout.Node node = nodes[stackSize];
+			double x = xs[stackSize];
+			int level = levels[stackSize];
+			double y = y(level);
+			if (x + node.maxX * scale + CIRCLE_EXTENT < regionX
+					|| x + node.minX * scale - CIRCLE_EXTENT > regionX + regionWidth
+					|| y + (node.height - 1) * rowHeight + CIRCLE_EXTENT < regionY
+					|| y - CIRCLE_EXTENT > regionY + regionHeight) {
+				continue;
+			}
+
+			visitor.visit(node, x, y);
+			if (node.right != null) {
+				nodes[stackSize] = node.right;
+				xs[stackSize] = childX(x, node.rightDx);
+				levels[stackSize++] = level + 1;
+			}
+			if (node.left != null) {
+				nodes[stackSize] = node.left;
+				xs[stackSize] = childX(x, node.leftDx);
+				levels[stackSize++] = level + 1;
+			}
+		}
+	}
+
+	/**
+	 * The pairs of nodes, one from each frame, still to compare, with
+	 * their canvas x, the canvas x of their parents and their level.
+	 */
+	private static final class Pairs {
+
+		TreeLayout.Node[] oldNodes = new TreeLayout.Node[16];
+		TreeLayout.Node[] newNodes = new TreeLayout.Node[16];
+		double[] oldX = new double[16];
+		double[] newX = new double[16];
+		double[] oldParentX = new double[16];
+		double[] newParentX = new double[16];
+		int[] levels = new int[16];
+		int size;
+
+		void push(TreeLayout.Node oldNode, TreeLayout.Node newNode, double oldNodeX, double newNodeX,
+				double oldParent, double newParent, int level) {
+			if (oldNode == null && newNode == null) {
+				return;
+			}
+			if (size == oldNodes.length) {
+				int capacity = size * 2;
+				oldNodes = Arrays.copyOf(oldNodes, capacity);
+				newNodes = Arrays.copyOf(newNodes, capacity);
+				oldX = Arrays.copyOf(oldX, capacity);
+				newX = Arrays.copyOf(newX, capacity);
+				oldParentX = Arrays.copyOf(oldParentX, capacity);
+				newParentX = Arrays.copyOf(newParentX, capacity);
+				levels = Arrays.copyOf(levels, capacity);
+			}
+			oldNodes[size] = oldNode;
+			newNodes[size] = newNode;
+			oldX[size] = oldNodeX;
+			newX[size] = newNodeX;
+			oldParentX[size] = oldParent;
+			newParentX[size] = newParent;
+			levels[size] = level;
+			size++;
+		}
+	}
+
+	/**
+	 * Collects dirty regions, giving up once there are too many or they
+	 * cover as much as the whole canvas.
+	 */
+	private static final class Damage {
+
+		private final double areaLimit;
+
+		double[] regions = new double[32];
+		int count;
+		private double area;
+
+		Damage(double areaLimit) {
+			this.areaLimit = areaLimit;
+		}
+
+		boolean full() {
+			return count > MAX_DIRTY_REGIONS;
+		}
+
+		void circle(TreeFrame frame, double x, int level) {
+			add(x - CIRCLE_EXTENT, frame.y(level) - CIRCLE_EXTENT, 2 * CIRCLE_EXTENT, 2 * CIRCLE_EXTENT);
+		}
+
+		/**
+		 * Dirties the line from a parent, on the level above, to a node.
+		 * The root has no line.
+		 */
+		void line(TreeFrame frame, double parentX, double x, int level) {
+			if (level == 0) {
+				return;
+			}
+			add(Math.min(parentX, x) - LINE_EXTENT, frame.y(level - 1) - LINE_EXTENT,
+					Math.abs(parentX - x) + 2 * LINE_EXTENT, frame.rowHeight + 2 * LINE_EXTENT);
+		}
+
+		/**
+		 * Dirties the box of a whole subtree and the line into it.
+		 */
+		void subtree(TreeFrame frame, TreeLayout.Node node, double x, double parentX, int level) {
+			line(frame, parentX, x, level);
+			add(x + node.minX * frame.scale - CIRCLE_EXTENT, frame.y(level) - CIRCLE_EXTENT,
+					(node.maxX - node.minX) * frame.scale + 2 * CIRCLE_EXTENT,
+					(node.height - 1) * frame.rowHeight + 2 * CIRCLE_EXTENT);
+		}
+
+		/**
+		 * Dirties the circle of a key, the line into it, or both, if the
+		 * key is in a frame.
+		 */
+		void key(TreeFrame frame, int searchKey, boolean circle, boolean line) {
+			double[] place = new double[3];
+			if (frame.locate(searchKey, place) == null) {
+				return;
+			}
+			double x = frame.originX + place[0] * frame.scale;
+			int level = (int) place[1];
+			if (circle) {
+				circle(frame, x, level);
+			}
+			if (line) {
+				line(frame, frame.originX + place[2] * frame.scale, x, level);
+			}
+		}
+
+		private void add(double regionX, double regionY, double regionWidth, double regionHeight) {
+			if (full()) {
+				return;
+			}
+			area += regionWidth * regionHeight;
+			if (area >= areaLimit) {
+				count = MAX_DIRTY_REGIONS + 1;
+				return;
+			}
+			if (4 * count + 4 > regions.length) {
+				regions = Arrays.copyOf(regions, regions.length * 2);
+			}
+			regions[4 * count] = regionX;
+			regions[4 * count + 1] = regionY;
+			regions[4 * count + 2] = regionWidth;
+			regions[4 * count + 3] = regionHeight;
+			count++;
+		}
+	}
+}
@@ -0,0 +1,391 @@
+package controller;
+
+import tree.DrawableTree;
+import tree.TreeNode;
+import tree.TreeShape;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A tidy drawing of a tree in the manner of Reingold and Tilford: each
+ * parent is centered over its children, and the two subtrees of a node are
+ * pushed together until their facing contours, the innermost node of each
+ * level, are one unit apart. Positions are in layout units; the view
+ * scales them to the canvas.
+ *
+ * The layout of a subtree does not depend on where it is drawn, so each
+ * subtree is laid out by one immutable node that holds its children's
+ * offsets and its left and right contours. A contour is a list of steps
+ * shared with the subtrees it runs through, so merging two subtrees walks
+ * only the levels they have in common. A new layout keeps the node of
+ * every subtree unchanged since the previous one, even if a rotation moved
+ * it, and makes new nodes only above a change. For a tree with persistent
+ * nodes, a subtree is unchanged exactly when its root is the same object,
+ * so a layout after one write costs as much as the nodes the write made;
+ * other trees are compared key by key through a copy of their shape.
+ * @author Eric Canull
+ * @version 1.0
+ */
+final class TreeLayout {
+
+	/**
+	 * The least horizontal distance between two nodes on one level.
+	 */
+	private static final double SEPARATION = 1;
+
+	private static final int NONE = TreeShape.NONE;
+
+	/**
+	 * Orders the roots of unchanged subtrees from the largest.
+	 */
+	private static final Comparator<Node> LARGEST_FIRST = (a, b) -> Integer.compare(b.size, a.size);
+
+	/**
+	 * The root of the layout, null for an empty tree.
+	 */
+	final Node root;
+
+	/**
+	 * Counts the layouts made one from another; the nodes made by this
+	 * layout carry it.
+	 */
+	private final long stamp;
+
+	/**
+	 * The roots of the subtrees kept from the previous layout whose parent
+	 * is new, from the largest.
+	 */
+	final Node[] unchanged;
+
+	private TreeLayout(Node root, long stamp, List<Node> unchanged) {
+		this.root = root;
+		this.stamp = stamp;
+		this.unchanged = unchanged.toArray(new Node[0]);
+		Arrays.sort(this.unchanged, LARGEST_FIRST);
+	}
+
+	/**
+	 * Lays out a tree, reusing the unchanged subtrees of a previous layout.
+	 * @param tree the tree
+	 * @param previous the layout of an earlier state of the tree, or null
+	 * @return The layout, which is the previous one if nothing changed
+	 */
+	static TreeLayout of(DrawableTree tree, TreeLayout previous) {
+		TreeNode persistentRoot = tree.persistentRoot();
+		return persistentRoot == null ? of(tree.shape(), previous) : of(persistentRoot, previous);
+	}
+
+	/**
+	 * Gets the number of levels of the tree.
+	 * @return The tree height, zero for an empty tree
+	 */
+	int height() {
+		return root == null ? 0 : root.height;
+	}
+
+	/**
+	 * Determines if a node was made by this layout rather than kept from
+	 * an earlier one.
+	 * @param node a node of the layout
+	 * @return <code>true</code> if the node is new
+	 */
+	boolean isNew(Node node) {
+		return node.stamp == stamp;
+	}
+
+	/**
+	 * Lays out a tree whose nodes never change. A node is matched with the
+	 * node in the same place under its matched parent and, failing that,
+	 * looked up by key; the match is kept as is if it laid out the same
+	 * tree node, and the walk does not go below it.
+	 * @param tRoot the root of the tree
+	 * @param previous the previous layout, or null
+	 * @return The layout
+	 */
+	private static TreeLayout of(TreeNode tRoot, TreeLayout previous) {
+		long stamp = previous == null ? 0 : previous.stamp + 1;
+		Node oldRoot = previous == null ? null : previous.root;
+		List<Node> unchanged = new ArrayList<>();
+
+		// A walk that finishes each node after its children. Stage 0 looks
+		// for the node in the previous layout, stage 1 has the left child
+		// laid out and stage 2 both; the last finished node is in done
+		TreeNode[] tNodes = new TreeNode[32];
+		Node[] candidates = new Node[32];
+		Node[] lefts = new Node[32];
+		int[] stages = new int[32];
+		int top = 0;
+		tNodes[0] = tRoot;
+		candidates[0] = oldRoot;
+		Node done = null;
+
+		while (top >= 0) {
+			TreeNode tNode = tNodes[top];
+			Node candidate = candidates[top];
+			if (stages[top] == 0) {
+				if (candidate == null || candidate.key != tNode.searchKey) {
+					candidate = find(oldRoot, tNode.searchKey);
+					candidates[top] = candidate;
+				}
+				if (candidate != null && candidate.source == tNode) {
+					unchanged.add(candidate);
+					done = candidate;
+					top--;
+					continue;
+				}
+			} else if (stages[top] == 1) {
+				lefts[top] = done;
+			} else {
+				done = merge(tNode.searchKey, lefts[top], done, tNode, stamp);
+				top--;
+				continue;
+			}
+
+			// Lay out the next child, or go on with none
+			int stage = stages[top]++;
+			TreeNode child = stage == 0 ? tNode.leftCircle : tNode.rightCircle;
+			if (child == null) {
+				done = null;
+				continue;
+			}
+			if (++top == tNodes.length) {
+				tNodes = Arrays.copyOf(tNodes, top * 2);
+				candidates = Arrays.copyOf(candidates, top * 2);
+				lefts = Arrays.copyOf(lefts, top * 2);
+				stages = Arrays.copyOf(stages, top * 2);
+			}
+			tNodes[top] = child;
+			candidates[top] = candidate == null ? null : stage == 0 ? candidate.left : candidate.right;
+			stages[top] = 0;
+		}
+
+		return done == oldRoot && previous != null ? previous : new TreeLayout(done, stamp, unchanged);
+	}
+
+	/**
+	 * Lays out a copy of the shape of a tree. Candidates are matched as
+	 * for a persistent tree, and a candidate is kept when its key and its
+	 * kept children are the same, so every node is compared in O(n).
+	 * @param shape the shape of the tree
+	 * @param previous the previous layout, or null
+	 * @return The layout
+	 */
+	private static TreeLayout of(TreeShape shape, TreeLayout previous) {
+		long stamp = previous == null ? 0 : previous.stamp + 1;
+		Node oldRoot = previous == null ? null : previous.root;
+		int nodes = shape.size();
+
+		// Parents come before their children, so a forward pass hands each
+		// child its candidate before it is read
+		Node[] candidates = new Node[nodes];
+		for (int node = 0; node < nodes; node++) {
+			Node candidate = node == 0 ? oldRoot : candidates[node];
+			if (candidate == null || candidate.key != shape.key(node)) {
+				candidate = find(oldRoot, shape.key(node));
+			}
+			candidates[node] = candidate;
+			if (shape.left(node) != NONE) {
+				candidates[shape.left(node)] = candidate == null ? null : candidate.left;
+			}
+			if (shape.right(node) != NONE) {
+				candidates[shape.right(node)] = candidate == null ? null : candidate.right;
+			}
+		}
+
+		Node[] laidOut = new Node[nodes];
+		for (int node = nodes - 1; node >= 0; node--) {
+			Node left = shape.left(node) == NONE ? null : laidOut[shape.left(node)];
+			Node right = shape.right(node) == NONE ? null : laidOut[shape.right(node)];
+			Node candidate = candidates[node];
+			laidOut[node] = candidate != null && candidate.left == left && candidate.right == right
+					? candidate
+					: merge(shape.key(node), left, right, null, stamp);
+		}
+
+		Node newRoot = nodes == 0 ? null : laidOut[0];
+		if (newRoot == oldRoot && previous != null) {
+			return previous;
+		}
+
+		// Keep the roots of the unchanged subtrees whose parent is new
+		List<Node> unchanged = new ArrayList<>();
+		for (int node = 0; node < nodes; node++) {
+			if (laidOut[node] == candidates[node]) {
+				unchanged.add(laidOut[node]);
+				node += laidOut[node].size - 1;   // Skip the rest of the subtree
+			}
+		}
+		return new TreeLayout(newRoot, stamp, unchanged);
+	}
+
+	/**
+	 * Finds a key in a layout by walking down from its root.
+	 * @return The node holding the key, or null
+	 */
+	private static Node find(Node node, int searchKey) {
+		while (node != null && node.key != searchKey) {
+			node = searchKey < node.key ? node.left : node.right;
+		}
+		return node;
+	}
+
+	/**
+	 * Lays out a subtree whose children are laid out: walks the facing
+	 * contours of the two children level by level to find how far apart
+	 * they must be, and centers the node over them. The outer contours of
+	 * the node run down its children's, on into the taller child below the
+	 * bottom of the shorter one.
+	 * @param key the key of the node
+	 * @param left the layout of the left child, or null
+	 * @param right the layout of the right child, or null
+	 * @param source the persistent tree node laid out, or null
+	 * @param stamp the stamp of the layout being made
+	 * @return The layout of the subtree
+	 */
+	private static Node merge(int key, Node left, Node right, TreeNode source, long stamp) {
+		if (left == null && right == null) {
+			return new Node(key, null, 0, null, 0, null, null, source, stamp);
+		}
+		if (left == null || right == null) {
+			// A lone child sits half a unit to its side
+			Node child = left != null ? left : right;
+			double dx = left != null ? -SEPARATION / 2 : SEPARATION / 2;
+			return new Node(key, left, left != null ? dx : 0, right, right != null ? dx : 0,
+					new Contour(dx, child.leftContour), new Contour(dx, child.rightContour), source, stamp);
+		}
+
+		// Walk the right contour of the left child and the left contour of
+		// the right child, each relative to its own root
+		Contour inner = left.rightContour;
+		Contour outer = right.leftContour;
+		double innerX = 0;
+		double outerX = 0;
+		double distance = SEPARATION;
+		while (inner != null && outer != null) {
+			innerX += inner.dx;
+			outerX += outer.dx;
+			distance = Math.max(distance, innerX - outerX + SEPARATION);
+			inner = inner.next;
+			outer = outer.next;
+		}
+
+		double leftDx = -distance / 2;
+		double rightDx = distance / 2;
+		Contour leftContour = left.height >= right.height
+				? new Contour(leftDx, left.leftContour)
+				: join(leftDx, left.leftContour, left.height, rightDx, right.leftContour);
+		Contour rightContour = right.height >= left.height
+				? new Contour(rightDx, right.rightContour)
+				: join(rightDx, right.rightContour, right.height, leftDx, left.rightContour);
+		return new Node(key, left, leftDx, right, rightDx, leftContour, rightContour, source, stamp);
+	}
+
+	/**
+	 * Makes an outer contour that runs down the shorter child and goes on
+	 * in the taller one below it. The steps of the shorter child are
+	 * copied, and the taller child's are shared from where they join.
+	 * @param shortDx the x of the shorter child relative to the parent
+	 * @param shorter the contour of the shorter child on this side
+	 * @param shortHeight the height of the shorter child
+	 * @param tallDx the x of the taller child relative to the parent
+	 * @param taller the contour of the taller child on this side
+	 * @return The contour below the parent
+	 */
+	private static Contour join(double shortDx, Contour shorter, int shortHeight, double tallDx, Contour taller) {
+		double[] steps = new double[shortHeight];
+		steps[0] = shortDx;
+		double shortX = shortDx;
+		for (int i = 1; i < shortHeight; i++) {
+			steps[i] = shorter.dx;
+			shortX += shorter.dx;
+			shorter = shorter.next;
+		}
+
+		// Step down the taller contour to the level of the shorter bottom
+		double tallX = tallDx;
+		for (int i = 1; i < shortHeight; i++) {
+			tallX += taller.dx;
+			taller = taller.next;
+		}
+
+		Contour joined = new Contour(tallX + taller.dx - shortX, taller.next);
+		for (int i = shortHeight - 1; i >= 0; i--) {
+			joined = new Contour(steps[i], joined);
+		}
+		return joined;
+	}
+
+	/**
+	 * The layout of one subtree. It never changes, so it is shared by every
+	 * layout of a tree that holds the subtree.
+	 */
+	static final class Node {
+
+		final int key;
+		final Node left;
+		final Node right;
+		final double leftDx;    // x of the left child relative to this node
+		final double rightDx;   // x of the right child relative to this node
+		final int size;         // Nodes in the subtree
+		final int height;       // Levels in the subtree
+		final double minX;      // The smallest x in the subtree, relative to this node
+		final double maxX;      // The largest x in the subtree, relative to this node
+
+		private final Contour leftContour;    // The leftmost node of each level below this one
+		private final Contour rightContour;  // The rightmost node of each level below this one
+		private final TreeNode source;       // The persistent tree node laid out, or null
+		private final long stamp;            // The stamp of the layout that made the node
+
+		private Node(int key, Node left, double leftDx, Node right, double rightDx,
+				Contour leftContour, Contour rightContour, TreeNode source, long stamp) {
+			this.key = key;
+			this.left = left;
+			this.right = right;
+			this.leftDx = leftDx;
+			this.rightDx = rightDx;
+			this.leftContour = leftContour;
+			this.rightContour = rightContour;
+			this.source = source;
+			this.stamp = stamp;
+
+			int nodes = 1;
+			int levels = 0;
+			double low = 0;
+			double high = 0;
+			if (left != null) {
+				nodes += left.size;
+				levels = left.height;
+				low = Math.min(low, leftDx + left.minX);
+				high = Math.max(high, leftDx + left.maxX);
+			}
+			if (right != null) {
+				nodes += right.size;
+				levels = Math.max(levels, right.height);
+				low = Math.min(low, rightDx + right.minX);
+				high = Math.max(high, rightDx + right.maxX);
+			}
+			this.size = nodes;
+			this.height = levels + 1;
+			this.minX = low;
+			this.maxX = high;
+		}
+	}
+
+	/**
+	 * One step down a contour: the x of the contour node on the next level
+	 * relative to the one above it.
+	 */
+	private static final class Contour {
+
+		final double dx;
+		final Contour next;
+
+		Contour(double dx, Contour next) {
+			this.dx = dx;
+			this.next = next;
+		}
+	}
+}
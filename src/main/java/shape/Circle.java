@@ -11,17 +11,18 @@ import javafx.scene.text.FontWeight;
 
 /**
  * Creates a circle object with methods for controlling it's point locale,
- * background color, border color, font color, and number id.
+ * background color, border color, font color, and number id. A circle is
+ * the view of one tree.TreeNode; the tree itself only stores the search key.
  * @author Eric Canull
  * @version 1.0
  */
 public final class Circle {
 	
 	/**
-	 * The font for the numbers inside the circle.
+	 * The font for the numbers inside the circle, shared by every circle.
 	 */
-	final Font font =  Font.font("Cooper Black", FontWeight.BOLD, 16);
-	final FontMetrics fm = Toolkit.getToolkit().getFontLoader().getFontMetrics(font);
+	static final Font font =  Font.font("Cooper Black", FontWeight.BOLD, 16);
+	static final FontMetrics fm = Toolkit.getToolkit().getFontLoader().getFontMetrics(font);
 
 	/**
 	 * The radius of the circle.
@@ -31,7 +32,7 @@ public final class Circle {
 	/**
 	 * The search key for searching and deleting circles.
 	 */
-	private final Integer searchKey;
+	private final int searchKey;
 	
 	// The circle attributes
 	private Point2D point;
@@ -42,9 +43,9 @@ public final class Circle {
 	/**
 	 * Creates a circle object with methods for controlling it's point locale,
 	 * background color, border color, font color, search key.
-	 * @param searchKey a <code>Integer</code> search key for searching and deleting within an index.
+	 * @param searchKey a <code>int</code> search key for searching and deleting within an index.
 	 */
-	public Circle(Integer searchKey) {
+	public Circle(int searchKey) {
 		this.searchKey = searchKey;
 		this.backgroundColor = Color.web("#FCFCFC");
 	}
@@ -54,7 +55,7 @@ public final class Circle {
 	 * @param searchKey a integer id number for searching and deleting from an index.
 	 * @param point a Cartesian coordinate using x and y float numbers.
 	 */
-	public Circle(Integer searchKey, Point2D point) {
+	public Circle(int searchKey, Point2D point) {
 		this.searchKey = searchKey;
 		this.point = point;
 		this.backgroundColor = Color.rgb(49, 116, 222);
@@ -94,7 +95,7 @@ public final class Circle {
 	 * Get the search key number.
 	 * @return A integer of the circle index value. 
 	 */
-	public Integer getSearchKey() {
+	public int getSearchKey() {
 		return this.searchKey;
 	}
 	
@@ -0,0 +1,21 @@
+package tree;
+
+/**
+ * Selects how a binary search tree keeps itself balanced.
+ * @author Eric Canull
+ * @version 1.0
+ */
+public enum BalanceMode {
+
+	/**
+	 * Plain binary search tree. Nodes are linked where they land and the
+	 * tree degrades to a list on sorted input.
+	 */
+	NONE,
+
+	/**
+	 * AVL tree. Subtree heights never differ by more than one, so the
+	 * height of the tree stays within 1.44 log(n).
+	 */
+	AVL
+}
@@ -1,262 +1,1355 @@
 package tree;
 
+import static tree.TreeNode.height;
+import static tree.TreeNode.size;
+import static tree.TreeNode.update;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.NavigableSet;
 import java.util.Objects;
-import shape.Circle;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
 
 /**
- * Binary search tree. 
+ * Binary search tree.
  * Inherits isEmpty(), makeEmpty(), getRootItem(), and the
  * use of the constructors from tree.BinaryTreeBasis Assumption: A tree contains at
- * most one item with a given search key at any time.
- * 
+ * most one item with a given search key at any time. The tree is either left
+ * unbalanced or kept as an AVL tree, depending on the tree.BalanceMode given at
+ * construction. Every operation walks the tree with a loop, so trees of any
+ * depth are handled without recursion. Each node caches the height and size
+ * of its subtree, which makes height and size queries O(1) and rank queries
+ * O(height). Keys are primitive ints and the tree
+ * has no dependency on the JavaFX view classes.
+ *
+ * A tree built in copy-on-write mode never changes a node that a reader may
+ * see. Each write copies the nodes it touches and publishes the new root in
+ * one volatile write once it is done, and snapshot() hands out a read-only
+ * tree over the last published root. Snapshots may be read on any thread
+ * while a single writer keeps changing the tree; they never block and never
+ * see a half-finished write.
+ *
  * @author Eric Canull
  * @version 1.0
  */
-public final class BinarySearchTree extends BinaryTreeBasis {
+public final class BinarySearchTree extends BinaryTreeBasis implements DrawableTree {
+
+	/**
+	 * The balancing strategy applied after every insert and delete.
+	 */
+	private final BalanceMode balanceMode;
+
+	/**
+	 * The nodes visited by the last insert or delete, root first. Reused
+	 * between calls and grown when a deeper path is walked.
+	 */
+	private TreeNode[] path = new TreeNode[32];
+
+	/**
+	 * Whether writes copy the nodes they touch and publish a new root.
+	 */
+	private final boolean copyOnWrite;
+
+	/**
+	 * Whether the tree is a snapshot, which cannot be changed.
+	 */
+	private final boolean readOnly;
+
+	/**
+	 * Whether new nodes are tree.PayloadNode objects, for the map and
+	 * multiset built on this tree.
+	 */
+	private final boolean payloadNodes;
+
+	/**
+	 * The generation of the current write. Nodes of an older generation
+	 * may be shared with snapshots and are copied before they change. A
+	 * long never wraps around to the generation of a node still shared.
+	 */
+	private long epoch;
+
+	/**
+	 * The root as of the last finished write, read by snapshot().
+	 */
+	private volatile TreeNode published;
 
 	/**
 	 * Binary search tree.
 	 */
 	public BinarySearchTree() {
+		this(BalanceMode.NONE);
+	}
+
+	/**
+	 * Binary search tree.
+	 * @param balanceMode the balancing strategy for inserts and deletes
+	 * @Overload Default constructor
+	 */
+	public BinarySearchTree(BalanceMode balanceMode) {
+		this(balanceMode, false);
+	}
+
+	/**
+	 * Binary search tree.
+	 * @param balanceMode the balancing strategy for inserts and deletes
+	 * @param copyOnWrite <code>true</code> to copy nodes on write so that
+	 *        snapshots can be read concurrently
+	 * @Overload Default constructor
+	 */
+	public BinarySearchTree(BalanceMode balanceMode, boolean copyOnWrite) {
+		this(balanceMode, copyOnWrite, false);
+	}
+
+	/**
+	 * Binary search tree.
+	 * @param balanceMode the balancing strategy for inserts and deletes
+	 * @param copyOnWrite <code>true</code> to copy nodes on write so that
+	 *        snapshots can be read concurrently
+	 * @param payloadNodes <code>true</code> to create every node as a
+	 *        tree.PayloadNode
+	 * @Overload Default constructor
+	 */
+	BinarySearchTree(BalanceMode balanceMode, boolean copyOnWrite, boolean payloadNodes) {
 		this.root = null;
+		this.balanceMode = Objects.requireNonNull(balanceMode);
+		this.copyOnWrite = copyOnWrite;
+		this.readOnly = false;
+		this.payloadNodes = payloadNodes;
+	}
+
+	/**
+	 * Read-only snapshot of a copy-on-write tree.
+	 * @param source the tree the snapshot is taken of
+	 * @param snapshotRoot the published root of the source tree
+	 * @Overload Default constructor
+	 */
+	BinarySearchTree(BinarySearchTree source, TreeNode snapshotRoot) {
+		this.root = snapshotRoot;
+		this.balanceMode = source.balanceMode;
+		this.copyOnWrite = false;
+		this.readOnly = true;
+		this.payloadNodes = source.payloadNodes;
 	}
 
 	/**
 	 * Binary search tree.
-	 * @param rootCircle
+	 * @param rootKey the search key of the root node
 	 * @Overload Default constructor
 	 */
-	public BinarySearchTree(Circle rootCircle) {
-		super(rootCircle);
+	public BinarySearchTree(int rootKey) {
+		this(rootKey, BalanceMode.NONE);
 	}
 
 	/**
-	 * Inserts a new circle into the tree.
-	 * @param newCircle
+	 * Binary search tree.
+	 * @param rootKey the search key of the root node
+	 * @param balanceMode the balancing strategy for inserts and deletes
+	 * @Overload Default constructor
 	 */
-	public void insertItem(Circle newCircle) {
-		root = insertItem(root, newCircle);
+	public BinarySearchTree(int rootKey, BalanceMode balanceMode) {
+		super(rootKey);
+		this.balanceMode = Objects.requireNonNull(balanceMode);
+		this.copyOnWrite = false;
+		this.readOnly = false;
+		this.payloadNodes = false;
 	}
-	
+
 	/**
-	 * Inserts a new circle into the tree.
-	 * @param tNode a tree node
-	 * @param newCircle a new circle
-	 * @return 
-	 * @Overload insertItem() 
+	 * Gets the balancing strategy of the tree.
+	 * @return The balance mode chosen at construction
 	 */
-	protected TreeNode insertItem(TreeNode tNode, Circle newCircle) {
-		TreeNode newSubtree;
-		
-		if (tNode == null) {
-			tNode = new TreeNode(newCircle, null, null);
-			return tNode;
-		}
-		
-		Circle nodeItem = tNode.rootCircle;
+	public BalanceMode getBalanceMode() {
+		return balanceMode;
+	}
 
-		if(Objects.equals(newCircle.getSearchKey(), nodeItem.getSearchKey())) {
-		    return tNode;
-        }
+	/**
+	 * Determines if writes copy the nodes they touch.
+	 * @return <code>true</code> if the tree was built in copy-on-write mode
+	 */
+	public boolean isCopyOnWrite() {
+		return copyOnWrite;
+	}
 
-		if (newCircle.getSearchKey() < nodeItem.getSearchKey()) {
-			newSubtree = insertItem(tNode.leftCircle, newCircle);
-			tNode.leftCircle = newSubtree;
-			return tNode;
+	/**
+	 * Determines if the tree is a snapshot.
+	 * @return <code>true</code> if every change to the tree is rejected
+	 */
+	public boolean isReadOnly() {
+		return readOnly;
+	}
+
+	/**
+	 * Takes a read-only snapshot of the tree as of the last finished write.
+	 * Only the published root is read, so this may be called on any
+	 * thread, and the snapshot is unaffected by later writes. A snapshot
+	 * of a snapshot is the snapshot itself.
+	 * @return A read-only tree
+	 * @throws UnsupportedOperationException if the tree is not in
+	 *         copy-on-write mode
+	 */
+	public BinarySearchTree snapshot() {
+		if (readOnly) {
+			return this;
 		}
-		
-		newSubtree = insertItem(tNode.rightCircle, newCircle);
-		tNode.rightCircle = newSubtree;
-		return tNode;
+		if (!copyOnWrite) {
+			throw new UnsupportedOperationException("Copy-on-write is off");
+		}
+		return new BinarySearchTree(this, published);
 	}
-	
+
 	/**
-	 * Retrieves a circle from the tree.
+	 * Swaps in a root published earlier by this tree. Its nodes are never
+	 * changed in place, so restoring a root costs O(1) and later writes
+	 * copy its nodes as usual.
+	 * @param version A root this tree published before
+	 * @throws UnsupportedOperationException if the tree is not in
+	 *         copy-on-write mode
+	 */
+	void restore(TreeNode version) {
+		if (!copyOnWrite) {
+			throw new UnsupportedOperationException("Copy-on-write is off");
+		}
+		beginWrite();
+		root = version;
+		publish();
+	}
+
+	/**
+	 * Inserts a new search key into the tree. A key that is already in
+	 * the tree is ignored.
 	 * @param searchKey a unique identifying value
-	 * @return An integer search key number
 	 */
-	public Integer retrieveItem(Integer searchKey) {
-		return retrieveItem(root, searchKey);
+	@Override
+	public void insertItem(int searchKey) {
+		insertNode(searchKey);
 	}
-	
-	
+
 	/**
-	 * Searches for a circle from the tree.
-	 * @param tNode a tree node 
+	 * Inserts a key unless it is already in the tree, in one descent. The
+	 * size of the tree tells the caller whether the node is new. The
+	 * payload of a node found in a copy-on-write tree may be shared with
+	 * snapshots and must not be changed.
 	 * @param searchKey a unique identifying value
-	 * @return An integer search key number
-	 * @Overload retrieveItem()
+	 * @return The node holding the key
 	 */
-	protected Integer retrieveItem(TreeNode tNode, Integer searchKey) {
-		Integer treeItem;
-		if (tNode == null) {
-			treeItem = null;
+	TreeNode insertNode(int searchKey) {
+		beginWrite();
+		if (root == null) {
+			root = newNode(searchKey);
+			publish();
+			return root;
+		}
 
+		int depth = 0;
+		TreeNode tNode = root;
+		while (tNode != null) {
+			int nodeKey = tNode.searchKey;
+			if (searchKey == nodeKey) {
+				clearPath(depth);
+				return tNode;
+			}
+
+			push(depth++, tNode);
+			tNode = searchKey < nodeKey ? tNode.leftCircle : tNode.rightCircle;
+		}
+
+		copyPath(depth);
+		TreeNode parent = path[depth - 1];
+		TreeNode leaf = newNode(searchKey);
+		if (searchKey < parent.searchKey) {
+			parent.leftCircle = leaf;
 		} else {
-			tNode.highlightFlag = true;
-			Circle nodeItem = tNode.rootCircle;
-			if (Objects.equals(searchKey, nodeItem.getSearchKey())) {
-				tNode.highlightFlag = true;
-				treeItem = tNode.rootCircle.getSearchKey();
-			} else if (searchKey < nodeItem.getSearchKey()) {
-				tNode.leftCircle.highlightFlag = true;
-				treeItem = retrieveItem(tNode.leftCircle, searchKey);
+			parent.rightCircle = leaf;
+		}
+
+		rebalancePath(depth, 1);
+		publish();
+		return leaf;
+	}
+
+	/**
+	 * Retrieves a search key from the tree. The search neither changes the
+	 * tree nor allocates, so any number of threads may search a tree that
+	 * is not being changed.
+	 * @param searchKey a unique identifying value
+	 * @return <code>true</code> if the key is in the tree
+	 */
+	@Override
+	public boolean retrieveItem(int searchKey) {
+		return findNode(searchKey) != null;
+	}
+
+	/**
+	 * Retrieves a batch of search keys in one descent. The batch is sorted,
+	 * then split at every node into the keys that go left, the keys equal
+	 * to the node and the keys that go right, so the nodes shared by the
+	 * paths of several keys are visited once rather than once per key.
+	 * Repeated keys in the batch are answered together.
+	 * @param searchKeys search keys in any order, repeats allowed
+	 * @return A bitmap with bit i set if searchKeys[i] is in the tree
+	 */
+	public BitSet retrieveAll(int[] searchKeys) {
+		BitSet found = new BitSet(searchKeys.length);
+		if (root == null || searchKeys.length == 0) {
+			return found;
+		}
+
+		// Each entry is a key in the high half and its batch position in
+		// the low half, so sorting the entries sorts the keys
+		long[] batch = new long[searchKeys.length];
+		for (int i = 0; i < searchKeys.length; i++) {
+			batch[i] = ((long) searchKeys[i] << 32) | i;
+		}
+		Arrays.sort(batch);
+
+		int capacity = height(root) + 1;
+		TreeNode[] nodes = new TreeNode[capacity];
+		int[] froms = new int[capacity];
+		int[] tos = new int[capacity];
+		int stackSize = 0;
+
+		nodes[0] = root;
+		froms[0] = 0;
+		tos[0] = batch.length;
+		stackSize++;
+
+		while (stackSize > 0) {
+			stackSize--;
+			TreeNode tNode = nodes[stackSize];
+			int from = froms[stackSize];
+			int to = tos[stackSize];
+			nodes[stackSize] = null;
+
+			int equalFrom = firstAtLeast(batch, from, to, tNode.searchKey);
+			int equalTo = equalFrom;
+			while (equalTo < to && (int) (batch[equalTo] >> 32) == tNode.searchKey) {
+				found.set((int) batch[equalTo]);
+				equalTo++;
+			}
+
+			// Push the right part first so the left part is taken next
+			if (tNode.rightCircle != null && equalTo < to) {
+				nodes[stackSize] = tNode.rightCircle;
+				froms[stackSize] = equalTo;
+				tos[stackSize++] = to;
+			}
+			if (tNode.leftCircle != null && from < equalFrom) {
+				nodes[stackSize] = tNode.leftCircle;
+				froms[stackSize] = from;
+				tos[stackSize++] = equalFrom;
+			}
+		}
+
+		return found;
+	}
+
+	/**
+	 * Finds the first batch entry whose key is not less than a key.
+	 * @param batch sorted entries with the key in the high half
+	 * @param from the first entry of the range
+	 * @param to one past the last entry of the range
+	 * @param searchKey the key to split at
+	 * @return The position of the entry, or to if every key is smaller
+	 */
+	private static int firstAtLeast(long[] batch, int from, int to, int searchKey) {
+		long bound = (long) searchKey << 32;
+		while (from < to) {
+			int middle = (from + to) >>> 1;
+			if (batch[middle] < bound) {
+				from = middle + 1;
 			} else {
-				tNode.rightCircle.highlightFlag = true;
-				treeItem = retrieveItem(tNode.rightCircle, searchKey);
+				to = middle;
 			}
 		}
+		return from;
+	}
 
-		return treeItem;
+	/**
+	 * Copies the shape of the linked nodes under root.
+	 * @return The keys and child links of the tree
+	 */
+	@Override
+	public TreeShape shape() {
+		return TreeShape.of(root, getSize());
+	}
+
+	/**
+	 * Gets the root for a view that reuses the drawing of unchanged
+	 * subtrees. A copy-on-write change copies every node of an older
+	 * epoch before it touches it, and a snapshot is never changed, so a
+	 * node seen after one write still holds the same subtree after the
+	 * next.
+	 * @return The root, or null if the tree is empty or changes its nodes
+	 *         in place
+	 */
+	@Override
+	public TreeNode persistentRoot() {
+		return copyOnWrite || readOnly ? root : null;
 	}
-	
+
 	/**
-	 * Deletes a circle from the tree.
+	 * Searches for a key and records the path taken, for a view that
+	 * highlights it. The trace is sized from the cached tree height, so it
+	 * is allocated once and never grown.
 	 * @param searchKey a unique identifying value
-	 * @throws TreeException if search key cannot be located.
+	 * @return The keys visited and the direction taken at each
 	 */
-	public void deleteItem(Integer searchKey) throws TreeException {
-		root = deleteItem(root, searchKey);
+	@Override
+	public SearchPath searchPath(int searchKey) {
+		int maxLength = height(root);
+		int[] keys = new int[maxLength];
+		long[] rightTurns = new long[(maxLength + 63) >>> 6];
+		int length = 0;
+
+		TreeNode tNode = root;
+		while (tNode != null) {
+			int nodeKey = tNode.searchKey;
+			keys[length] = nodeKey;
+			if (searchKey == nodeKey) {
+				return new SearchPath(keys, rightTurns, length + 1, true);
+			}
+			if (searchKey > nodeKey) {
+				rightTurns[length >>> 6] |= 1L << length;
+				tNode = tNode.rightCircle;
+			} else {
+				tNode = tNode.leftCircle;
+			}
+			length++;
+		}
+
+		return new SearchPath(keys, rightTurns, length, false);
 	}
-	
+
 	/**
-	 * Deletes a circle from the tree.
-	 * @param tNode a tree node 
+	 * Deletes a search key from the tree. A node with two children takes
+	 * the key and payload of its in-order successor, which is then
+	 * unlinked instead.
 	 * @param searchKey a unique identifying value
-	 * @return A tree.TreeNode from within the tree
-	 * @Overload deleteItem()
+	 * @return <code>true</code> if the key was found and deleted
 	 */
-	protected TreeNode deleteItem(TreeNode tNode, Integer searchKey) {
-		TreeNode newSubtree;
-		
+	@Override
+	public boolean deleteItem(int searchKey) {
+		beginWrite();
+		int depth = 0;
+		TreeNode tNode = root;
+
+		while (tNode != null) {
+			int nodeKey = tNode.searchKey;
+			if (searchKey == nodeKey) {
+				break;
+			}
+			push(depth++, tNode);
+			tNode = searchKey < nodeKey ? tNode.leftCircle : tNode.rightCircle;
+		}
+
 		if (tNode == null) {
-			throw new TreeException("tree.TreeException: Item not found");
+			clearPath(depth);
+			return false;
 		}
-		
-		Circle nodeItem = tNode.rootCircle;
-		if (Objects.equals(searchKey, nodeItem.getSearchKey())) {
-			tNode = deleteNode(tNode);
 
-		} else if (searchKey < nodeItem.getSearchKey()) {
-			newSubtree = deleteItem(tNode.leftCircle, searchKey);
-			tNode.leftCircle = newSubtree;
+		int found = -1;
+		if (tNode.leftCircle != null && tNode.rightCircle != null) {
+			found = depth;
+			push(depth++, tNode);
+			TreeNode successor = tNode.rightCircle;
+			while (successor.leftCircle != null) {
+				push(depth++, successor);
+				successor = successor.leftCircle;
+			}
+			tNode = successor;
 		}
 
-		else {
-			newSubtree = deleteItem(tNode.rightCircle, searchKey);
-			tNode.rightCircle = newSubtree;
+		copyPath(depth);
+		if (found >= 0) {
+			TreeNode target = path[found];
+			target.searchKey = tNode.searchKey;
+			if (payloadNodes) {
+				((PayloadNode) target).copyPayload((PayloadNode) tNode);
+			}
 		}
 
-		return tNode;
+		TreeNode child = tNode.leftCircle != null ? tNode.leftCircle : tNode.rightCircle;
+		replaceChild(depth == 0 ? null : path[depth - 1], tNode, child);
+		rebalancePath(depth, -1);
+		publish();
+		return true;
+	}
+
+	/**
+	 * Replaces the contents of the tree with a perfectly balanced tree
+	 * built from sorted keys in linear time. Repeated keys are kept once.
+	 * @param sortedKeys search keys in ascending order
+	 * @throws TreeException if the keys are not in ascending order
+	 */
+	public void bulkLoad(int[] sortedKeys) {
+		beginWrite();
+		TreeNode[] nodes = new TreeNode[sortedKeys.length];
+		int count = 0;
+
+		for (int i = 0; i < sortedKeys.length; i++) {
+			if (i > 0 && sortedKeys[i] <= sortedKeys[i - 1]) {
+				if (sortedKeys[i] < sortedKeys[i - 1]) {
+					throw new TreeException("tree.TreeException: Keys are not sorted");
+				}
+				continue;
+			}
+			nodes[count++] = newNode(sortedKeys[i]);
+		}
+
+		root = link(nodes, 0, count);
+		publish();
 	}
-	
+
 	/**
-	 * Helper method finds and replaces a deleted node. 
-	 * @param tNode A tree.TreeNode from within the tree
-	 * @return A tree.TreeNode from within the tree
+	 * Inserts a batch of search keys. The batch is sorted and merged with
+	 * the in-order nodes of the tree in one pass, and the merged nodes are
+	 * relinked into a perfectly balanced tree, so the whole batch costs
+	 * O(n + m log m) instead of m root-to-leaf walks. Existing nodes are
+	 * reused unless the tree is in copy-on-write mode. A batch that is small
+	 * next to the tree is inserted key by key instead, which is cheaper, and
+	 * a batch with no new keys leaves the tree as it is.
+	 * @param newKeys search keys in any order, repeats allowed
 	 */
-	protected TreeNode deleteNode(TreeNode tNode) {
+	public void insertAll(int[] newKeys) {
+		beginWrite();
+		int[] keys = newKeys.clone();
+		Arrays.sort(keys);
 
-		Circle replacementItem;
+		int batchSize = 0;
+		for (int i = 0; i < keys.length; i++) {
+			if (i == 0 || keys[i] != keys[i - 1]) {
+				keys[batchSize++] = keys[i];
+			}
+		}
 
-		if ((tNode.leftCircle == null) && (tNode.rightCircle == null)) {
-			return null;
+		int treeSize = size(root);
+		int treeDepth = 32 - Integer.numberOfLeadingZeros(treeSize);
+		if ((long) batchSize * treeDepth < treeSize) {
+			for (int i = 0; i < batchSize; i++) {
+				insertItem(keys[i]);
+			}
+			return;
 		}
 
-		else if (tNode.leftCircle == null) {
-			return tNode.rightCircle;
+		TreeNode[] merged = new TreeNode[treeSize + batchSize];
+		int count = 0;
+		int next = 0;
+
+		// Walk the tree in order, merging the batch keys in between
+		TreeNode[] stack = new TreeNode[Math.max(1, height(root))];
+		int stackSize = 0;
+		TreeNode tNode = root;
+		while (tNode != null || stackSize > 0) {
+			while (tNode != null) {
+				stack[stackSize++] = tNode;
+				tNode = tNode.leftCircle;
+			}
+			tNode = stack[--stackSize];
+
+			while (next < batchSize && keys[next] < tNode.searchKey) {
+				merged[count++] = newNode(keys[next++]);
+			}
+			if (next < batchSize && keys[next] == tNode.searchKey) {
+				next++;
+			}
+			merged[count++] = tNode;
+			tNode = tNode.rightCircle;
+		}
+		while (next < batchSize) {
+			merged[count++] = newNode(keys[next++]);
 		}
 
-		else if (tNode.rightCircle == null) {
-			return tNode.leftCircle;
-		} else {
+		if (count == treeSize) {
+			return;   // Every key was already in the tree
+		}
+		for (int i = 0; i < count; i++) {
+			merged[i] = mutable(merged[i]);
+		}
+		root = link(merged, 0, count);
+		publish();
+	}
+
+	/**
+	 * Saves the tree to a compact binary snapshot: a small header followed
+	 * by the keys in preorder, four bytes each.
+	 * @param file the snapshot file, replaced if it exists
+	 * @throws IOException if the file cannot be written
+	 */
+	public void save(Path file) throws IOException {
+		TreeSnapshot.write(file, balanceMode, size(root), traversal(TraversalOrder.PREORDER));
+	}
 
-			replacementItem = findLeftmost(tNode.rightCircle);
-			tNode.rootCircle = replacementItem;
-			tNode.rightCircle = deleteLeftmost(tNode.rightCircle);
+	/**
+	 * Loads a tree saved by save(). The file is memory-mapped and the tree
+	 * is rebuilt with exactly the saved shape in linear time, without
+	 * searching for any key.
+	 * @param file the snapshot file
+	 * @return The loaded tree, with the balance mode it was saved with
+	 * @throws IOException if the file cannot be read or is not a valid snapshot
+	 */
+	public static BinarySearchTree load(Path file) throws IOException {
+		return TreeSnapshot.read(file);
+	}
+
+	/**
+	 * Splits the tree at a key in O(log n). The keys smaller than the split
+	 * key stay in this tree and the rest move to a new tree with the same
+	 * balance mode. An unbalanced tree is first rebuilt balanced in O(n).
+	 * @param searchKey the split key
+	 * @return A tree holding every key greater than or equal to the split key
+	 * @throws UnsupportedOperationException if the tree is a snapshot or in
+	 *         copy-on-write mode
+	 */
+	public BinarySearchTree split(int searchKey) {
+		TreeAlgebra.Split pieces = TreeAlgebra.split(takeRoot(), searchKey);
+		root = pieces.less;
+
+		BinarySearchTree greater = new BinarySearchTree(balanceMode, false, payloadNodes);
+		greater.root = pieces.match == null
+				? pieces.greater
+				: TreeAlgebra.join(null, pieces.match, pieces.greater);
+		return greater;
+	}
+
+	/**
+	 * Joins two trees whose key ranges do not overlap in O(log n). Both
+	 * trees give up their nodes to the result and are left empty.
+	 * @param left A tree whose keys are all smaller than those of the right tree
+	 * @param right A tree whose keys are all larger than those of the left tree
+	 * @return A tree holding the keys of both, with the balance mode of the left tree
+	 * @throws TreeException if the key ranges overlap
+	 * @throws UnsupportedOperationException if either tree is a snapshot or
+	 *         in copy-on-write mode
+	 */
+	public static BinarySearchTree join(BinarySearchTree left, BinarySearchTree right) {
+		checkOperands(left, right);
+		if (!left.isEmpty() && !right.isEmpty() && left.last() >= right.first()) {
+			throw new TreeException("tree.TreeException: Key ranges overlap");
+		}
+		return result(left, TreeAlgebra.join(left.takeRoot(), right.takeRoot()));
+	}
+
+	/**
+	 * Merges two trees into one holding every key of either, in
+	 * O(m log(n / m + 1)) for trees of sizes m &lt;= n. Large trees are
+	 * merged in parallel on the common fork-join pool. Both trees give up
+	 * their nodes to the result and are left empty.
+	 * @param first A tree
+	 * @param second Another tree
+	 * @return The union, with the balance mode of the first tree
+	 * @throws UnsupportedOperationException if either tree is a snapshot or
+	 *         in copy-on-write mode
+	 */
+	public static BinarySearchTree union(BinarySearchTree first, BinarySearchTree second) {
+		checkOperands(first, second);
+		return result(first, TreeAlgebra.union(first.takeRoot(), second.takeRoot()));
+	}
+
+	/**
+	 * Keeps the keys that are in both trees, in O(m log(n / m + 1)) for
+	 * trees of sizes m &lt;= n. Large trees are intersected in parallel on
+	 * the common fork-join pool. Both trees give up their nodes to the
+	 * result and are left empty.
+	 * @param first A tree
+	 * @param second Another tree
+	 * @return The intersection, with the balance mode of the first tree
+	 * @throws UnsupportedOperationException if either tree is a snapshot or
+	 *         in copy-on-write mode
+	 */
+	public static BinarySearchTree intersection(BinarySearchTree first, BinarySearchTree second) {
+		checkOperands(first, second);
+		return result(first, TreeAlgebra.intersection(first.takeRoot(), second.takeRoot()));
+	}
+
+	/**
+	 * Keeps the keys of the first tree that are not in the second, in
+	 * O(m log(n / m + 1)) for trees of sizes m &lt;= n. Large trees are
+	 * handled in parallel on the common fork-join pool. Both trees give up
+	 * their nodes to the result and are left empty.
+	 * @param first The tree whose keys are kept
+	 * @param second The tree whose keys are removed
+	 * @return The difference, with the balance mode of the first tree
+	 * @throws UnsupportedOperationException if either tree is a snapshot or
+	 *         in copy-on-write mode
+	 */
+	public static BinarySearchTree difference(BinarySearchTree first, BinarySearchTree second) {
+		checkOperands(first, second);
+		return result(first, TreeAlgebra.difference(first.takeRoot(), second.takeRoot()));
+	}
+
+	/**
+	 * Checks that two trees may give up their nodes to a set operation.
+	 * @throws IllegalArgumentException if both are the same tree
+	 * @throws UnsupportedOperationException if either tree shares its nodes
+	 */
+	private static void checkOperands(BinarySearchTree first, BinarySearchTree second) {
+		if (first == second) {
+			throw new IllegalArgumentException("A tree cannot be combined with itself");
+		}
+		first.checkInPlace();
+		second.checkInPlace();
+	}
+
+	/**
+	 * Checks that the tree is changed in place. The set operations relink
+	 * nodes that a snapshot may share.
+	 * @throws UnsupportedOperationException if the tree shares its nodes
+	 */
+	private void checkInPlace() {
+		if (readOnly) {
+			throw new UnsupportedOperationException("A snapshot cannot be changed");
+		}
+		if (copyOnWrite) {
+			throw new UnsupportedOperationException("Split and join need copy-on-write off");
+		}
+	}
+
+	/**
+	 * Takes the nodes out of the tree, leaving it empty. An unbalanced
+	 * tree is relinked into a perfectly balanced one first, since split
+	 * and join rely on AVL heights.
+	 * @return The root of a balanced subtree, or null for an empty tree
+	 */
+	private TreeNode takeRoot() {
+		checkInPlace();
+		TreeNode tNode = root;
+		root = null;
+		if (tNode == null || balanceMode == BalanceMode.AVL) {
 			return tNode;
 		}
+
+		TreeNode[] nodes = new TreeNode[size(tNode)];
+		TreeNode[] stack = new TreeNode[height(tNode)];
+		int count = 0;
+		int stackSize = 0;
+		while (tNode != null || stackSize > 0) {
+			while (tNode != null) {
+				stack[stackSize++] = tNode;
+				tNode = tNode.leftCircle;
+			}
+			tNode = stack[--stackSize];
+			nodes[count++] = tNode;
+			tNode = tNode.rightCircle;
+		}
+		return link(nodes, 0, count);
+	}
+
+	private static BinarySearchTree result(BinarySearchTree first, TreeNode resultRoot) {
+		BinarySearchTree tree = new BinarySearchTree(first.balanceMode, false, first.payloadNodes);
+		tree.root = resultRoot;
+		return tree;
 	}
 
 	/**
-	 * Helper method for searching and deleting left-side nodes.
-	 * @param tNode
-	 * @return
+	 * Links a sorted run of nodes into a perfectly balanced subtree. The
+	 * recursion depth is log2 of the run length.
+	 * @param nodes nodes in ascending key order
+	 * @param from the first node of the run
+	 * @param to one past the last node of the run
+	 * @return The root of the subtree, or null for an empty run
 	 */
-	protected Circle findLeftmost(TreeNode tNode) {
-		if (tNode.leftCircle == null) {
-			return tNode.rootCircle;
+	private static TreeNode link(TreeNode[] nodes, int from, int to) {
+		if (from >= to) {
+			return null;
 		}
-		return findLeftmost(tNode.leftCircle);
+
+		int middle = (from + to) >>> 1;
+		TreeNode tNode = nodes[middle];
+		tNode.leftCircle = link(nodes, from, middle);
+		tNode.rightCircle = link(nodes, middle + 1, to);
+		update(tNode);
+		return tNode;
 	}
-	
+
 	/**
-	 * Helper method for searching and deleting right-side nodes.
-	 * @param tNode
-	 * @return
+	 * Starts a change to the tree. In copy-on-write mode every node that
+	 * exists so far becomes shared and is copied before it changes.
+	 * @throws UnsupportedOperationException if the tree is a snapshot
 	 */
-	protected TreeNode deleteLeftmost(TreeNode tNode) {
-		if (tNode.leftCircle == null) {
-			return tNode.rightCircle;
+	private void beginWrite() {
+		if (readOnly) {
+			throw new UnsupportedOperationException("A snapshot cannot be changed");
 		}
-		tNode.leftCircle = deleteLeftmost(tNode.leftCircle);
+		if (copyOnWrite) {
+			epoch++;
+		}
+	}
+
+	/**
+	 * Makes a finished change visible to snapshot().
+	 */
+	private void publish() {
+		if (copyOnWrite) {
+			published = root;
+		}
+	}
+
+	/**
+	 * Creates a leaf owned by the current write, with a payload if the
+	 * tree carries them.
+	 * @param searchKey the search key of the leaf
+	 * @return The new node
+	 */
+	private TreeNode newNode(int searchKey) {
+		TreeNode tNode = payloadNodes ? new PayloadNode(searchKey) : new TreeNode(searchKey, null, null);
+		tNode.epoch = epoch;
 		return tNode;
 	}
-	
+
 	/**
-	 * Resets the color to the default.
-	 * @param tNode
+	 * Gets a node that the current write may change. In copy-on-write mode
+	 * a shared node is copied; otherwise the node itself is returned.
+	 * @param tNode A tree.TreeNode from within the tree
+	 * @return The node or its copy, still to be linked in by the caller
 	 */
-	public void setResetColor(TreeNode tNode) {
-		 resetColor(tNode);
+	private TreeNode mutable(TreeNode tNode) {
+		if (!copyOnWrite || tNode.epoch == epoch) {
+			return tNode;
+		}
+
+		TreeNode copy = newNode(tNode.searchKey);
+		copy.leftCircle = tNode.leftCircle;
+		copy.rightCircle = tNode.rightCircle;
+		copy.height = tNode.height;
+		copy.size = tNode.size;
+		if (payloadNodes) {
+			((PayloadNode) copy).copyPayload((PayloadNode) tNode);
+		}
+		return copy;
 	}
-	
-	
+
 	/**
-	 * Resets the color to the default.
-	 * @param tNode A node in the tree
-	 * @Overload
+	 * Replaces the recorded path with copies the current write may change,
+	 * linking each copy under the copy of its parent. Does nothing unless
+	 * the tree is in copy-on-write mode.
+	 * @param depth the number of nodes on the recorded path
 	 */
-	protected void resetColor(TreeNode tNode) {
-		if (tNode != null) {
-			tNode.highlightFlag = false;
+	private void copyPath(int depth) {
+		if (!copyOnWrite) {
+			return;
+		}
+		for (int i = 0; i < depth; i++) {
+			TreeNode copy = mutable(path[i]);
+			replaceChild(i == 0 ? null : path[i - 1], path[i], copy);
+			path[i] = copy;
+		}
+	}
+
+	/**
+	 * Records a node on the current insert or delete path.
+	 * @param depth the position of the node on the path
+	 * @param tNode A tree.TreeNode from within the tree
+	 */
+	private void push(int depth, TreeNode tNode) {
+		if (depth == path.length) {
+			path = Arrays.copyOf(path, depth * 2);
+		}
+		path[depth] = tNode;
+	}
+
+	/**
+	 * Drops the recorded path when a write ends without a change, so the
+	 * reused array keeps no nodes reachable.
+	 * @param depth the number of nodes on the recorded path
+	 */
+	private void clearPath(int depth) {
+		Arrays.fill(path, 0, depth, null);
+	}
+
+	/**
+	 * Replaces the link from a parent to one of its children.
+	 * @param parent the parent node, or null if the child is the root
+	 * @param oldChild the child being replaced
+	 * @param newChild the replacement subtree
+	 */
+	private void replaceChild(TreeNode parent, TreeNode oldChild, TreeNode newChild) {
+		if (parent == null) {
+			root = newChild;
+		} else if (parent.leftCircle == oldChild) {
+			parent.leftCircle = newChild;
+		} else {
+			parent.rightCircle = newChild;
+		}
+	}
 
-			if (tNode.leftCircle != null) {
-				tNode.leftCircle.highlightFlag = false;
+	/**
+	 * Walks the recorded path bottom-up after an insert or delete,
+	 * refreshing the cached height and size of every node on it and, in
+	 * AVL mode, rotating wherever a node has become unbalanced. Once a node
+	 * keeps its height without a rotation, no node above it can change
+	 * height or balance, so the rest of the path only has its size
+	 * adjusted.
+	 * @param depth the number of nodes on the recorded path
+	 * @param sizeChange the number of keys added, 1 or -1
+	 */
+	private void rebalancePath(int depth, int sizeChange) {
+		int i = depth - 1;
+		for (; i >= 0; i--) {
+			TreeNode tNode = path[i];
+			path[i] = null;
+			int oldHeight = tNode.height;
+
+			TreeNode subtree = tNode;
+			if (balanceMode == BalanceMode.NONE) {
+				update(tNode);
+			} else {
+				subtree = balance(tNode);
 			}
 
-			if (tNode.rightCircle != null) {
-				tNode.rightCircle.highlightFlag = false;
+			if (subtree != tNode) {
+				replaceChild(i == 0 ? null : path[i - 1], tNode, subtree);
+				continue;
 			}
-			resetColor(tNode.leftCircle);
-			resetColor(tNode.rightCircle);
+			if (tNode.height == oldHeight) {
+				i--;
+				break;
+			}
+		}
+
+		for (; i >= 0; i--) {
+			path[i].size += sizeChange;
+			path[i] = null;
 		}
 	}
 
 	/**
-	 * Gets the height of the tree
+	 * Restores the AVL property at a node whose subtree just changed.
+	 * Rotations relink whole nodes rather than swapping keys.
+	 * @param tNode A tree.TreeNode on the insert or delete path
+	 * @return The new root of the subtree
+	 */
+	private TreeNode balance(TreeNode tNode) {
+		update(tNode);
+		int balanceFactor = height(tNode.leftCircle) - height(tNode.rightCircle);
+
+		if (balanceFactor > 1) {
+			if (height(tNode.leftCircle.leftCircle) < height(tNode.leftCircle.rightCircle)) {
+				tNode.leftCircle = rotateLeft(tNode.leftCircle);
+			}
+			return rotateRight(tNode);
+		}
+
+		if (balanceFactor < -1) {
+			if (height(tNode.rightCircle.rightCircle) < height(tNode.rightCircle.leftCircle)) {
+				tNode.rightCircle = rotateRight(tNode.rightCircle);
+			}
+			return rotateLeft(tNode);
+		}
+
+		return tNode;
+	}
+
+	/**
+	 * Rotates a subtree to the right, lifting its left child.
+	 * @param tNode the root of the subtree
+	 * @return The new root of the subtree
+	 */
+	private TreeNode rotateRight(TreeNode tNode) {
+		tNode = mutable(tNode);
+		tNode.leftCircle = mutable(tNode.leftCircle);
+		return TreeNode.rotateRight(tNode);
+	}
+
+	/**
+	 * Rotates a subtree to the left, lifting its right child.
+	 * @param tNode the root of the subtree
+	 * @return The new root of the subtree
+	 */
+	private TreeNode rotateLeft(TreeNode tNode) {
+		tNode = mutable(tNode);
+		tNode.rightCircle = mutable(tNode.rightCircle);
+		return TreeNode.rotateLeft(tNode);
+	}
+
+	@Override
+	public int getHeight() {
+		return height(root);
+	}
+
+	@Override
+	public int getSize() {
+		return size(root);
+	}
+
+	/**
+	 * Gets the height of the tree from the height cached in the node.
 	 * @param root
 	 * @return
 	 */
 	public int getHeight(TreeNode root) {
-		if (root == null)
-			return 0;
-		return Math.max(getHeight(root.leftCircle), getHeight(root.rightCircle)) + 1;
+		return height(root);
 	}
-	
+
 	/**
-	 * Gets the size of the tree
+	 * Gets the size of the tree from the size cached in the node.
 	 * @param root
 	 * @return
 	 */
 	public int getSize(TreeNode root) {
-		if (root == null)
+		return size(root);
+	}
+
+	/**
+	 * Counts the keys that are smaller than a given key.
+	 * @param searchKey any value, need not be in the tree
+	 * @return The number of keys less than the search key
+	 */
+	public int rank(int searchKey) {
+		int rank = 0;
+		TreeNode tNode = root;
+
+		while (tNode != null) {
+			if (searchKey < tNode.searchKey) {
+				tNode = tNode.leftCircle;
+			} else if (searchKey > tNode.searchKey) {
+				rank += size(tNode.leftCircle) + 1;
+				tNode = tNode.rightCircle;
+			} else {
+				return rank + size(tNode.leftCircle);
+			}
+		}
+
+		return rank;
+	}
+
+	/**
+	 * Finds the key with a given rank, the k-th smallest key counting from zero.
+	 * @param rank the number of keys that are smaller than the wanted key
+	 * @return The search key with that rank
+	 * @throws TreeException if the rank is negative or not less than the tree size
+	 */
+	public int select(int rank) {
+		if (rank < 0 || rank >= size(root)) {
+			throw new TreeException("tree.TreeException: Rank out of range");
+		}
+
+		TreeNode tNode = root;
+		while (true) {
+			int leftSize = size(tNode.leftCircle);
+			if (rank < leftSize) {
+				tNode = tNode.leftCircle;
+			} else if (rank > leftSize) {
+				rank -= leftSize + 1;
+				tNode = tNode.rightCircle;
+			} else {
+				return tNode.searchKey;
+			}
+		}
+	}
+
+	/**
+	 * Counts the keys within a closed range.
+	 * @param low the smallest key counted
+	 * @param high the largest key counted
+	 * @return The number of keys between low and high, inclusive
+	 */
+	public int countInRange(int low, int high) {
+		if (low > high) {
 			return 0;
-		return (getSize(root.leftCircle) + getSize(root.rightCircle)) + 1;
+		}
+		return countAtMost(high) - rank(low);
+	}
+
+	/**
+	 * Counts the keys that are smaller than or equal to a given key.
+	 * @param searchKey any value, need not be in the tree
+	 * @return The number of keys less than or equal to the search key
+	 */
+	int countAtMost(int searchKey) {
+		int count = 0;
+		TreeNode tNode = root;
+
+		while (tNode != null) {
+			if (searchKey < tNode.searchKey) {
+				tNode = tNode.leftCircle;
+			} else {
+				count += size(tNode.leftCircle) + 1;
+				tNode = tNode.rightCircle;
+			}
+		}
+
+		return count;
 	}
-	
+
+	/**
+	 * Gets the smallest key in the tree.
+	 * @return The first search key
+	 * @throws TreeException if the tree is empty
+	 */
+	public int first() {
+		return firstNode(getRoot()).searchKey;
+	}
+
+	/**
+	 * Gets the largest key in the tree.
+	 * @return The last search key
+	 * @throws TreeException if the tree is empty
+	 */
+	public int last() {
+		return lastNode(getRoot()).searchKey;
+	}
+
+	/**
+	 * Gets the largest key less than or equal to the given key.
+	 * @param searchKey any value, need not be in the tree
+	 * @return The floor key
+	 * @throws TreeException if no key is less than or equal to the search key
+	 */
+	public int floor(int searchKey) {
+		return keyOf(floorNode(searchKey));
+	}
+
+	/**
+	 * Gets the smallest key greater than or equal to the given key.
+	 * @param searchKey any value, need not be in the tree
+	 * @return The ceiling key
+	 * @throws TreeException if no key is greater than or equal to the search key
+	 */
+	public int ceiling(int searchKey) {
+		return keyOf(ceilingNode(searchKey));
+	}
+
+	/**
+	 * Gets the smallest key strictly greater than the given key.
+	 * @param searchKey any value, need not be in the tree
+	 * @return The successor key
+	 * @throws TreeException if no key is greater than the search key
+	 */
+	public int higher(int searchKey) {
+		return keyOf(higherNode(searchKey));
+	}
+
+	/**
+	 * Gets the largest key strictly less than the given key.
+	 * @param searchKey any value, need not be in the tree
+	 * @return The predecessor key
+	 * @throws TreeException if no key is less than the search key
+	 */
+	public int lower(int searchKey) {
+		return keyOf(lowerNode(searchKey));
+	}
+
+	/**
+	 * Gets a live view of the keys as a navigable set. The view reads and
+	 * writes through to the tree; its range queries and iterators visit
+	 * only the nodes on the way to the range and the keys inside it.
+	 * @return A navigable set backed by the tree
+	 */
+	public NavigableSet<Integer> keySet() {
+		return new TreeKeySet(this);
+	}
+
+	/**
+	 * Gets a live view of the keys from low, inclusive, to high, exclusive.
+	 * @param low the smallest key of the view
+	 * @param high the key just past the view
+	 * @return A navigable set backed by the tree
+	 * @throws IllegalArgumentException if low is greater than high
+	 */
+	public NavigableSet<Integer> subSet(int low, int high) {
+		return keySet().subSet(low, true, high, false);
+	}
+
+	/**
+	 * Finds the node holding a key.
+	 * @param searchKey a unique identifying value
+	 * @return The node with the key, or null if the key is not in the tree
+	 */
+	TreeNode findNode(int searchKey) {
+		TreeNode tNode = root;
+		while (tNode != null && tNode.searchKey != searchKey) {
+			tNode = searchKey < tNode.searchKey ? tNode.leftCircle : tNode.rightCircle;
+		}
+		return tNode;
+	}
+
+	/**
+	 * Finds the node with the largest key less than or equal to a key.
+	 * @param searchKey any value
+	 * @return The floor node, or null if there is none
+	 */
+	TreeNode floorNode(int searchKey) {
+		TreeNode best = null;
+		TreeNode tNode = root;
+		while (tNode != null) {
+			if (searchKey < tNode.searchKey) {
+				tNode = tNode.leftCircle;
+			} else if (searchKey > tNode.searchKey) {
+				best = tNode;
+				tNode = tNode.rightCircle;
+			} else {
+				return tNode;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Finds the node with the smallest key greater than or equal to a key.
+	 * @param searchKey any value
+	 * @return The ceiling node, or null if there is none
+	 */
+	TreeNode ceilingNode(int searchKey) {
+		TreeNode best = null;
+		TreeNode tNode = root;
+		while (tNode != null) {
+			if (searchKey > tNode.searchKey) {
+				tNode = tNode.rightCircle;
+			} else if (searchKey < tNode.searchKey) {
+				best = tNode;
+				tNode = tNode.leftCircle;
+			} else {
+				return tNode;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Finds the node with the smallest key strictly greater than a key.
+	 * @param searchKey any value
+	 * @return The successor node, or null if there is none
+	 */
+	TreeNode higherNode(int searchKey) {
+		TreeNode best = null;
+		TreeNode tNode = root;
+		while (tNode != null) {
+			if (searchKey < tNode.searchKey) {
+				best = tNode;
+				tNode = tNode.leftCircle;
+			} else {
+				tNode = tNode.rightCircle;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Finds the node with the largest key strictly less than a key.
+	 * @param searchKey any value
+	 * @return The predecessor node, or null if there is none
+	 */
+	TreeNode lowerNode(int searchKey) {
+		TreeNode best = null;
+		TreeNode tNode = root;
+		while (tNode != null) {
+			if (searchKey > tNode.searchKey) {
+				best = tNode;
+				tNode = tNode.rightCircle;
+			} else {
+				tNode = tNode.leftCircle;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Finds the leftmost node of a subtree.
+	 * @param tNode the root of the subtree, may be null
+	 * @return The node with the smallest key, or null for an empty subtree
+	 */
+	static TreeNode firstNode(TreeNode tNode) {
+		if (tNode != null) {
+			while (tNode.leftCircle != null) {
+				tNode = tNode.leftCircle;
+			}
+		}
+		return tNode;
+	}
+
+	/**
+	 * Finds the rightmost node of a subtree.
+	 * @param tNode the root of the subtree, may be null
+	 * @return The node with the largest key, or null for an empty subtree
+	 */
+	static TreeNode lastNode(TreeNode tNode) {
+		if (tNode != null) {
+			while (tNode.rightCircle != null) {
+				tNode = tNode.rightCircle;
+			}
+		}
+		return tNode;
+	}
+
+	/**
+	 * Gets the key of a node found by a nearest-key query.
+	 * @param tNode A tree node or null
+	 * @return The search key
+	 * @throws TreeException if there is no node
+	 */
+	private static int keyOf(TreeNode tNode) {
+		if (tNode == null) {
+			throw new TreeException("tree.TreeException: No such key");
+		}
+		return tNode.searchKey;
+	}
+
+	/**
+	 * Compiles the keys into an immutable, cache-friendly index for trees
+	 * that are built once and then only searched. The index does not
+	 * follow later changes to the tree.
+	 * @return A frozen copy of the keys
+	 */
+	public FrozenIndex freeze() {
+		int[] sortedKeys = new int[size(root)];
+		PrimitiveIterator.OfInt inorder = traversal(TraversalOrder.INORDER);
+		for (int i = 0; i < sortedKeys.length; i++) {
+			sortedKeys[i] = inorder.nextInt();
+		}
+		return new FrozenIndex(sortedKeys);
+	}
+
+	/**
+	 * Creates a spliterator over the keys in ascending order. It splits by
+	 * subtree and reports its keys as sorted, distinct and exactly sized.
+	 * @return A spliterator over the search keys
+	 */
+	public Spliterator.OfInt spliterator() {
+		return new TreeSpliterator(root);
+	}
+
+	/**
+	 * Streams the keys in ascending order. Call parallel() on the result
+	 * to spread the work over the common fork-join pool. The tree must not
+	 * be changed while the stream is running.
+	 * @return A stream of the search keys
+	 */
+	public IntStream keys() {
+		return StreamSupport.intStream(this::spliterator,
+				TreeSpliterator.CHARACTERISTICS, false);
+	}
+
+	/**
+	 * Starts a lazy traversal of the keys. A copy-on-write tree or a
+	 * snapshot shares its nodes with readers, so a Morris walk, which
+	 * threads links in place, runs as a stack-based in-order walk instead.
+	 * @param order the traversal order
+	 * @return An iterator over the search keys in that order
+	 */
+	@Override
+	public PrimitiveIterator.OfInt traversal(TraversalOrder order) {
+		if (order == TraversalOrder.MORRIS_INORDER && (copyOnWrite || readOnly)) {
+			order = TraversalOrder.INORDER;
+		}
+		return super.traversal(order);
+	}
+
+	@Override
+	public void makeEmpty() {
+		beginWrite();
+		root = null;
+		publish();
+	}
+
 	@Override
-	public void setRootItem(Circle newItem) {
-		root = new TreeNode(newItem, null, null);
+	public void setRootItem(int newKey) {
+		beginWrite();
+		root = newNode(newKey);
+		publish();
 	}
 }
@@ -1,17 +1,19 @@
 package tree;
 
-import shape.Circle;
+import java.util.PrimitiveIterator;
 
 /**
- * An abstract base class for a binary tree.
+ * An abstract base class for a binary tree. Subclasses that store their nodes
+ * as linked tree.TreeNode objects keep them under root; subclasses with their
+ * own storage leave root null and override the methods that read it.
  * @author Eric Canull
  */
-public abstract class BinaryTreeBasis {
+public abstract class BinaryTreeBasis implements TreeEngine {
 
 	/**
 	 * Inherited by the concrete BST class.
 	 */
-	public TreeNode root;
+	protected TreeNode root;
 	
 	/**
 	 * An abstract base class for the BST.
@@ -22,11 +24,11 @@ public abstract class BinaryTreeBasis {
 	
 	/**
 	 * An abstract base class for the BST.
-	 * @param rootCircle
+	 * @param rootKey the search key of the root node
 	 * @Overload Default constructor
 	 */
-	public BinaryTreeBasis(Circle rootCircle) {
-		root = new TreeNode(rootCircle, null, null);
+	public BinaryTreeBasis(int rootKey) {
+		root = new TreeNode(rootKey, null, null);
 	}
 	
 	/**
@@ -46,7 +48,7 @@ public abstract class BinaryTreeBasis {
 
 	/**
 	 * Gets the root item.
-	 * @return A shape.Circle object representing the tree root
+	 * @return A tree.TreeNode representing the tree root
 	 * @throws TreeException
 	 */
 	public TreeNode getRoot() throws TreeException {
@@ -59,8 +61,50 @@ public abstract class BinaryTreeBasis {
 	
 	/**
 	 * Sets the root item. 
-	 * @param newCircle a shape.Circle object with a tree search key
+	 * @param newKey the search key of the new root node
 	 */
-	public abstract void setRootItem(Circle newCircle);
+	public abstract void setRootItem(int newKey);
 
-}
\ No newline at end of file
+	/**
+	 * Inserts a new search key into the tree. A key that is already in
+	 * the tree is ignored.
+	 * @param searchKey a unique identifying value
+	 */
+	public abstract void insertItem(int searchKey);
+
+	/**
+	 * Retrieves a search key from the tree.
+	 * @param searchKey a unique identifying value
+	 * @return <code>true</code> if the key is in the tree
+	 */
+	public abstract boolean retrieveItem(int searchKey);
+
+	/**
+	 * Deletes a search key from the tree.
+	 * @param searchKey a unique identifying value
+	 * @return <code>true</code> if the key was found and deleted
+	 */
+	public abstract boolean deleteItem(int searchKey);
+
+	/**
+	 * Gets the number of keys in the tree.
+	 * @return The tree size
+	 */
+	public abstract int getSize();
+
+	/**
+	 * Gets the number of levels in the tree.
+	 * @return The tree height, zero for an empty tree
+	 */
+	public abstract int getHeight();
+
+	/**
+	 * Starts a lazy traversal of the keys.
+	 * @param order the traversal order
+	 * @return An iterator over the search keys in that order
+	 */
+	public PrimitiveIterator.OfInt traversal(TraversalOrder order) {
+		return new NodeTraversal(root, order);
+	}
+
+}
@@ -0,0 +1,529 @@
+package tree;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Binary search tree that many threads may search and change at once. The
+ * tree is external: keys live only in the leaves, and the internal nodes
+ * just route a search left or right. An insert replaces a leaf with a new
+ * routing node over two leaves and locks only the parent; a delete lifts
+ * the sibling of a leaf into the grandparent and locks only the
+ * grandparent and the parent. Each writer checks under its locks that the
+ * nodes it found are still linked as it saw them and starts over if not,
+ * so writes in different parts of the tree run in parallel. Searches take
+ * no locks and never wait for a writer.
+ *
+ * Two sentinel keys larger than any int keep every real leaf below a
+ * grandparent, so a delete never has to special-case the root.
+ *
+ * The tree is kept balanced the way a scapegoat tree is. An insert that
+ * lands more than about twice as deep as a balanced tree would be walks
+ * back up to the lowest subtree that is too tall for its number of keys,
+ * locks it from the top down and swaps in a balanced copy built over the
+ * same leaves. The old routing nodes are marked removed, so a writer that
+ * was waiting on one of them starts over in the new subtree, while a
+ * search still inside the old one reads the keys it held. Rebuilds cost
+ * amortized O(log n) per insert, so keys arriving in sorted order keep
+ * every operation O(log n).
+ *
+ * Traversals are weakly consistent: they never fail
+ * because of a concurrent write but may or may not reflect it. Since the
+ * keys are all in the leaves, every depth-first order lists them in
+ * ascending order.
+ * @author Eric Canull
+ * @version 1.0
+ */
+public final class ConcurrentBinaryTree extends BinaryTreeBasis {
+
+	// Sentinel keys, larger than any int key
+	private static final long INFINITY_1 = (long) Integer.MAX_VALUE + 1;
+	private static final long INFINITY_2 = (long) Integer.MAX_VALUE + 2;
+
+	/**
+	 * The routing node over the sentinels. Real keys all sit in its left
+	 * subtree, which is a lone sentinel leaf when the tree is empty.
+	 */
+	private final Node sentinel;
+
+	private final LongAdder size = new LongAdder();
+
+	/**
+	 * Binary search tree that many threads may search and change at once.
+	 */
+	public ConcurrentBinaryTree() {
+		sentinel = new Node(INFINITY_2, new Node(INFINITY_1), new Node(INFINITY_2));
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return sentinel.left.leaf;
+	}
+
+	/**
+	 * Deletes every key. Waits for the writes running in the tree to finish
+	 * and sends the writes that start meanwhile into the new empty tree, so
+	 * it may run at the same time as other writes.
+	 */
+	@Override
+	public void makeEmpty() {
+		sentinel.lock();
+		try {
+			List<Node> routers = new ArrayList<>();
+			List<Node> leaves = new ArrayList<>();
+			lockSubtree(sentinel.left, routers, leaves);
+			try {
+				for (Node router : routers) {
+					router.removed = true;
+				}
+				sentinel.left = new Node(INFINITY_1);
+				// Every leaf but the sentinel leaf held a key
+				size.add(1 - leaves.size());
+			} finally {
+				unlockAll(routers);
+			}
+		} finally {
+			sentinel.unlock();
+		}
+	}
+
+	/**
+	 * A concurrent tree has no tree.TreeNode objects to hand out.
+	 * @throws TreeException if the tree is empty
+	 * @throws UnsupportedOperationException otherwise
+	 */
+	@Override
+	public TreeNode getRoot() throws TreeException {
+		if (isEmpty()) {
+			throw new TreeException("tree.TreeException: Empty Tree");
+		}
+		throw new UnsupportedOperationException("A concurrent tree has no node objects");
+	}
+
+	@Override
+	public void setRootItem(int newKey) {
+		makeEmpty();
+		insertItem(newKey);
+	}
+
+	@Override
+	public void insertItem(int searchKey) {
+		while (true) {
+			Node parent = sentinel;
+			Node leaf = parent.left;
+			int depth = 1;
+			while (!leaf.leaf) {
+				parent = leaf;
+				leaf = child(leaf, searchKey);
+				depth++;
+			}
+
+			if (leaf.key == searchKey) {
+				return;
+			}
+
+			Node newLeaf = new Node(searchKey);
+			Node router = searchKey < leaf.key
+					? new Node(leaf.key, newLeaf, leaf)
+					: new Node(searchKey, leaf, newLeaf);
+
+			boolean linked;
+			parent.lock();
+			try {
+				linked = !parent.removed && child(parent, searchKey) == leaf;
+				if (linked) {
+					setChild(parent, searchKey, router);
+					size.increment();
+				}
+			} finally {
+				parent.unlock();
+			}
+
+			if (linked) {
+				// The new leaf is one level below the one it split
+				if (depth + 1 > heightLimit(size.sum() + 1)) {
+					rebalance(searchKey);
+				}
+				return;
+			}
+			// The parent changed under us: search again
+		}
+	}
+
+	/**
+	 * Retrieves a search key from the tree without taking any lock.
+	 * @param searchKey a unique identifying value
+	 * @return <code>true</code> if the key is in the tree
+	 */
+	@Override
+	public boolean retrieveItem(int searchKey) {
+		Node tNode = sentinel.left;
+		while (!tNode.leaf) {
+			tNode = child(tNode, searchKey);
+		}
+		return tNode.key == searchKey;
+	}
+
+	@Override
+	public boolean deleteItem(int searchKey) {
+		while (true) {
+			Node grandparent = null;
+			Node parent = sentinel;
+			Node leaf = parent.left;
+			while (!leaf.leaf) {
+				grandparent = parent;
+				parent = leaf;
+				leaf = child(leaf, searchKey);
+			}
+
+			if (leaf.key != searchKey) {
+				return false;
+			}
+
+			// A node is always locked before its descendants, so two
+			// writers cannot wait on each other
+			grandparent.lock();
+			try {
+				parent.lock();
+				try {
+					if (!grandparent.removed && !parent.removed
+							&& child(grandparent, searchKey) == parent
+							&& child(parent, searchKey) == leaf) {
+						Node sibling = parent.left == leaf ? parent.right : parent.left;
+						setChild(grandparent, searchKey, sibling);
+						parent.removed = true;
+						size.decrement();
+						return true;
+					}
+				} finally {
+					parent.unlock();
+				}
+			} finally {
+				grandparent.unlock();
+			}
+			// The grandparent or parent changed under us: search again
+		}
+	}
+
+	/**
+	 * Gets the number of keys. Exact when no write is running.
+	 * @return The tree size
+	 */
+	@Override
+	public int getSize() {
+		return size.intValue();
+	}
+
+	/**
+	 * Gets the number of levels down to the deepest key, counting routing
+	 * nodes and leaves below the sentinel root. Walks the whole tree, so it
+	 * costs O(n); exact when no write is running.
+	 * @return The tree height, zero for an empty tree
+	 */
+	@Override
+	public int getHeight() {
+		if (isEmpty()) {
+			return 0;
+		}
+
+		Node[] stack = new Node[16];
+		int[] depths = new int[16];
+		int stackSize = 0;
+		int height = 0;
+
+		stack[stackSize] = sentinel.left;
+		depths[stackSize++] = 1;
+		while (stackSize > 0) {
+			Node tNode = stack[--stackSize];
+			int depth = depths[stackSize];
+			if (tNode.leaf) {
+				if (tNode.key <= Integer.MAX_VALUE) {
+					height = Math.max(height, depth);
+				}
+				continue;
+			}
+
+			if (stackSize + 2 > stack.length) {
+				stack = Arrays.copyOf(stack, stack.length * 2);
+				depths = Arrays.copyOf(depths, depths.length * 2);
+			}
+			stack[stackSize] = tNode.left;
+			depths[stackSize++] = depth + 1;
+			stack[stackSize] = tNode.right;
+			depths[stackSize++] = depth + 1;
+		}
+
+		return height;
+	}
+
+	@Override
+	public PrimitiveIterator.OfInt traversal(TraversalOrder order) {
+		return new LeafTraversal(order);
+	}
+
+	/**
+	 * Gets the tallest a subtree may grow before it is rebuilt, about twice
+	 * the height of a balanced subtree over the same leaves.
+	 * @param leaves the number of leaves in the subtree
+	 * @return The height limit, counting the leaf level
+	 */
+	private static int heightLimit(long leaves) {
+		return 2 * (64 - Long.numberOfLeadingZeros(leaves)) + 1;
+	}
+
+	/**
+	 * Rebuilds the lowest subtree on the path to a key that is too tall for
+	 * its number of leaves. The leaves are counted without locks, so the
+	 * choice may be off under concurrent writes; that only makes the
+	 * rebuild more or less useful, never wrong.
+	 * @param searchKey the key of a leaf that went in too deep
+	 */
+	private void rebalance(int searchKey) {
+		List<Node> path = new ArrayList<>();
+		Node tNode = sentinel;
+		while (!tNode.leaf) {
+			path.add(tNode);
+			tNode = child(tNode, searchKey);
+		}
+
+		// Walk back up, adding the leaves of each sibling subtree
+		long leaves = 1;
+		Node below = tNode;
+		for (int i = path.size() - 1; i >= 1; i--) {
+			Node router = path.get(i);
+			leaves += countLeaves(router.left == below ? router.right : router.left);
+			int height = path.size() - i + 1;
+			if (height > heightLimit(leaves)) {
+				rebuild(path.get(i - 1), router);
+				return;
+			}
+			below = router;
+		}
+	}
+
+	/**
+	 * Counts the leaves of a subtree without taking any lock.
+	 */
+	private static long countLeaves(Node subtree) {
+		ArrayDeque<Node> pending = new ArrayDeque<>();
+		pending.push(subtree);
+		long leaves = 0;
+		while (!pending.isEmpty()) {
+			Node tNode = pending.pop();
+			if (tNode.leaf) {
+				leaves++;
+			} else {
+				pending.push(tNode.left);
+				pending.push(tNode.right);
+			}
+		}
+		return leaves;
+	}
+
+	/**
+	 * Replaces a subtree with a balanced one over the same leaves. Gives up
+	 * if the subtree is no longer linked under the parent.
+	 * @param parent the routing node above the subtree
+	 * @param subtree the routing node to rebuild from
+	 */
+	private void rebuild(Node parent, Node subtree) {
+		parent.lock();
+		try {
+			if (parent.removed || (parent.left != subtree && parent.right != subtree)) {
+				return;
+			}
+
+			List<Node> routers = new ArrayList<>();
+			List<Node> leaves = new ArrayList<>();
+			lockSubtree(subtree, routers, leaves);
+			try {
+				Node balanced = build(leaves, 0, leaves.size());
+				for (Node router : routers) {
+					router.removed = true;
+				}
+				if (parent.left == subtree) {
+					parent.left = balanced;
+				} else {
+					parent.right = balanced;
+				}
+			} finally {
+				unlockAll(routers);
+			}
+		} finally {
+			parent.unlock();
+		}
+	}
+
+	/**
+	 * Locks every routing node of a subtree whose parent is locked. Each
+	 * node is locked before its children are read, so the locks follow
+	 * the same top-down order as every other writer's, and the subtree
+	 * cannot change once they are all held.
+	 * @param subtree the subtree root
+	 * @param routers receives the routing nodes, locked
+	 * @param leaves receives the leaves in ascending key order
+	 */
+	private static void lockSubtree(Node subtree, List<Node> routers, List<Node> leaves) {
+		ArrayDeque<Node> pending = new ArrayDeque<>();
+		pending.push(subtree);
+		while (!pending.isEmpty()) {
+			Node tNode = pending.pop();
+			if (tNode.leaf) {
+				leaves.add(tNode);
+				continue;
+			}
+			tNode.lock();
+			routers.add(tNode);
+			pending.push(tNode.right);
+			pending.push(tNode.left);
+		}
+	}
+
+	private static void unlockAll(List<Node> routers) {
+		for (Node router : routers) {
+			router.unlock();
+		}
+	}
+
+	/**
+	 * Builds a balanced routing tree over a run of leaves. Leaves are never
+	 * changed, so the new tree shares them with the old one.
+	 * @param leaves the leaves in ascending key order
+	 * @param from the first leaf
+	 * @param to one past the last leaf
+	 * @return The subtree root
+	 */
+	private static Node build(List<Node> leaves, int from, int to) {
+		if (to - from == 1) {
+			return leaves.get(from);
+		}
+		int middle = (from + to) >>> 1;
+		return new Node(leaves.get(middle).key, build(leaves, from, middle), build(leaves, middle, to));
+	}
+
+	/**
+	 * Gets the child a search for a key continues to.
+	 * @param tNode A routing node
+	 * @param searchKey the search key
+	 * @return The left child if the key is smaller than the routing key
+	 */
+	private static Node child(Node tNode, long searchKey) {
+		return searchKey < tNode.key ? tNode.left : tNode.right;
+	}
+
+	private static void setChild(Node tNode, long searchKey, Node child) {
+		if (searchKey < tNode.key) {
+			tNode.left = child;
+		} else {
+			tNode.right = child;
+		}
+	}
+
+	/**
+	 * A leaf holding a key or a routing node holding the smallest key of its
+	 * right subtree. The child links are volatile so that a search sees a
+	 * new routing node fully built; the removed flag is only read and
+	 * written under the lock of its node. The lock is a spin lock on one
+	 * int, since a rebuild holds the locks of a whole subtree at once.
+	 */
+	private static final class Node {
+
+		private static final AtomicIntegerFieldUpdater<Node> LOCKED =
+				AtomicIntegerFieldUpdater.newUpdater(Node.class, "locked");
+
+		final long key;
+		final boolean leaf;
+		volatile Node left;
+		volatile Node right;
+		boolean removed;
+		private volatile int locked;
+
+		Node(long key) {
+			this.key = key;
+			this.leaf = true;
+		}
+
+		Node(long key, Node left, Node right) {
+			this.key = key;
+			this.leaf = false;
+			this.left = left;
+			this.right = right;
+		}
+
+		void lock() {
+			while (!LOCKED.compareAndSet(this, 0, 1)) {
+				Thread.yield();
+			}
+		}
+
+		void unlock() {
+			locked = 0;
+		}
+	}
+
+	/**
+	 * Walks the leaves lazily, depth-first with a stack or, for level
+	 * order, breadth-first with a queue. Sentinel leaves are skipped.
+	 */
+	private final class LeafTraversal implements PrimitiveIterator.OfInt {
+
+		private final boolean levelOrder;
+		private final ArrayDeque<Node> pending = new ArrayDeque<>();
+		private Node next;
+
+		LeafTraversal(TraversalOrder order) {
+			levelOrder = order == TraversalOrder.LEVELORDER;
+			pending.add(sentinel.left);
+			advance();
+		}
+
+		@Override
+		public boolean hasNext() {
+			return next != null;
+		}
+
+		@Override
+		public int nextInt() {
+			if (next == null) {
+				throw new NoSuchElementException();
+			}
+			int searchKey = (int) next.key;
+			advance();
+			return searchKey;
+		}
+
+		/**
+		 * Moves to the next real leaf.
+		 */
+		private void advance() {
+			next = null;
+			while (!pending.isEmpty()) {
+				Node tNode = levelOrder ? pending.pollFirst() : pending.pollLast();
+				if (tNode.leaf) {
+					if (tNode.key <= Integer.MAX_VALUE) {
+						next = tNode;
+						return;
+					}
+					continue;
+				}
+
+				// Read each link once; a writer may change it in between
+				Node left = tNode.left;
+				Node right = tNode.right;
+				if (levelOrder) {
+					pending.addLast(left);
+					pending.addLast(right);
+				} else {
+					pending.addLast(right);
+					pending.addLast(left);
+				}
+			}
+		}
+	}
+}
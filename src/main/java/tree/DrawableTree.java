@@ -0,0 +1,41 @@
+package tree;
+
+/**
+ * A tree that keeps one node per key, so that it can hand a view its shape
+ * to draw. tree.ConcurrentBinaryTree keeps its keys in leaves under routing
+ * nodes and does not offer this.
+ * @author Eric Canull
+ * @version 1.0
+ */
+public interface DrawableTree extends TreeEngine {
+
+	/**
+	 * Copies the current shape of the tree for drawing. The copy does not
+	 * follow later changes to the tree.
+	 * @return The keys and child links of the tree
+	 */
+	TreeShape shape();
+
+	/**
+	 * Traces the search for a key without changing the tree. The default
+	 * walks a copy of the shape, so it costs O(n); trees that can walk
+	 * their own nodes override it.
+	 * @param searchKey the search key
+	 * @return The path the search takes
+	 */
+	default SearchPath searchPath(int searchKey) {
+		return shape().searchPath(searchKey);
+	}
+
+	/**
+	 * Gets the root of a tree whose nodes never change once the write that
+	 * made them has finished. A view can then tell a subtree it drew before
+	 * by the identity of its root node, and lay out only the nodes a write
+	 * made. The default is for trees that change their nodes in place.
+	 * @return The root node, or null if the tree is empty or changes its
+	 *         nodes in place
+	 */
+	default TreeNode persistentRoot() {
+		return null;
+	}
+}
@@ -0,0 +1,169 @@
+package tree;
+
+/**
+ * An immutable copy of the keys of a tree laid out for fast searching. The
+ * keys are stored in one int array in Eytzinger order: the root at index 1
+ * and the children of index i at 2i and 2i + 1, which is the order a
+ * breadth-first walk of a perfectly balanced tree visits its nodes. The top
+ * levels of every search share the first few cache lines, and all the
+ * nodes four levels below index i sit next to each other at 16i, so a
+ * search reads one array instead of chasing child pointers.
+ *
+ * A search walks down the array choosing each child with a comparison
+ * folded into the index arithmetic rather than an if, so the loop has no
+ * unpredictable branch. The turns taken are recorded in the bits of the
+ * final index, and the answer is recovered from them by dropping the
+ * trailing turns in one direction.
+ * @author Eric Canull
+ * @version 1.0
+ */
+public final class FrozenIndex {
+
+	/**
+	 * The largest size whose search indices, up to 2 * size + 1, fit an int.
+	 */
+	private static final int MAX_SIZE = (1 << 30) - 1;
+
+	/**
+	 * The keys in Eytzinger order, from index 1; index 0 is unused.
+	 */
+	private final int[] keys;
+
+	private final int size;
+
+	/**
+	 * An immutable index over sorted keys.
+	 * @param sortedKeys distinct search keys in ascending order
+	 * @throws TreeException if there are too many keys for int slot indices
+	 */
+	FrozenIndex(int[] sortedKeys) {
+		if (sortedKeys.length > MAX_SIZE) {
+			throw new TreeException("tree.TreeException: Too many keys to freeze");
+		}
+		size = sortedKeys.length;
+		keys = new int[size + 1];
+
+		// Fill the implicit tree in order: its in-order walk visits the
+		// slots in the order the sorted keys come
+		int next = 0;
+		int slot = leftmost(1);
+		while (slot != 0) {
+			keys[slot] = sortedKeys[next++];
+			if (2 * slot + 1 <= size) {
+				slot = leftmost(2 * slot + 1);
+			} else {
+				// Climb while coming from a right child, then once more
+				slot >>>= Integer.numberOfTrailingZeros(~slot) + 1;
+			}
+		}
+	}
+
+	/**
+	 * Gets the number of keys in the index.
+	 * @return The index size
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Determines if the index has no keys.
+	 * @return <code>true</code> if the index is empty
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Retrieves a search key from the index.
+	 * @param searchKey a unique identifying value
+	 * @return <code>true</code> if the key is in the index
+	 */
+	public boolean retrieveItem(int searchKey) {
+		int slot = lowerBound(searchKey);
+		return slot != 0 && keys[slot] == searchKey;
+	}
+
+	/**
+	 * Gets the largest key less than or equal to the given key.
+	 * @param searchKey the search key
+	 * @return The floor key, or null if there is none
+	 */
+	public Integer floor(int searchKey) {
+		int slot = 1;
+		while (slot <= size) {
+			slot = 2 * slot + (keys[slot] <= searchKey ? 1 : 0);
+		}
+		return keyAt(slot >>> (Integer.numberOfTrailingZeros(slot) + 1));
+	}
+
+	/**
+	 * Gets the smallest key greater than or equal to the given key.
+	 * @param searchKey the search key
+	 * @return The ceiling key, or null if there is none
+	 */
+	public Integer ceiling(int searchKey) {
+		return keyAt(lowerBound(searchKey));
+	}
+
+	/**
+	 * Gets the smallest key strictly greater than the given key.
+	 * @param searchKey the search key
+	 * @return The higher key, or null if there is none
+	 */
+	public Integer higher(int searchKey) {
+		int slot = 1;
+		while (slot <= size) {
+			slot = 2 * slot + (keys[slot] <= searchKey ? 1 : 0);
+		}
+		return keyAt(slot >>> (Integer.numberOfTrailingZeros(~slot) + 1));
+	}
+
+	/**
+	 * Gets the largest key strictly less than the given key.
+	 * @param searchKey the search key
+	 * @return The lower key, or null if there is none
+	 */
+	public Integer lower(int searchKey) {
+		int slot = 1;
+		while (slot <= size) {
+			slot = 2 * slot + (keys[slot] < searchKey ? 1 : 0);
+		}
+		return keyAt(slot >>> (Integer.numberOfTrailingZeros(slot) + 1));
+	}
+
+	/**
+	 * Finds the slot of the smallest key not less than the given key. The
+	 * search turns right past every smaller key, so the answer is the last
+	 * slot where it turned left: drop the trailing right turns, then the
+	 * left turn itself.
+	 * @param searchKey the search key
+	 * @return The slot, or zero if every key is smaller
+	 */
+	private int lowerBound(int searchKey) {
+		int slot = 1;
+		while (slot <= size) {
+			slot = 2 * slot + (keys[slot] < searchKey ? 1 : 0);
+		}
+		return slot >>> (Integer.numberOfTrailingZeros(~slot) + 1);
+	}
+
+	private Integer keyAt(int slot) {
+		return slot == 0 ? null : keys[slot];
+	}
+
+	/**
+	 * Gets the first slot in order of the subtree rooted at a slot.
+	 * @param slot the subtree root
+	 * @return The leftmost slot, or zero for an empty subtree
+	 */
+	private int leftmost(int slot) {
+		if (slot > size) {
+			return 0;
+		}
+		while (2 * slot <= size) {
+			slot *= 2;
+		}
+		return slot;
+	}
+}
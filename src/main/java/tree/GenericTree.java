@@ -0,0 +1,243 @@
+package tree;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Objects;
+
+/**
+ * Binary search tree over keys of any type, ordered by a java.util.Comparator.
+ * Works like tree.BinarySearchTree, which is its hand-specialized version for
+ * primitive int keys, and tree.LongTree for primitive long keys: the tree is
+ * left unbalanced or kept as an AVL tree, every operation walks the tree
+ * with a loop, and each node caches the height and size of its subtree. The
+ * balancing is shared with tree.LongTree through tree.LinkedTreeBasis. Two
+ * keys the comparator calls equal are the same key; null keys are not
+ * allowed.
+ * @param <K> the key type
+ * @author Eric Canull
+ * @version 1.0
+ */
+public final class GenericTree<K> extends LinkedTreeBasis<GenericTree.Node<K>> implements Iterable<K> {
+
+	private final Comparator<? super K> comparator;
+
+	/**
+	 * Binary search tree over keys of any type.
+	 * @param comparator the ordering of the keys
+	 */
+	public GenericTree(Comparator<? super K> comparator) {
+		this(comparator, BalanceMode.NONE);
+	}
+
+	/**
+	 * Binary search tree over keys of any type.
+	 * @param comparator the ordering of the keys
+	 * @param balanceMode the balancing strategy for inserts and deletes
+	 * @Overload Default constructor
+	 */
+	public GenericTree(Comparator<? super K> comparator, BalanceMode balanceMode) {
+		super(balanceMode);
+		this.comparator = Objects.requireNonNull(comparator);
+	}
+
+	/**
+	 * Gets the ordering of the keys.
+	 * @return The comparator chosen at construction
+	 */
+	public Comparator<? super K> comparator() {
+		return comparator;
+	}
+
+	/**
+	 * Inserts a new search key into the tree. A key that is already in
+	 * the tree is ignored.
+	 * @param searchKey a unique identifying value
+	 */
+	public void insertItem(K searchKey) {
+		Objects.requireNonNull(searchKey);
+		if (root == null) {
+			root = new Node<>(searchKey);
+			return;
+		}
+
+		int depth = 0;
+		Node<K> tNode = root;
+		int cmp;
+		do {
+			cmp = comparator.compare(searchKey, tNode.key);
+			if (cmp == 0) {
+				clearPath(depth);
+				return;
+			}
+
+			push(depth++, tNode);
+			tNode = cmp < 0 ? tNode.left : tNode.right;
+		} while (tNode != null);
+
+		attach(depth, new Node<>(searchKey), cmp < 0);
+	}
+
+	/**
+	 * Retrieves a search key from the tree.
+	 * @param searchKey a unique identifying value
+	 * @return <code>true</code> if the key is in the tree
+	 */
+	public boolean retrieveItem(K searchKey) {
+		return findNode(searchKey) != null;
+	}
+
+	/**
+	 * Deletes a search key from the tree. A node with two children takes
+	 * the key of its in-order successor, which is then unlinked instead.
+	 * @param searchKey a unique identifying value
+	 * @return <code>true</code> if the key was found and deleted
+	 */
+	public boolean deleteItem(K searchKey) {
+		Objects.requireNonNull(searchKey);
+		int depth = 0;
+		Node<K> tNode = root;
+
+		while (tNode != null) {
+			int cmp = comparator.compare(searchKey, tNode.key);
+			if (cmp == 0) {
+				break;
+			}
+			push(depth++, tNode);
+			tNode = cmp < 0 ? tNode.left : tNode.right;
+		}
+
+		if (tNode == null) {
+			clearPath(depth);
+			return false;
+		}
+
+		remove(depth, tNode);
+		return true;
+	}
+
+	/**
+	 * Gets the smallest key in the tree.
+	 * @return The first key
+	 * @throws TreeException if the tree is empty
+	 */
+	public K first() {
+		Node<K> tNode = nonEmptyRoot();
+		while (tNode.left != null) {
+			tNode = tNode.left;
+		}
+		return tNode.key;
+	}
+
+	/**
+	 * Gets the largest key in the tree.
+	 * @return The last key
+	 * @throws TreeException if the tree is empty
+	 */
+	public K last() {
+		Node<K> tNode = nonEmptyRoot();
+		while (tNode.right != null) {
+			tNode = tNode.right;
+		}
+		return tNode.key;
+	}
+
+	/**
+	 * Gets the largest key less than or equal to the given key.
+	 * @param searchKey the search key
+	 * @return The floor key, or null if there is none
+	 */
+	public K floor(K searchKey) {
+		K best = null;
+		Node<K> tNode = root;
+		while (tNode != null) {
+			int cmp = comparator.compare(searchKey, tNode.key);
+			if (cmp == 0) {
+				return tNode.key;
+			}
+			if (cmp > 0) {
+				best = tNode.key;
+				tNode = tNode.right;
+			} else {
+				tNode = tNode.left;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Gets the smallest key greater than or equal to the given key.
+	 * @param searchKey the search key
+	 * @return The ceiling key, or null if there is none
+	 */
+	public K ceiling(K searchKey) {
+		K best = null;
+		Node<K> tNode = root;
+		while (tNode != null) {
+			int cmp = comparator.compare(searchKey, tNode.key);
+			if (cmp == 0) {
+				return tNode.key;
+			}
+			if (cmp < 0) {
+				best = tNode.key;
+				tNode = tNode.left;
+			} else {
+				tNode = tNode.right;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Iterates over the keys in ascending order. The tree must not be
+	 * changed while the iterator is in use.
+	 * @return A lazy in-order iterator
+	 */
+	@Override
+	public Iterator<K> iterator() {
+		return new Iterator<K>() {
+
+			private final InOrder nodes = new InOrder();
+
+			@Override
+			public boolean hasNext() {
+				return nodes.hasNext();
+			}
+
+			@Override
+			public K next() {
+				return nodes.next().key;
+			}
+		};
+	}
+
+	private Node<K> findNode(K searchKey) {
+		Objects.requireNonNull(searchKey);
+		Node<K> tNode = root;
+		while (tNode != null) {
+			int cmp = comparator.compare(searchKey, tNode.key);
+			if (cmp == 0) {
+				return tNode;
+			}
+			tNode = cmp < 0 ? tNode.left : tNode.right;
+		}
+		return null;
+	}
+
+	/**
+	 * A node holding a key; its child links and the cached height and size
+	 * of its subtree come from the base node.
+	 */
+	static final class Node<K> extends LinkedTreeBasis.Node<Node<K>> {
+
+		K key;
+
+		Node(K key) {
+			this.key = key;
+		}
+
+		@Override
+		void copyKey(Node<K> other) {
+			key = other.key;
+		}
+	}
+}
@@ -0,0 +1,615 @@
+package tree;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.PrimitiveIterator;
+
+/**
+ * An abstract base class for binary search trees that address their nodes by
+ * int slot index instead of through tree.TreeNode objects. Each slot holds a
+ * key, the slot indices of the left and right children and the cached height
+ * of its subtree; subclasses decide where those four ints are stored. Deleted
+ * slots are chained into a free list through their left link and reused by
+ * later inserts.
+ *
+ * The inherited root field stays null; the tree is reached through the key
+ * operations and traversal() only.
+ * @author Eric Canull
+ * @version 1.0
+ */
+public abstract class IndexedTreeBasis extends BinaryTreeBasis implements DrawableTree {
+
+	/**
+	 * The index standing for a missing child.
+	 */
+	protected static final int NIL = -1;
+
+	private final BalanceMode balanceMode;
+
+	protected int rootIndex;
+	protected int size;
+	protected int used;      // Slots ever handed out; slots past it are untouched
+	protected int freeList;  // First recycled slot, chained through the left link
+
+	/**
+	 * The slots visited by the last insert or delete, root first.
+	 */
+	private int[] path = new int[32];
+
+	/**
+	 * An abstract base class for slot-indexed trees.
+	 * @param balanceMode the balancing strategy for inserts and deletes
+	 */
+	protected IndexedTreeBasis(BalanceMode balanceMode) {
+		this.balanceMode = Objects.requireNonNull(balanceMode);
+		rootIndex = NIL;
+		freeList = NIL;
+	}
+
+	/**
+	 * Gets the key stored in a slot.
+	 * @param node the slot index
+	 * @return The search key
+	 */
+	protected abstract int key(int node);
+
+	/**
+	 * Gets the left child of a slot.
+	 * @param node the slot index
+	 * @return The left child slot, or NIL
+	 */
+	protected abstract int left(int node);
+
+	/**
+	 * Gets the right child of a slot.
+	 * @param node the slot index
+	 * @return The right child slot, or NIL
+	 */
+	protected abstract int right(int node);
+
+	/**
+	 * Gets the cached subtree height of a slot.
+	 * @param node the slot index
+	 * @return The height of the subtree rooted at the slot
+	 */
+	protected abstract int height(int node);
+
+	/**
+	 * Stores the key of a slot.
+	 * @param node the slot index
+	 * @param searchKey the search key
+	 */
+	protected abstract void setKey(int node, int searchKey);
+
+	/**
+	 * Links a left child under a slot.
+	 * @param node the slot index
+	 * @param child the child slot, or NIL
+	 */
+	protected abstract void setLeft(int node, int child);
+
+	/**
+	 * Links a right child under a slot.
+	 * @param node the slot index
+	 * @param child the child slot, or NIL
+	 */
+	protected abstract void setRight(int node, int child);
+
+	/**
+	 * Stores the cached subtree height of a slot.
+	 * @param node the slot index
+	 * @param height the height of the subtree rooted at the slot
+	 */
+	protected abstract void setHeight(int node, int height);
+
+	/**
+	 * Makes room for at least the given number of slots.
+	 * @param slots the number of slots needed
+	 */
+	protected abstract void ensureCapacity(int slots);
+
+	/**
+	 * Gets the number of slots the storage can hold before it grows.
+	 * @return The storage capacity
+	 */
+	public abstract int getCapacity();
+
+	/**
+	 * Called after every change to the tree state fields, so that storage
+	 * which persists them can write them out.
+	 */
+	protected void stateChanged() {
+	}
+
+	/**
+	 * Gets the balancing strategy of the tree.
+	 * @return The balance mode chosen at construction
+	 */
+	public BalanceMode getBalanceMode() {
+		return balanceMode;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return rootIndex == NIL;
+	}
+
+	@Override
+	public void makeEmpty() {
+		clear();
+	}
+
+	/**
+	 * An indexed tree has no tree.TreeNode objects to hand out.
+	 * @throws TreeException if the tree is empty
+	 * @throws UnsupportedOperationException otherwise
+	 */
+	@Override
+	public TreeNode getRoot() throws TreeException {
+		if (isEmpty()) {
+			throw new TreeException("tree.TreeException: Empty Tree");
+		}
+		throw new UnsupportedOperationException("An indexed tree has no node objects");
+	}
+
+	@Override
+	public void setRootItem(int newKey) {
+		clear();
+		insertItem(newKey);
+	}
+
+	@Override
+	public void insertItem(int searchKey) {
+		if (rootIndex == NIL) {
+			rootIndex = allocate(searchKey);
+			stateChanged();
+			return;
+		}
+
+		int depth = 0;
+		int node = rootIndex;
+		while (true) {
+			int nodeKey = key(node);
+			if (searchKey == nodeKey) {
+				return;
+			}
+
+			push(depth++, node);
+			if (searchKey < nodeKey) {
+				if (left(node) == NIL) {
+					int child = allocate(searchKey);
+					setLeft(node, child);
+					break;
+				}
+				node = left(node);
+			} else {
+				if (right(node) == NIL) {
+					int child = allocate(searchKey);
+					setRight(node, child);
+					break;
+				}
+				node = right(node);
+			}
+		}
+
+		rebalancePath(depth);
+		stateChanged();
+	}
+
+	@Override
+	public boolean retrieveItem(int searchKey) {
+		int node = rootIndex;
+		while (node != NIL) {
+			int nodeKey = key(node);
+			if (searchKey == nodeKey) {
+				return true;
+			}
+			node = searchKey < nodeKey ? left(node) : right(node);
+		}
+		return false;
+	}
+
+	@Override
+	public boolean deleteItem(int searchKey) {
+		int depth = 0;
+		int node = rootIndex;
+
+		while (node != NIL) {
+			int nodeKey = key(node);
+			if (searchKey == nodeKey) {
+				break;
+			}
+			push(depth++, node);
+			node = searchKey < nodeKey ? left(node) : right(node);
+		}
+
+		if (node == NIL) {
+			return false;
+		}
+
+		if (left(node) != NIL && right(node) != NIL) {
+			push(depth++, node);
+			int successor = right(node);
+			while (left(successor) != NIL) {
+				push(depth++, successor);
+				successor = left(successor);
+			}
+			setKey(node, key(successor));
+			node = successor;
+		}
+
+		int child = left(node) != NIL ? left(node) : right(node);
+		replaceChild(depth == 0 ? NIL : path[depth - 1], node, child);
+		release(node);
+		rebalancePath(depth);
+		stateChanged();
+		return true;
+	}
+
+	@Override
+	public int getSize() {
+		return size;
+	}
+
+	@Override
+	public int getHeight() {
+		return heightOf(rootIndex);
+	}
+
+	@Override
+	public PrimitiveIterator.OfInt traversal(TraversalOrder order) {
+		return new IndexTraversal(order);
+	}
+
+	/**
+	 * Copies the shape of the tree, renumbering the slots in preorder.
+	 * @return The keys and child links of the tree
+	 */
+	@Override
+	public TreeShape shape() {
+		int[] keys = new int[size];
+		int[] lefts = new int[size];
+		int[] rights = new int[size];
+		int[] stack = new int[heightOf(rootIndex) + 1];
+		int[] links = new int[stack.length];   // 2 * parent, plus 1 for a right link
+		int stackSize = 0;
+		int count = 0;
+
+		if (rootIndex != NIL) {
+			stack[stackSize] = rootIndex;
+			links[stackSize++] = TreeShape.NONE;
+		}
+		while (stackSize > 0) {
+			int node = stack[--stackSize];
+			int link = links[stackSize];
+			int shapeNode = count++;
+			keys[shapeNode] = key(node);
+			lefts[shapeNode] = TreeShape.NONE;
+			rights[shapeNode] = TreeShape.NONE;
+			if (link != TreeShape.NONE) {
+				if ((link & 1) == 0) {
+					lefts[link >>> 1] = shapeNode;
+				} else {
+					rights[link >>> 1] = shapeNode;
+				}
+			}
+
+			if (right(node) != NIL) {
+				stack[stackSize] = right(node);
+				links[stackSize++] = 2 * shapeNode + 1;
+			}
+			if (left(node) != NIL) {
+				stack[stackSize] = left(node);
+				links[stackSize++] = 2 * shapeNode;
+			}
+		}
+
+		return new TreeShape(keys, lefts, rights, count);
+	}
+
+	/**
+	 * Drops every node and rewinds the storage.
+	 */
+	private void clear() {
+		rootIndex = NIL;
+		size = 0;
+		used = 0;
+		freeList = NIL;
+		stateChanged();
+	}
+
+	/**
+	 * Hands out a slot for a new leaf, recycling a freed slot if there is one.
+	 * @param searchKey the key of the new node
+	 * @return The slot index
+	 */
+	private int allocate(int searchKey) {
+		int node;
+		if (freeList != NIL) {
+			node = freeList;
+			freeList = left(node);
+		} else {
+			ensureCapacity(used + 1);
+			node = used++;
+		}
+
+		setKey(node, searchKey);
+		setLeft(node, NIL);
+		setRight(node, NIL);
+		setHeight(node, 1);
+		size++;
+		return node;
+	}
+
+	/**
+	 * Puts an unlinked slot on the free list.
+	 * @param node the slot index
+	 */
+	private void release(int node) {
+		setLeft(node, freeList);
+		setRight(node, NIL);
+		freeList = node;
+		size--;
+	}
+
+	private void push(int depth, int node) {
+		if (depth == path.length) {
+			path = Arrays.copyOf(path, depth * 2);
+		}
+		path[depth] = node;
+	}
+
+	/**
+	 * Replaces the link from a parent to one of its children.
+	 * @param parent the parent slot, or NIL if the child is the root
+	 * @param oldChild the child being replaced
+	 * @param newChild the replacement subtree
+	 */
+	private void replaceChild(int parent, int oldChild, int newChild) {
+		if (parent == NIL) {
+			rootIndex = newChild;
+		} else if (left(parent) == oldChild) {
+			setLeft(parent, newChild);
+		} else {
+			setRight(parent, newChild);
+		}
+	}
+
+	/**
+	 * Walks the recorded path bottom-up, refreshing cached heights and, in
+	 * AVL mode, rotating wherever a node has become unbalanced. Once a slot
+	 * keeps its height without a rotation, nothing above it can change and
+	 * the walk stops.
+	 * @param depth the number of slots on the recorded path
+	 */
+	private void rebalancePath(int depth) {
+		for (int i = depth - 1; i >= 0; i--) {
+			int node = path[i];
+			int oldHeight = height(node);
+
+			int subtree = node;
+			if (balanceMode == BalanceMode.NONE) {
+				update(node);
+			} else {
+				subtree = balance(node);
+			}
+
+			if (subtree != node) {
+				replaceChild(i == 0 ? NIL : path[i - 1], node, subtree);
+			} else if (height(node) == oldHeight) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Restores the AVL property at a slot whose subtree just changed.
+	 * @param node a slot on the insert or delete path
+	 * @return The new root of the subtree
+	 */
+	private int balance(int node) {
+		update(node);
+		int balanceFactor = heightOf(left(node)) - heightOf(right(node));
+
+		if (balanceFactor > 1) {
+			int child = left(node);
+			if (heightOf(left(child)) < heightOf(right(child))) {
+				setLeft(node, rotateLeft(child));
+			}
+			return rotateRight(node);
+		}
+
+		if (balanceFactor < -1) {
+			int child = right(node);
+			if (heightOf(right(child)) < heightOf(left(child))) {
+				setRight(node, rotateRight(child));
+			}
+			return rotateLeft(node);
+		}
+
+		return node;
+	}
+
+	private int rotateRight(int node) {
+		int pivot = left(node);
+		setLeft(node, right(pivot));
+		setRight(pivot, node);
+		update(node);
+		update(pivot);
+		return pivot;
+	}
+
+	private int rotateLeft(int node) {
+		int pivot = right(node);
+		setRight(node, left(pivot));
+		setLeft(pivot, node);
+		update(node);
+		update(pivot);
+		return pivot;
+	}
+
+	private void update(int node) {
+		setHeight(node, Math.max(heightOf(left(node)), heightOf(right(node))) + 1);
+	}
+
+	private int heightOf(int node) {
+		return node == NIL ? 0 : height(node);
+	}
+
+	/**
+	 * Walks the slots lazily in one traversal order, using an int stack or,
+	 * for level order, an int ring buffer. The Morris order threads the
+	 * right links in place while it runs.
+	 */
+	private final class IndexTraversal implements PrimitiveIterator.OfInt {
+
+		private final TraversalOrder order;
+		private int[] stack = new int[16];
+		private int stackSize;
+		private int current = NIL;
+
+		// Level-order ring buffer
+		private int[] queue;
+		private int head;
+		private int queueSize;
+
+		IndexTraversal(TraversalOrder order) {
+			this.order = order;
+
+			switch (order) {
+				case PREORDER:
+					push(rootIndex);
+					break;
+				case INORDER:
+					pushLeftPath(rootIndex);
+					break;
+				case MORRIS_INORDER:
+					current = rootIndex;
+					break;
+				case POSTORDER:
+					pushFirstLeafPath(rootIndex);
+					break;
+				default:
+					queue = new int[16];
+					enqueue(rootIndex);
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			switch (order) {
+				case MORRIS_INORDER:
+					return current != NIL;
+				case LEVELORDER:
+					return queueSize > 0;
+				default:
+					return stackSize > 0;
+			}
+		}
+
+		@Override
+		public int nextInt() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+
+			int node;
+			switch (order) {
+				case PREORDER:
+					node = stack[--stackSize];
+					push(right(node));
+					push(left(node));
+					return key(node);
+
+				case INORDER:
+					node = stack[--stackSize];
+					pushLeftPath(right(node));
+					return key(node);
+
+				case POSTORDER:
+					node = stack[--stackSize];
+					if (stackSize > 0 && left(stack[stackSize - 1]) == node) {
+						pushFirstLeafPath(right(stack[stackSize - 1]));
+					}
+					return key(node);
+
+				case LEVELORDER:
+					node = queue[head];
+					head = (head + 1) % queue.length;
+					queueSize--;
+					enqueue(left(node));
+					enqueue(right(node));
+					return key(node);
+
+				default:
+					return nextMorris();
+			}
+		}
+
+		private int nextMorris() {
+			while (true) {
+				if (left(current) == NIL) {
+					int searchKey = key(current);
+					current = right(current);
+					return searchKey;
+				}
+
+				int predecessor = left(current);
+				while (right(predecessor) != NIL && right(predecessor) != current) {
+					predecessor = right(predecessor);
+				}
+
+				if (right(predecessor) == NIL) {
+					setRight(predecessor, current); // Thread back to the successor
+					current = left(current);
+				} else {
+					setRight(predecessor, NIL);     // Left subtree done: remove the thread
+					int searchKey = key(current);
+					current = right(current);
+					return searchKey;
+				}
+			}
+		}
+
+		private void pushLeftPath(int node) {
+			while (node != NIL) {
+				push(node);
+				node = left(node);
+			}
+		}
+
+		private void pushFirstLeafPath(int node) {
+			while (node != NIL) {
+				push(node);
+				node = left(node) != NIL ? left(node) : right(node);
+			}
+		}
+
+		private void push(int node) {
+			if (node == NIL) {
+				return;
+			}
+			if (stackSize == stack.length) {
+				stack = Arrays.copyOf(stack, stackSize * 2);
+			}
+			stack[stackSize++] = node;
+		}
+
+		private void enqueue(int node) {
+			if (node == NIL) {
+				return;
+			}
+			if (queueSize == queue.length) {
+				int[] larger = new int[queue.length * 2];
+				for (int i = 0; i < queueSize; i++) {
+					larger[i] = queue[(head + i) % queue.length];
+				}
+				queue = larger;
+				head = 0;
+			}
+			queue[(head + queueSize) % queue.length] = node;
+			queueSize++;
+		}
+	}
+}
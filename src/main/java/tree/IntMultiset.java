@@ -0,0 +1,203 @@
+package tree;
+
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.stream.IntStream;
+
+/**
+ * Sorted multiset of primitive int keys, kept as an AVL tree with one node
+ * per distinct key. Each node counts how many times its key occurs, so a
+ * key added a million times costs one node, and adding or removing an
+ * occurrence is one walk down the tree.
+ * @author Eric Canull
+ * @version 1.0
+ */
+public final class IntMultiset {
+
+	private final BinarySearchTree tree = new BinarySearchTree(BalanceMode.AVL, false, true);
+
+	private long size;   // Occurrences of all keys
+
+	/**
+	 * Gets the number of occurrences of all keys.
+	 * @return The multiset size
+	 */
+	public long size() {
+		return size;
+	}
+
+	/**
+	 * Gets the number of distinct keys.
+	 * @return The number of nodes in the tree
+	 */
+	public int distinctSize() {
+		return tree.getSize();
+	}
+
+	/**
+	 * Checks if the multiset is empty.
+	 * @return <code>true</code> if the multiset has no keys
+	 */
+	public boolean isEmpty() {
+		return tree.isEmpty();
+	}
+
+	/**
+	 * Removes every key.
+	 */
+	public void clear() {
+		tree.makeEmpty();
+		size = 0;
+	}
+
+	/**
+	 * Gets the number of times a key occurs.
+	 * @param key a search key
+	 * @return The occurrence count, zero if the key is not in the multiset
+	 */
+	public int count(int key) {
+		PayloadNode tNode = (PayloadNode) tree.findNode(key);
+		return tNode == null ? 0 : tNode.count;
+	}
+
+	/**
+	 * Determines if a key occurs at least once.
+	 * @param key a search key
+	 * @return <code>true</code> if the key is in the multiset
+	 */
+	public boolean contains(int key) {
+		return tree.findNode(key) != null;
+	}
+
+	/**
+	 * Adds one occurrence of a key.
+	 * @param key a search key
+	 * @return The occurrence count before the call
+	 */
+	public int add(int key) {
+		return add(key, 1);
+	}
+
+	/**
+	 * Adds occurrences of a key.
+	 * @param key a search key
+	 * @param occurrences the number of occurrences to add
+	 * @return The occurrence count before the call
+	 * @throws IllegalArgumentException if occurrences is negative
+	 * @throws ArithmeticException if the count would overflow an int
+	 */
+	public int add(int key, int occurrences) {
+		checkOccurrences(occurrences);
+		if (occurrences == 0) {
+			return count(key);
+		}
+
+		int oldSize = tree.getSize();
+		PayloadNode tNode = (PayloadNode) tree.insertNode(key);
+		if (tree.getSize() != oldSize) {
+			tNode.count = occurrences;
+			size += occurrences;
+			return 0;
+		}
+
+		int oldCount = tNode.count;
+		tNode.count = Math.addExact(oldCount, occurrences);
+		size += occurrences;
+		return oldCount;
+	}
+
+	/**
+	 * Removes one occurrence of a key.
+	 * @param key a search key
+	 * @return <code>true</code> if the key was in the multiset
+	 */
+	public boolean remove(int key) {
+		return remove(key, 1) > 0;
+	}
+
+	/**
+	 * Removes occurrences of a key. The node of the key is unlinked once
+	 * its last occurrence is removed.
+	 * @param key a search key
+	 * @param occurrences the most occurrences to remove
+	 * @return The occurrence count before the call
+	 * @throws IllegalArgumentException if occurrences is negative
+	 */
+	public int remove(int key, int occurrences) {
+		checkOccurrences(occurrences);
+		PayloadNode tNode = (PayloadNode) tree.findNode(key);
+		if (tNode == null) {
+			return 0;
+		}
+
+		int oldCount = tNode.count;
+		if (occurrences < oldCount) {
+			tNode.count = oldCount - occurrences;
+			size -= occurrences;
+		} else {
+			tree.deleteItem(key);
+			size -= oldCount;
+		}
+		return oldCount;
+	}
+
+	/**
+	 * Streams the distinct keys in ascending order.
+	 * @return A stream of the keys, each once
+	 */
+	public IntStream distinctKeys() {
+		return tree.keys();
+	}
+
+	/**
+	 * Iterates over every occurrence in ascending order, repeating each key
+	 * as often as it occurs. The multiset must not be changed while the
+	 * iterator is in use.
+	 * @return A lazy in-order iterator
+	 */
+	public PrimitiveIterator.OfInt iterator() {
+		return new PrimitiveIterator.OfInt() {
+
+			private TreeNode[] stack = new TreeNode[Math.max(1, tree.getHeight())];
+			private int stackSize;
+			private PayloadNode current;
+			private int remaining;
+
+			{
+				pushLeftPath(tree.root);
+			}
+
+			@Override
+			public boolean hasNext() {
+				return remaining > 0 || stackSize > 0;
+			}
+
+			@Override
+			public int nextInt() {
+				if (remaining == 0) {
+					if (stackSize == 0) {
+						throw new NoSuchElementException();
+					}
+					current = (PayloadNode) stack[--stackSize];
+					remaining = current.count;
+					pushLeftPath(current.rightCircle);
+				}
+				remaining--;
+				return current.searchKey;
+			}
+
+			private void pushLeftPath(TreeNode tNode) {
+				while (tNode != null) {
+					stack[stackSize++] = tNode;
+					tNode = tNode.leftCircle;
+				}
+			}
+		};
+	}
+
+	private static void checkOccurrences(int occurrences) {
+		if (occurrences < 0) {
+			throw new IllegalArgumentException("Negative occurrences: " + occurrences);
+		}
+	}
+}
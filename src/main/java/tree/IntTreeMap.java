@@ -0,0 +1,216 @@
+package tree;
+
+import java.util.Objects;
+import java.util.function.BiFunction;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+
+/**
+ * Sorted map from primitive int keys to values, kept as an AVL tree whose
+ * nodes hold the values themselves, so no side table is needed and a key is
+ * never boxed. put(), get(), computeIfAbsent() and merge() each find or
+ * create the node of their key in one walk down the tree. Null values are
+ * not allowed; a null from a mapping function means "no mapping".
+ * @param <V> the value type
+ * @author Eric Canull
+ * @version 1.0
+ */
+public final class IntTreeMap<V> {
+
+	private final BinarySearchTree tree = new BinarySearchTree(BalanceMode.AVL, false, true);
+
+	/**
+	 * Takes a key and its value.
+	 * @param <V> the value type
+	 */
+	@FunctionalInterface
+	public interface EntryConsumer<V> {
+
+		/**
+		 * Takes one entry of the map.
+		 * @param key the search key
+		 * @param value the value mapped to the key
+		 */
+		void accept(int key, V value);
+	}
+
+	/**
+	 * Gets the number of keys in the map.
+	 * @return The map size
+	 */
+	public int size() {
+		return tree.getSize();
+	}
+
+	/**
+	 * Checks if the map is empty.
+	 * @return <code>true</code> if the map has no keys
+	 */
+	public boolean isEmpty() {
+		return tree.isEmpty();
+	}
+
+	/**
+	 * Removes every key.
+	 */
+	public void clear() {
+		tree.makeEmpty();
+	}
+
+	/**
+	 * Determines if the map holds a key.
+	 * @param key a search key
+	 * @return <code>true</code> if the key has a value
+	 */
+	public boolean containsKey(int key) {
+		return tree.findNode(key) != null;
+	}
+
+	/**
+	 * Gets the value mapped to a key.
+	 * @param key a search key
+	 * @return The value, or null if the key is not in the map
+	 */
+	public V get(int key) {
+		return valueOf(tree.findNode(key));
+	}
+
+	/**
+	 * Maps a key to a value, replacing any value it had.
+	 * @param key a search key
+	 * @param value the new value
+	 * @return The old value, or null if the key is new
+	 */
+	public V put(int key, V value) {
+		Objects.requireNonNull(value);
+		PayloadNode tNode = (PayloadNode) tree.insertNode(key);
+		V oldValue = valueOf(tNode);
+		tNode.value = value;
+		return oldValue;
+	}
+
+	/**
+	 * Removes a key and its value.
+	 * @param key a search key
+	 * @return The removed value, or null if the key was not in the map
+	 */
+	public V remove(int key) {
+		V oldValue = valueOf(tree.findNode(key));
+		if (oldValue != null) {
+			tree.deleteItem(key);
+		}
+		return oldValue;
+	}
+
+	/**
+	 * Gets the value of a key, computing and storing it if the key is not
+	 * in the map. The node is created before the function runs, and
+	 * removed again if the function returns null or throws, so the
+	 * function must not change the map.
+	 * @param key a search key
+	 * @param mappingFunction computes the value of a new key
+	 * @return The current or computed value, or null if none was computed
+	 */
+	public V computeIfAbsent(int key, IntFunction<? extends V> mappingFunction) {
+		Objects.requireNonNull(mappingFunction);
+		int oldSize = tree.getSize();
+		PayloadNode tNode = (PayloadNode) tree.insertNode(key);
+		if (tree.getSize() == oldSize) {
+			return valueOf(tNode);
+		}
+
+		boolean stored = false;
+		try {
+			V newValue = mappingFunction.apply(key);
+			if (newValue != null) {
+				tNode.value = newValue;
+				stored = true;
+			}
+			return newValue;
+		} finally {
+			if (!stored) {
+				tree.deleteItem(key);
+			}
+		}
+	}
+
+	/**
+	 * Stores a value for a new key, or combines it with the value of a key
+	 * already in the map. A null result removes the key. The function must
+	 * not change the map.
+	 * @param key a search key
+	 * @param value the value to store or combine
+	 * @param remappingFunction combines the old value with the given one
+	 * @return The new value, or null if the key was removed
+	 */
+	public V merge(int key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+		Objects.requireNonNull(value);
+		Objects.requireNonNull(remappingFunction);
+		int oldSize = tree.getSize();
+		PayloadNode tNode = (PayloadNode) tree.insertNode(key);
+		if (tree.getSize() != oldSize) {
+			tNode.value = value;
+			return value;
+		}
+
+		V newValue = remappingFunction.apply(valueOf(tNode), value);
+		if (newValue == null) {
+			tree.deleteItem(key);
+		} else {
+			tNode.value = newValue;
+		}
+		return newValue;
+	}
+
+	/**
+	 * Gets the smallest key in the map.
+	 * @return The first key
+	 * @throws TreeException if the map is empty
+	 */
+	public int firstKey() {
+		return tree.first();
+	}
+
+	/**
+	 * Gets the largest key in the map.
+	 * @return The last key
+	 * @throws TreeException if the map is empty
+	 */
+	public int lastKey() {
+		return tree.last();
+	}
+
+	/**
+	 * Streams the keys in ascending order.
+	 * @return A stream of the keys
+	 */
+	public IntStream keys() {
+		return tree.keys();
+	}
+
+	/**
+	 * Hands every entry to an action, in ascending key order. The action
+	 * must not change the map.
+	 * @param action the action to run on each entry
+	 */
+	public void forEach(EntryConsumer<? super V> action) {
+		Objects.requireNonNull(action);
+		TreeNode[] stack = new TreeNode[Math.max(1, tree.getHeight())];
+		int stackSize = 0;
+		TreeNode tNode = tree.root;
+		while (tNode != null || stackSize > 0) {
+			while (tNode != null) {
+				stack[stackSize++] = tNode;
+				tNode = tNode.leftCircle;
+			}
+			tNode = stack[--stackSize];
+			action.accept(tNode.searchKey, valueOf(tNode));
+			tNode = tNode.rightCircle;
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private V valueOf(TreeNode tNode) {
+		return tNode == null ? null : (V) ((PayloadNode) tNode).value;
+	}
+}
@@ -0,0 +1,318 @@
+package tree;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ * Base class for the linked trees specialized by key type, tree.GenericTree
+ * and tree.LongTree. It owns what does not depend on the keys: the root,
+ * the path an insert or delete records on its way down, the bottom-up
+ * AVL rebalancing of that path, unlinking a found node, the cached height
+ * and size of every subtree, and an in-order walk over the nodes. A
+ * subclass walks down by comparing its own keys and hands the path here.
+ * @param <N> the node type of the tree
+ * @author Eric Canull
+ * @version 1.0
+ */
+abstract class LinkedTreeBasis<N extends LinkedTreeBasis.Node<N>> {
+
+	private final BalanceMode balanceMode;
+
+	N root;
+
+	/**
+	 * The nodes visited by the current insert or delete, root first.
+	 */
+	N[] path = newNodeArray(32);
+
+	/**
+	 * A linked tree.
+	 * @param balanceMode the balancing strategy for inserts and deletes
+	 */
+	LinkedTreeBasis(BalanceMode balanceMode) {
+		this.balanceMode = Objects.requireNonNull(balanceMode);
+	}
+
+	/**
+	 * Gets the balancing strategy of the tree.
+	 * @return The balance mode chosen at construction
+	 */
+	public BalanceMode getBalanceMode() {
+		return balanceMode;
+	}
+
+	/**
+	 * Checks if the tree is empty.
+	 * @return <code>true</code> if the tree has no keys
+	 */
+	public boolean isEmpty() {
+		return root == null;
+	}
+
+	/**
+	 * Makes the tree empty.
+	 */
+	public void makeEmpty() {
+		root = null;
+	}
+
+	/**
+	 * Gets the number of keys in the tree.
+	 * @return The tree size
+	 */
+	public int getSize() {
+		return size(root);
+	}
+
+	/**
+	 * Gets the number of levels in the tree.
+	 * @return The tree height, zero for an empty tree
+	 */
+	public int getHeight() {
+		return height(root);
+	}
+
+	/**
+	 * Creates an array of nodes. Arrays of a generic type can only be made
+	 * raw and cast, which is safe here since the array never leaves the
+	 * tree.
+	 * @param length the array length
+	 * @return A new array of nulls
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	static <N extends Node<N>> N[] newNodeArray(int length) {
+		return (N[]) new Node[length];
+	}
+
+	/**
+	 * Gets the root of a tree that must not be empty.
+	 * @return The root node
+	 * @throws TreeException if the tree is empty
+	 */
+	N nonEmptyRoot() {
+		if (root == null) {
+			throw new TreeException("tree.TreeException: Empty Tree");
+		}
+		return root;
+	}
+
+	/**
+	 * Records a node on the current insert or delete path.
+	 * @param depth the position of the node on the path
+	 * @param tNode a node of the tree
+	 */
+	void push(int depth, N tNode) {
+		if (depth == path.length) {
+			path = Arrays.copyOf(path, depth * 2);
+		}
+		path[depth] = tNode;
+	}
+
+	/**
+	 * Drops the recorded path when a write ends without a change, so the
+	 * reused array keeps no nodes reachable.
+	 * @param depth the number of nodes on the recorded path
+	 */
+	void clearPath(int depth) {
+		Arrays.fill(path, 0, depth, null);
+	}
+
+	/**
+	 * Links a new leaf under the last node of the recorded path and
+	 * rebalances the path.
+	 * @param depth the number of nodes on the recorded path, at least one
+	 * @param leaf the new node
+	 * @param left <code>true</code> to link the leaf as a left child
+	 */
+	void attach(int depth, N leaf, boolean left) {
+		N parent = path[depth - 1];
+		if (left) {
+			parent.left = leaf;
+		} else {
+			parent.right = leaf;
+		}
+		rebalancePath(depth, 1);
+	}
+
+	/**
+	 * Unlinks a node found at the end of the recorded path and rebalances
+	 * the path. A node with two children takes the key of its in-order
+	 * successor, which is then unlinked instead.
+	 * @param depth the number of nodes on the path above the node
+	 * @param tNode the node to remove
+	 */
+	void remove(int depth, N tNode) {
+		if (tNode.left != null && tNode.right != null) {
+			push(depth++, tNode);
+			N successor = tNode.right;
+			while (successor.left != null) {
+				push(depth++, successor);
+				successor = successor.left;
+			}
+			tNode.copyKey(successor);
+			tNode = successor;
+		}
+
+		N child = tNode.left != null ? tNode.left : tNode.right;
+		replaceChild(depth == 0 ? null : path[depth - 1], tNode, child);
+		rebalancePath(depth, -1);
+	}
+
+	private void replaceChild(N parent, N oldChild, N newChild) {
+		if (parent == null) {
+			root = newChild;
+		} else if (parent.left == oldChild) {
+			parent.left = newChild;
+		} else {
+			parent.right = newChild;
+		}
+	}
+
+	/**
+	 * Walks the recorded path bottom-up, refreshing cached heights and
+	 * sizes and, in AVL mode, rotating wherever a node has become
+	 * unbalanced. Once a node keeps its height without a rotation, the
+	 * rest of the path only has its size adjusted.
+	 * @param depth the number of nodes on the recorded path
+	 * @param sizeChange the number of keys added, 1 or -1
+	 */
+	private void rebalancePath(int depth, int sizeChange) {
+		int i = depth - 1;
+		for (; i >= 0; i--) {
+			N tNode = path[i];
+			path[i] = null;
+			int oldHeight = tNode.height;
+
+			N subtree = tNode;
+			if (balanceMode == BalanceMode.NONE) {
+				update(tNode);
+			} else {
+				subtree = balance(tNode);
+			}
+
+			if (subtree != tNode) {
+				replaceChild(i == 0 ? null : path[i - 1], tNode, subtree);
+				continue;
+			}
+			if (tNode.height == oldHeight) {
+				i--;
+				break;
+			}
+		}
+
+		for (; i >= 0; i--) {
+			path[i].size += sizeChange;
+			path[i] = null;
+		}
+	}
+
+	private N balance(N tNode) {
+		update(tNode);
+		int balanceFactor = height(tNode.left) - height(tNode.right);
+
+		if (balanceFactor > 1) {
+			if (height(tNode.left.left) < height(tNode.left.right)) {
+				tNode.left = rotateLeft(tNode.left);
+			}
+			return rotateRight(tNode);
+		}
+
+		if (balanceFactor < -1) {
+			if (height(tNode.right.right) < height(tNode.right.left)) {
+				tNode.right = rotateRight(tNode.right);
+			}
+			return rotateLeft(tNode);
+		}
+
+		return tNode;
+	}
+
+	private N rotateRight(N tNode) {
+		N pivot = tNode.left;
+		tNode.left = pivot.right;
+		pivot.right = tNode;
+		update(tNode);
+		update(pivot);
+		return pivot;
+	}
+
+	private N rotateLeft(N tNode) {
+		N pivot = tNode.right;
+		tNode.right = pivot.left;
+		pivot.left = tNode;
+		update(tNode);
+		update(pivot);
+		return pivot;
+	}
+
+	private static void update(Node<?> tNode) {
+		tNode.height = Math.max(height(tNode.left), height(tNode.right)) + 1;
+		tNode.size = size(tNode.left) + size(tNode.right) + 1;
+	}
+
+	static int height(Node<?> tNode) {
+		return tNode == null ? 0 : tNode.height;
+	}
+
+	static int size(Node<?> tNode) {
+		return tNode == null ? 0 : tNode.size;
+	}
+
+	/**
+	 * A node's child links and the cached height and size of its subtree.
+	 * Subclasses add the key.
+	 * @param <N> the node type itself
+	 */
+	abstract static class Node<N extends Node<N>> {
+
+		N left;
+		N right;
+		int height = 1;
+		int size = 1;
+
+		/**
+		 * Takes the key of another node.
+		 * @param other the node whose key to copy
+		 */
+		abstract void copyKey(N other);
+	}
+
+	/**
+	 * Walks the nodes in ascending key order. The tree must not be changed
+	 * while the walk is in use.
+	 */
+	final class InOrder {
+
+		private N[] stack = newNodeArray(Math.max(1, height(root)));
+		private int stackSize;
+
+		InOrder() {
+			pushLeftPath(root);
+		}
+
+		boolean hasNext() {
+			return stackSize > 0;
+		}
+
+		N next() {
+			if (stackSize == 0) {
+				throw new NoSuchElementException();
+			}
+			N tNode = stack[--stackSize];
+			stack[stackSize] = null;
+			pushLeftPath(tNode.right);
+			return tNode;
+		}
+
+		private void pushLeftPath(N tNode) {
+			while (tNode != null) {
+				if (stackSize == stack.length) {
+					stack = Arrays.copyOf(stack, stackSize * 2);
+				}
+				stack[stackSize++] = tNode;
+				tNode = tNode.left;
+			}
+		}
+	}
+}
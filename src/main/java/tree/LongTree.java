@@ -0,0 +1,228 @@
+package tree;
+
+import java.util.PrimitiveIterator;
+
+/**
+ * Binary search tree over primitive long keys. The hand-specialized version
+ * of tree.GenericTree for longs, as tree.BinarySearchTree is for ints: keys
+ * are compared with the primitive operators and never boxed. The tree is
+ * left unbalanced or kept as an AVL tree, every operation walks the tree
+ * with a loop, and each node caches the height and size of its subtree. The
+ * balancing is shared with tree.GenericTree through tree.LinkedTreeBasis.
+ * @author Eric Canull
+ * @version 1.0
+ */
+public final class LongTree extends LinkedTreeBasis<LongTree.Node> {
+
+	/**
+	 * Binary search tree over primitive long keys.
+	 */
+	public LongTree() {
+		this(BalanceMode.NONE);
+	}
+
+	/**
+	 * Binary search tree over primitive long keys.
+	 * @param balanceMode the balancing strategy for inserts and deletes
+	 * @Overload Default constructor
+	 */
+	public LongTree(BalanceMode balanceMode) {
+		super(balanceMode);
+	}
+
+	/**
+	 * Inserts a new search key into the tree. A key that is already in
+	 * the tree is ignored.
+	 * @param searchKey a unique identifying value
+	 */
+	public void insertItem(long searchKey) {
+		if (root == null) {
+			root = new Node(searchKey);
+			return;
+		}
+
+		int depth = 0;
+		Node tNode = root;
+		long nodeKey;
+		do {
+			nodeKey = tNode.key;
+			if (searchKey == nodeKey) {
+				clearPath(depth);
+				return;
+			}
+
+			push(depth++, tNode);
+			tNode = searchKey < nodeKey ? tNode.left : tNode.right;
+		} while (tNode != null);
+
+		attach(depth, new Node(searchKey), searchKey < nodeKey);
+	}
+
+	/**
+	 * Retrieves a search key from the tree.
+	 * @param searchKey a unique identifying value
+	 * @return <code>true</code> if the key is in the tree
+	 */
+	public boolean retrieveItem(long searchKey) {
+		return findNode(searchKey) != null;
+	}
+
+	/**
+	 * Deletes a search key from the tree. A node with two children takes
+	 * the key of its in-order successor, which is then unlinked instead.
+	 * @param searchKey a unique identifying value
+	 * @return <code>true</code> if the key was found and deleted
+	 */
+	public boolean deleteItem(long searchKey) {
+		int depth = 0;
+		Node tNode = root;
+
+		while (tNode != null) {
+			long nodeKey = tNode.key;
+			if (searchKey == nodeKey) {
+				break;
+			}
+			push(depth++, tNode);
+			tNode = searchKey < nodeKey ? tNode.left : tNode.right;
+		}
+
+		if (tNode == null) {
+			clearPath(depth);
+			return false;
+		}
+
+		remove(depth, tNode);
+		return true;
+	}
+
+	/**
+	 * Gets the smallest key in the tree.
+	 * @return The first key
+	 * @throws TreeException if the tree is empty
+	 */
+	public long first() {
+		Node tNode = nonEmptyRoot();
+		while (tNode.left != null) {
+			tNode = tNode.left;
+		}
+		return tNode.key;
+	}
+
+	/**
+	 * Gets the largest key in the tree.
+	 * @return The last key
+	 * @throws TreeException if the tree is empty
+	 */
+	public long last() {
+		Node tNode = nonEmptyRoot();
+		while (tNode.right != null) {
+			tNode = tNode.right;
+		}
+		return tNode.key;
+	}
+
+	/**
+	 * Gets the largest key less than or equal to the given key.
+	 * @param searchKey the search key
+	 * @return The floor key
+	 * @throws TreeException if no key is less than or equal to the search key
+	 */
+	public long floor(long searchKey) {
+		Node best = null;
+		Node tNode = root;
+		while (tNode != null) {
+			if (searchKey == tNode.key) {
+				return tNode.key;
+			}
+			if (searchKey > tNode.key) {
+				best = tNode;
+				tNode = tNode.right;
+			} else {
+				tNode = tNode.left;
+			}
+		}
+		return keyOf(best);
+	}
+
+	/**
+	 * Gets the smallest key greater than or equal to the given key.
+	 * @param searchKey the search key
+	 * @return The ceiling key
+	 * @throws TreeException if no key is greater than or equal to the search key
+	 */
+	public long ceiling(long searchKey) {
+		Node best = null;
+		Node tNode = root;
+		while (tNode != null) {
+			if (searchKey == tNode.key) {
+				return tNode.key;
+			}
+			if (searchKey < tNode.key) {
+				best = tNode;
+				tNode = tNode.left;
+			} else {
+				tNode = tNode.right;
+			}
+		}
+		return keyOf(best);
+	}
+
+	/**
+	 * Iterates over the keys in ascending order. The tree must not be
+	 * changed while the iterator is in use.
+	 * @return A lazy in-order iterator
+	 */
+	public PrimitiveIterator.OfLong keys() {
+		return new PrimitiveIterator.OfLong() {
+
+			private final InOrder nodes = new InOrder();
+
+			@Override
+			public boolean hasNext() {
+				return nodes.hasNext();
+			}
+
+			@Override
+			public long nextLong() {
+				return nodes.next().key;
+			}
+		};
+	}
+
+	private Node findNode(long searchKey) {
+		Node tNode = root;
+		while (tNode != null) {
+			long nodeKey = tNode.key;
+			if (searchKey == nodeKey) {
+				return tNode;
+			}
+			tNode = searchKey < nodeKey ? tNode.left : tNode.right;
+		}
+		return null;
+	}
+
+	private static long keyOf(Node tNode) {
+		if (tNode == null) {
+			throw new TreeException("tree.TreeException: No such key");
+		}
+		return tNode.key;
+	}
+
+	/**
+	 * A node holding a key; its child links and the cached height and size
+	 * of its subtree come from the base node.
+	 */
+	static final class Node extends LinkedTreeBasis.Node<Node> {
+
+		long key;
+
+		Node(long key) {
+			this.key = key;
+		}
+
+		@Override
+		void copyKey(Node other) {
+			key = other.key;
+		}
+	}
+}
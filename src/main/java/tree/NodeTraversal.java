@@ -0,0 +1,190 @@
+package tree;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * Walks a tree of linked tree.TreeNode objects lazily in one traversal order.
+ * Each call to nextInt() walks only as far as the next key, and the
+ * depth-first orders keep at most one stack entry per tree level.
+ * @author Eric Canull
+ * @version 1.0
+ */
+final class NodeTraversal implements PrimitiveIterator.OfInt {
+
+	private final TraversalOrder order;
+	private TreeNode[] stack;
+	private int stackSize;
+	private TreeNode currentNode;
+	private ArrayDeque<TreeNode> queue;
+
+	/**
+	 * Walks a tree of linked nodes.
+	 * @param root the root of the tree, may be null
+	 * @param order the traversal order
+	 */
+	NodeTraversal(TreeNode root, TraversalOrder order) {
+		this.order = order;
+		stack = new TreeNode[16];
+		queue = new ArrayDeque<>();
+
+		switch (order) {
+			case PREORDER:
+				push(root);
+				break;
+			case INORDER:
+				pushLeftPath(root);
+				break;
+			case MORRIS_INORDER:
+				currentNode = root;
+				break;
+			case POSTORDER:
+				pushFirstLeafPath(root);
+				break;
+			default:
+				if (root != null) {
+					queue.add(root);
+				}
+		}
+	}
+
+	/**
+	 * Determines if the traversal has more keys.
+	 * @Return true if the iteration has more elements
+	 */
+	public boolean hasNext() {
+		switch (order) {
+			case MORRIS_INORDER:
+				return currentNode != null;
+			case LEVELORDER:
+				return !queue.isEmpty();
+			default:
+				return stackSize > 0;
+		}
+	}
+
+	/**
+	 * Gets the next key of the traversal.
+	 * @return An <code>int</code> numbered search key.
+	 */
+	public int nextInt() throws NoSuchElementException {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+
+		TreeNode treeNode;
+		switch (order) {
+			case PREORDER:
+				treeNode = pop();
+				push(treeNode.rightCircle);
+				push(treeNode.leftCircle);
+				return treeNode.searchKey;
+
+			case INORDER:
+				treeNode = pop();
+				pushLeftPath(treeNode.rightCircle);
+				return treeNode.searchKey;
+
+			case POSTORDER:
+				treeNode = pop();
+				if (stackSize > 0) {
+					TreeNode parent = stack[stackSize - 1];
+					if (parent.leftCircle == treeNode) {
+						pushFirstLeafPath(parent.rightCircle);
+					}
+				}
+				return treeNode.searchKey;
+
+			case LEVELORDER:
+				treeNode = queue.remove();
+				if (treeNode.leftCircle != null) {
+					queue.add(treeNode.leftCircle);
+				}
+				if (treeNode.rightCircle != null) {
+					queue.add(treeNode.rightCircle);
+				}
+				return treeNode.searchKey;
+
+			default:
+				return nextMorris();
+		}
+	}
+
+	/**
+	 * Advances the Morris walk to the next key.
+	 * @return The next in-order search key
+	 */
+	private int nextMorris() {
+		while (true) {
+			if (currentNode.leftCircle == null) {
+				int searchKey = currentNode.searchKey;
+				currentNode = currentNode.rightCircle;
+				return searchKey;
+			}
+
+			TreeNode predecessor = currentNode.leftCircle;
+			while (predecessor.rightCircle != null && predecessor.rightCircle != currentNode) {
+				predecessor = predecessor.rightCircle;
+			}
+
+			if (predecessor.rightCircle == null) {
+				predecessor.rightCircle = currentNode; // Thread back to the successor
+				currentNode = currentNode.leftCircle;
+			} else {
+				predecessor.rightCircle = null;        // Left subtree done: remove the thread
+				int searchKey = currentNode.searchKey;
+				currentNode = currentNode.rightCircle;
+				return searchKey;
+			}
+		}
+	}
+
+	/**
+	 * Pushes a node and all of its left descendants.
+	 * @param treeNode the top of the path, may be null
+	 */
+	private void pushLeftPath(TreeNode treeNode) {
+		while (treeNode != null) {
+			push(treeNode);
+			treeNode = treeNode.leftCircle;
+		}
+	}
+
+	/**
+	 * Pushes the path from a node down to the first leaf visited in
+	 * post-order, preferring left children over right ones.
+	 * @param treeNode the top of the path, may be null
+	 */
+	private void pushFirstLeafPath(TreeNode treeNode) {
+		while (treeNode != null) {
+			push(treeNode);
+			treeNode = treeNode.leftCircle != null ? treeNode.leftCircle : treeNode.rightCircle;
+		}
+	}
+
+	/**
+	 * Pushes a node on the traversal stack, ignoring null links.
+	 * @param treeNode A tree node or null
+	 */
+	private void push(TreeNode treeNode) {
+		if (treeNode == null) {
+			return;
+		}
+		if (stackSize == stack.length) {
+			stack = Arrays.copyOf(stack, stackSize * 2);
+		}
+		stack[stackSize++] = treeNode;
+	}
+
+	/**
+	 * Pops the top node of the traversal stack.
+	 * @return The top tree node
+	 */
+	private TreeNode pop() {
+		TreeNode treeNode = stack[--stackSize];
+		stack[stackSize] = null;
+		return treeNode;
+	}
+}
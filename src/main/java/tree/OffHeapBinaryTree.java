@@ -0,0 +1,277 @@
+package tree;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Binary search tree whose nodes live outside the Java heap. Every node is a
+ * 16 byte record of four ints (key, left child, right child, height) in a
+ * list of fixed-size ByteBuffer segments, so a tree of hundreds of millions
+ * of keys costs the garbage collector a handful of buffer objects.
+ *
+ * The segments are either direct buffers, released with the tree, or regions
+ * of a memory-mapped file. A file-backed tree keeps its root, size and free
+ * list in a header at the start of the file and can be reopened after a
+ * restart without rebuilding. Call force() to flush the mapped pages to disk
+ * and close() once the tree is no longer used.
+ * @author Eric Canull
+ * @version 1.0
+ */
+public final class OffHeapBinaryTree extends IndexedTreeBasis implements Closeable {
+
+	private static final int MAGIC = 0x46584248; // "FXBH"
+	private static final int VERSION = 1;
+
+	// Header layout, in bytes from the start of the file
+	private static final int HEADER_BYTES = 64;
+	private static final int MAGIC_OFFSET = 0;
+	private static final int VERSION_OFFSET = 4;
+	private static final int BALANCE_OFFSET = 8;
+	private static final int ROOT_OFFSET = 12;
+	private static final int SIZE_OFFSET = 16;
+	private static final int USED_OFFSET = 20;
+	private static final int FREE_LIST_OFFSET = 24;
+
+	// Record layout, in bytes from the start of a record
+	private static final int RECORD_SHIFT = 4;
+	private static final int KEY_OFFSET = 0;
+	private static final int LEFT_OFFSET = 4;
+	private static final int RIGHT_OFFSET = 8;
+	private static final int HEIGHT_OFFSET = 12;
+
+	// 2^20 records, 16 MB, per segment
+	private static final int SEGMENT_SHIFT = 20;
+	private static final int SEGMENT_MASK = (1 << SEGMENT_SHIFT) - 1;
+	private static final int SEGMENT_BYTES = 1 << (SEGMENT_SHIFT + RECORD_SHIFT);
+
+	private final FileChannel channel;  // null for direct buffers
+	private final ByteBuffer header;    // null for direct buffers
+	private ByteBuffer[] segments = new ByteBuffer[0];
+
+	/**
+	 * Binary search tree stored in direct buffers.
+	 * @param balanceMode the balancing strategy for inserts and deletes
+	 */
+	public OffHeapBinaryTree(BalanceMode balanceMode) {
+		super(balanceMode);
+		this.channel = null;
+		this.header = null;
+	}
+
+	/**
+	 * Binary search tree stored in a memory-mapped file.
+	 * @param balanceMode the balancing strategy for inserts and deletes
+	 * @param channel the open file channel
+	 * @param header the mapped header region
+	 * @Overload Direct buffer constructor
+	 */
+	private OffHeapBinaryTree(BalanceMode balanceMode, FileChannel channel, ByteBuffer header) {
+		super(balanceMode);
+		this.channel = channel;
+		this.header = header;
+	}
+
+	/**
+	 * Opens a tree stored in a file, creating the file if it does not exist
+	 * or is empty. An existing tree keeps the balance mode it was created
+	 * with.
+	 * @param file the backing file
+	 * @param balanceMode the balancing strategy for a newly created tree
+	 * @return The file-backed tree
+	 * @throws IOException if the file cannot be mapped or is not a tree file
+	 */
+	public static OffHeapBinaryTree open(Path file, BalanceMode balanceMode) throws IOException {
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		try {
+			boolean created = channel.size() == 0;
+			MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+			header.order(ByteOrder.LITTLE_ENDIAN);
+
+			if (created) {
+				header.putInt(MAGIC_OFFSET, MAGIC);
+				header.putInt(VERSION_OFFSET, VERSION);
+				header.putInt(BALANCE_OFFSET, balanceMode.ordinal());
+			} else if (header.getInt(MAGIC_OFFSET) != MAGIC || header.getInt(VERSION_OFFSET) != VERSION) {
+				throw new IOException("Not a tree file: " + file);
+			}
+
+			BalanceMode[] modes = BalanceMode.values();
+			int mode = header.getInt(BALANCE_OFFSET);
+			if (mode < 0 || mode >= modes.length) {
+				throw new IOException("Unknown balance mode in " + file);
+			}
+
+			OffHeapBinaryTree tree = new OffHeapBinaryTree(modes[mode], channel, header);
+			if (created) {
+				tree.stateChanged();
+			} else {
+				tree.restore();
+			}
+			return tree;
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Determines if the nodes are stored in a file.
+	 * @return <code>true</code> if the tree is memory-mapped
+	 */
+	public boolean isFileBacked() {
+		return channel != null;
+	}
+
+	/**
+	 * Writes the mapped header and node pages out to the file. Does nothing
+	 * for a tree in direct buffers.
+	 */
+	public void force() {
+		if (channel == null) {
+			return;
+		}
+		((MappedByteBuffer) header).force();
+		for (ByteBuffer segment : segments) {
+			((MappedByteBuffer) segment).force();
+		}
+	}
+
+	/**
+	 * Flushes a file-backed tree and closes its file, or drops the direct
+	 * buffers of an in-memory tree. The mapped regions are unmapped by the
+	 * garbage collector once the tree is unreachable.
+	 * @throws IOException if the file cannot be closed
+	 */
+	@Override
+	public void close() throws IOException {
+		force();
+		segments = new ByteBuffer[0];
+		if (channel != null) {
+			channel.close();
+		}
+	}
+
+	@Override
+	public int getCapacity() {
+		return segments.length << SEGMENT_SHIFT;
+	}
+
+	@Override
+	protected int key(int node) {
+		return segment(node).getInt(offset(node) + KEY_OFFSET);
+	}
+
+	@Override
+	protected int left(int node) {
+		return segment(node).getInt(offset(node) + LEFT_OFFSET);
+	}
+
+	@Override
+	protected int right(int node) {
+		return segment(node).getInt(offset(node) + RIGHT_OFFSET);
+	}
+
+	@Override
+	protected int height(int node) {
+		return segment(node).getInt(offset(node) + HEIGHT_OFFSET);
+	}
+
+	@Override
+	protected void setKey(int node, int searchKey) {
+		segment(node).putInt(offset(node) + KEY_OFFSET, searchKey);
+	}
+
+	@Override
+	protected void setLeft(int node, int child) {
+		segment(node).putInt(offset(node) + LEFT_OFFSET, child);
+	}
+
+	@Override
+	protected void setRight(int node, int child) {
+		segment(node).putInt(offset(node) + RIGHT_OFFSET, child);
+	}
+
+	@Override
+	protected void setHeight(int node, int height) {
+		segment(node).putInt(offset(node) + HEIGHT_OFFSET, height);
+	}
+
+	/**
+	 * Adds segments until the slots fit. A file-backed tree maps the next
+	 * region of its file, which grows the file.
+	 * @param slots the number of slots needed
+	 */
+	@Override
+	protected void ensureCapacity(int slots) {
+		int count = segments.length;
+		while ((long) count << SEGMENT_SHIFT < slots) {
+			count++;
+		}
+		if (count == segments.length) {
+			return;
+		}
+
+		int first = segments.length;
+		segments = Arrays.copyOf(segments, count);
+		for (int i = first; i < count; i++) {
+			segments[i] = allocateSegment(i);
+		}
+	}
+
+	/**
+	 * Writes the tree state into the file header.
+	 */
+	@Override
+	protected void stateChanged() {
+		if (header == null) {
+			return;
+		}
+		header.putInt(ROOT_OFFSET, rootIndex);
+		header.putInt(SIZE_OFFSET, size);
+		header.putInt(USED_OFFSET, used);
+		header.putInt(FREE_LIST_OFFSET, freeList);
+	}
+
+	/**
+	 * Reads the tree state back from the file header and maps the segments
+	 * holding the used slots.
+	 */
+	private void restore() {
+		rootIndex = header.getInt(ROOT_OFFSET);
+		size = header.getInt(SIZE_OFFSET);
+		used = header.getInt(USED_OFFSET);
+		freeList = header.getInt(FREE_LIST_OFFSET);
+		ensureCapacity(used);
+	}
+
+	private ByteBuffer allocateSegment(int index) {
+		ByteBuffer segment;
+		if (channel == null) {
+			segment = ByteBuffer.allocateDirect(SEGMENT_BYTES);
+		} else {
+			try {
+				long position = HEADER_BYTES + (long) index * SEGMENT_BYTES;
+				segment = channel.map(FileChannel.MapMode.READ_WRITE, position, SEGMENT_BYTES);
+			} catch (IOException e) {
+				throw new TreeException("tree.TreeException: Cannot map tree file: " + e.getMessage());
+			}
+		}
+		return segment.order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	private ByteBuffer segment(int node) {
+		return segments[node >>> SEGMENT_SHIFT];
+	}
+
+	private static int offset(int node) {
+		return (node & SEGMENT_MASK) << RECORD_SHIFT;
+	}
+}
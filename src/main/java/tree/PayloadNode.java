@@ -0,0 +1,40 @@
+package tree;
+
+/**
+ * A node that carries a payload beside its key: the value of a
+ * tree.IntTreeMap entry, or the occurrence count of a tree.IntMultiset key.
+ * Only the trees behind those two classes create them, so the nodes of a
+ * plain search tree carry no payload.
+ * @author Eric Canull
+ * @version 1.0
+ */
+final class PayloadNode extends TreeNode {
+
+	/**
+	 * The value mapped to the key, or null if the tree holds no values.
+	 */
+	Object value;
+
+	/**
+	 * The number of times the key occurs, one unless the tree is a multiset.
+	 */
+	int count;
+
+	/**
+	 * A node with a payload.
+	 * @param searchKey the search key of the node
+	 */
+	PayloadNode(int searchKey) {
+		super(searchKey, null, null);
+		this.count = 1;
+	}
+
+	/**
+	 * Takes the payload of another node.
+	 * @param other the node whose payload to copy
+	 */
+	void copyPayload(PayloadNode other) {
+		value = other.value;
+		count = other.count;
+	}
+}
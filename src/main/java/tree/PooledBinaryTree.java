@@ -0,0 +1,111 @@
+package tree;
+
+import java.util.Arrays;
+
+/**
+ * Binary search tree stored as a pool of parallel int arrays instead of
+ * tree.TreeNode objects. A node is an index into the arrays: its key, its left
+ * and right child indices and its cached height sit at the same position of
+ * each array, so a walk down the tree reads a few dense arrays and the pool
+ * costs the garbage collector nothing per key. Deleted slots are chained into
+ * a free list through the left array and reused by later inserts.
+ * @author Eric Canull
+ * @version 1.0
+ */
+public final class PooledBinaryTree extends IndexedTreeBasis {
+
+	private static final int DEFAULT_CAPACITY = 16;
+
+	// The node pool, one slot per index
+	private int[] keys;
+	private int[] left;
+	private int[] right;
+	private int[] height;
+
+	/**
+	 * Binary search tree stored as a node pool.
+	 */
+	public PooledBinaryTree() {
+		this(BalanceMode.NONE, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Binary search tree stored as a node pool.
+	 * @param balanceMode the balancing strategy for inserts and deletes
+	 * @param capacity the number of node slots to allocate up front
+	 * @Overload Default constructor
+	 */
+	public PooledBinaryTree(BalanceMode balanceMode, int capacity) {
+		super(balanceMode);
+		int slots = Math.max(1, capacity);
+		keys = new int[slots];
+		left = new int[slots];
+		right = new int[slots];
+		height = new int[slots];
+	}
+
+	/**
+	 * Gets the number of node slots the pool can hold before it grows.
+	 * @return The pool capacity
+	 */
+	@Override
+	public int getCapacity() {
+		return keys.length;
+	}
+
+	@Override
+	protected int key(int node) {
+		return keys[node];
+	}
+
+	@Override
+	protected int left(int node) {
+		return left[node];
+	}
+
+	@Override
+	protected int right(int node) {
+		return right[node];
+	}
+
+	@Override
+	protected int height(int node) {
+		return height[node];
+	}
+
+	@Override
+	protected void setKey(int node, int searchKey) {
+		keys[node] = searchKey;
+	}
+
+	@Override
+	protected void setLeft(int node, int child) {
+		left[node] = child;
+	}
+
+	@Override
+	protected void setRight(int node, int child) {
+		right[node] = child;
+	}
+
+	@Override
+	protected void setHeight(int node, int height) {
+		this.height[node] = height;
+	}
+
+	/**
+	 * Grows every pool array by half again until the slots fit.
+	 * @param slots the number of slots needed
+	 */
+	@Override
+	protected void ensureCapacity(int slots) {
+		if (slots <= keys.length) {
+			return;
+		}
+		int capacity = Math.max(slots, keys.length + (keys.length >> 1) + 1);
+		keys = Arrays.copyOf(keys, capacity);
+		left = Arrays.copyOf(left, capacity);
+		right = Arrays.copyOf(right, capacity);
+		height = Arrays.copyOf(height, capacity);
+	}
+}
@@ -0,0 +1,100 @@
+package tree;
+
+import java.util.Arrays;
+
+/**
+ * The trace of one search: the keys of the nodes it visited, root first,
+ * the direction it left each of them in, and whether it found the key. The
+ * directions are packed one bit per step. A renderer highlights the path
+ * from the trace, so the search itself never writes to the tree.
+ * @author Eric Canull
+ * @version 1.0
+ */
+public final class SearchPath {
+
+	private final int[] keys;
+	private final long[] rightTurns;   // Bit i set: step i went to the right child
+	private final int length;
+	private final boolean found;
+
+	/**
+	 * The trace of one search.
+	 * @param keys the visited keys, root first
+	 * @param rightTurns the packed directions, one bit per step
+	 * @param length the number of visited keys
+	 * @param found <code>true</code> if the last visited key is the search key
+	 */
+	SearchPath(int[] keys, long[] rightTurns, int length, boolean found) {
+		this.keys = keys;
+		this.rightTurns = rightTurns;
+		this.length = length;
+		this.found = found;
+	}
+
+	/**
+	 * Determines if the search found its key.
+	 * @return <code>true</code> if the key is in the tree
+	 */
+	public boolean isFound() {
+		return found;
+	}
+
+	/**
+	 * Gets the number of nodes the search visited.
+	 * @return The path length, zero for an empty tree
+	 */
+	public int length() {
+		return length;
+	}
+
+	/**
+	 * Gets the key of a visited node.
+	 * @param step the position on the path, zero for the root
+	 * @return The search key of the node
+	 * @throws IndexOutOfBoundsException if the step is not on the path
+	 */
+	public int keyAt(int step) {
+		checkStep(step);
+		return keys[step];
+	}
+
+	/**
+	 * Determines which way the search left a visited node. The last node
+	 * of a successful search is not left at all.
+	 * @param step the position on the path, zero for the root
+	 * @return <code>true</code> if the search went on to the right child
+	 * @throws IndexOutOfBoundsException if the step is not on the path
+	 */
+	public boolean wentRight(int step) {
+		checkStep(step);
+		return (rightTurns[step >>> 6] & (1L << step)) != 0;
+	}
+
+	/**
+	 * Determines if the search visited a node with the given key.
+	 * @param searchKey a search key
+	 * @return <code>true</code> if the key is on the path
+	 */
+	public boolean contains(int searchKey) {
+		for (int i = 0; i < length; i++) {
+			if (keys[i] == searchKey) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Gets the visited keys.
+	 * @return A copy of the keys on the path, root first
+	 */
+	public int[] toArray() {
+		return Arrays.copyOf(keys, length);
+	}
+
+	private void checkStep(int step) {
+		if (step < 0 || step >= length) {
+			throw new IndexOutOfBoundsException("No step " + step);
+		}
+	}
+}
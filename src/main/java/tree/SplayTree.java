@@ -0,0 +1,284 @@
+package tree;
+
+import java.util.Arrays;
+
+/**
+ * Self-adjusting binary search tree. Every insert, retrieve and delete
+ * splays the node it reaches to the root, so keys that are looked up often
+ * stay near the top and a skewed run of lookups costs far less than its
+ * length times log n; any run of m operations costs O(m log n) in total.
+ * The splay is top-down: one loop walks down from the root, rotating pairs
+ * of nodes on the way and hanging the passed subtrees on a left and a right
+ * tree that are joined under the found node at the end.
+ *
+ * Since even retrieveItem() restructures the tree, a splay tree must not be
+ * read and changed on different threads. The nodes keep no cached height or
+ * size, so getHeight() walks the whole tree.
+ * @author Eric Canull
+ * @version 1.0
+ */
+public final class SplayTree extends BinaryTreeBasis implements DrawableTree {
+
+	/**
+	 * Reused by every splay as the head of the left and right trees.
+	 */
+	private final TreeNode header = new TreeNode(0, null, null);
+
+	private int size;
+
+	/**
+	 * Self-adjusting binary search tree.
+	 */
+	public SplayTree() {
+		super();
+	}
+
+	/**
+	 * Self-adjusting binary search tree.
+	 * @param rootKey the search key of the root node
+	 * @Overload Default constructor
+	 */
+	public SplayTree(int rootKey) {
+		super(rootKey);
+		size = 1;
+	}
+
+	@Override
+	public void makeEmpty() {
+		root = null;
+		size = 0;
+	}
+
+	@Override
+	public void setRootItem(int newKey) {
+		root = new TreeNode(newKey, null, null);
+		size = 1;
+	}
+
+	/**
+	 * Inserts a new search key and splays it to the root. A key that is
+	 * already in the tree is splayed to the root and otherwise ignored.
+	 * @param searchKey a unique identifying value
+	 */
+	@Override
+	public void insertItem(int searchKey) {
+		if (root == null) {
+			setRootItem(searchKey);
+			return;
+		}
+
+		root = splay(root, searchKey);
+		if (root.searchKey == searchKey) {
+			return;
+		}
+
+		// The root is now the neighbor of the new key; split it around the key
+		TreeNode tNode = new TreeNode(searchKey, null, null);
+		if (searchKey < root.searchKey) {
+			tNode.leftCircle = root.leftCircle;
+			tNode.rightCircle = root;
+			root.leftCircle = null;
+		} else {
+			tNode.rightCircle = root.rightCircle;
+			tNode.leftCircle = root;
+			root.rightCircle = null;
+		}
+		root = tNode;
+		size++;
+	}
+
+	/**
+	 * Retrieves a search key and splays it, or the last node on its search
+	 * path, to the root.
+	 * @param searchKey a unique identifying value
+	 * @return <code>true</code> if the key is in the tree
+	 */
+	@Override
+	public boolean retrieveItem(int searchKey) {
+		if (root == null) {
+			return false;
+		}
+		root = splay(root, searchKey);
+		return root.searchKey == searchKey;
+	}
+
+	/**
+	 * Deletes a search key. The key is splayed to the root, and its left
+	 * subtree, splayed at the same key so that its largest node becomes its
+	 * root, takes over the right subtree.
+	 * @param searchKey a unique identifying value
+	 * @return <code>true</code> if the key was found and deleted
+	 */
+	@Override
+	public boolean deleteItem(int searchKey) {
+		if (root == null) {
+			return false;
+		}
+
+		root = splay(root, searchKey);
+		if (root.searchKey != searchKey) {
+			return false;
+		}
+
+		if (root.leftCircle == null) {
+			root = root.rightCircle;
+		} else {
+			TreeNode right = root.rightCircle;
+			root = splay(root.leftCircle, searchKey);
+			root.rightCircle = right;
+		}
+		size--;
+		return true;
+	}
+
+	@Override
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * Gets the number of levels in the tree. Walks the whole tree, so it
+	 * costs O(n).
+	 * @return The tree height, zero for an empty tree
+	 */
+	@Override
+	public int getHeight() {
+		if (root == null) {
+			return 0;
+		}
+
+		TreeNode[] stack = new TreeNode[16];
+		int[] depths = new int[16];
+		int stackSize = 0;
+		int height = 0;
+
+		stack[stackSize] = root;
+		depths[stackSize++] = 1;
+		while (stackSize > 0) {
+			TreeNode tNode = stack[--stackSize];
+			int depth = depths[stackSize];
+			height = Math.max(height, depth);
+
+			if (stackSize + 2 > stack.length) {
+				stack = Arrays.copyOf(stack, stack.length * 2);
+				depths = Arrays.copyOf(depths, depths.length * 2);
+			}
+			if (tNode.leftCircle != null) {
+				stack[stackSize] = tNode.leftCircle;
+				depths[stackSize++] = depth + 1;
+			}
+			if (tNode.rightCircle != null) {
+				stack[stackSize] = tNode.rightCircle;
+				depths[stackSize++] = depth + 1;
+			}
+		}
+
+		return height;
+	}
+
+	/**
+	 * Copies the shape of the linked nodes under root.
+	 * @return The keys and child links of the tree
+	 */
+	@Override
+	public TreeShape shape() {
+		return TreeShape.of(root, getSize());
+	}
+
+	/**
+	 * Traces the search for a key without splaying, for a view that
+	 * highlights it.
+	 * @param searchKey the search key
+	 * @return The keys visited and the direction taken at each
+	 */
+	@Override
+	public SearchPath searchPath(int searchKey) {
+		int[] keys = new int[32];
+		long[] rightTurns = new long[1];
+		int length = 0;
+
+		TreeNode tNode = root;
+		while (tNode != null) {
+			if (length == keys.length) {
+				keys = Arrays.copyOf(keys, length * 2);
+				rightTurns = Arrays.copyOf(rightTurns, keys.length >>> 6);
+			}
+			keys[length] = tNode.searchKey;
+			if (searchKey == tNode.searchKey) {
+				return new SearchPath(keys, rightTurns, length + 1, true);
+			}
+			if (searchKey > tNode.searchKey) {
+				rightTurns[length >>> 6] |= 1L << length;
+				tNode = tNode.rightCircle;
+			} else {
+				tNode = tNode.leftCircle;
+			}
+			length++;
+		}
+
+		return new SearchPath(keys, rightTurns, length, false);
+	}
+
+	/**
+	 * Splays a key to the top of a subtree: the node holding it, or the
+	 * last node on its search path, becomes the new subtree root.
+	 * @param tNode the subtree root, not null
+	 * @param searchKey the search key
+	 * @return The new subtree root
+	 */
+	private TreeNode splay(TreeNode tNode, int searchKey) {
+		TreeNode leftMax = header;    // Largest node of the left tree
+		TreeNode rightMin = header;   // Smallest node of the right tree
+		header.leftCircle = null;
+		header.rightCircle = null;
+
+		while (true) {
+			if (searchKey < tNode.searchKey) {
+				if (tNode.leftCircle == null) {
+					break;
+				}
+				if (searchKey < tNode.leftCircle.searchKey) {
+					// Zig-zig: rotate right before linking
+					TreeNode pivot = tNode.leftCircle;
+					tNode.leftCircle = pivot.rightCircle;
+					pivot.rightCircle = tNode;
+					tNode = pivot;
+					if (tNode.leftCircle == null) {
+						break;
+					}
+				}
+				rightMin.leftCircle = tNode;
+				rightMin = tNode;
+				tNode = tNode.leftCircle;
+			} else if (searchKey > tNode.searchKey) {
+				if (tNode.rightCircle == null) {
+					break;
+				}
+				if (searchKey > tNode.rightCircle.searchKey) {
+					// Zag-zag: rotate left before linking
+					TreeNode pivot = tNode.rightCircle;
+					tNode.rightCircle = pivot.leftCircle;
+					pivot.leftCircle = tNode;
+					tNode = pivot;
+					if (tNode.rightCircle == null) {
+						break;
+					}
+				}
+				leftMax.rightCircle = tNode;
+				leftMax = tNode;
+				tNode = tNode.rightCircle;
+			} else {
+				break;
+			}
+		}
+
+		// Reassemble: the left and right trees become the new subtrees
+		leftMax.rightCircle = tNode.leftCircle;
+		rightMin.leftCircle = tNode.rightCircle;
+		tNode.leftCircle = header.rightCircle;
+		tNode.rightCircle = header.leftCircle;
+		header.leftCircle = null;
+		header.rightCircle = null;
+		return tNode;
+	}
+}
@@ -0,0 +1,37 @@
+package tree;
+
+/**
+ * The orders in which a tree traversal can visit the keys.
+ * @author Eric Canull
+ * @version 1.0
+ */
+public enum TraversalOrder {
+
+	/**
+	 * Each node before its left and right subtrees.
+	 */
+	PREORDER,
+
+	/**
+	 * Ascending key order, using a stack of at most one node per level.
+	 */
+	INORDER,
+
+	/**
+	 * Ascending key order without a stack. The walk threads predecessor
+	 * links through the tree while it runs and removes them as it goes,
+	 * so the tree must not be changed or read by anything else until the
+	 * walk has finished.
+	 */
+	MORRIS_INORDER,
+
+	/**
+	 * Each node after its left and right subtrees.
+	 */
+	POSTORDER,
+
+	/**
+	 * Breadth-first, one level at a time.
+	 */
+	LEVELORDER
+}
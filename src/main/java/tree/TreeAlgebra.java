@@ -0,0 +1,336 @@
+package tree;
+
+import static tree.TreeNode.height;
+import static tree.TreeNode.size;
+import static tree.TreeNode.update;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Split, join and the set operations built on them, working directly on
+ * AVL-balanced tree.TreeNode subtrees. Join links two subtrees and a middle
+ * node by walking down the spine of the taller subtree to a node of about
+ * the height of the shorter one, so it costs O(|h1 - h2|). Split cuts a
+ * subtree along the search path of a key and joins the pieces back up in
+ * O(log n). Union, intersection and difference split one tree by the root
+ * key of the other and recurse on the two halves, which costs
+ * O(m log(n / m + 1)) for trees of sizes m <= n; the halves touch disjoint
+ * nodes, so large ones run in parallel on the common fork-join pool.
+ *
+ * Every operation reuses the nodes of its inputs and leaves them in the
+ * result, so the input subtrees must not be used afterwards.
+ * @author Eric Canull
+ * @version 1.0
+ */
+final class TreeAlgebra {
+
+	/**
+	 * The combined size below which the halves are not forked.
+	 */
+	private static final int PARALLEL_THRESHOLD = 1 << 13;
+
+	private TreeAlgebra() {
+	}
+
+	/**
+	 * The pieces of a subtree cut at a key.
+	 */
+	static final class Split {
+
+		TreeNode less;      // The keys smaller than the split key
+		TreeNode match;     // The node holding the split key, unlinked, or null
+		TreeNode greater;   // The keys larger than the split key
+	}
+
+	/**
+	 * Cuts a subtree at a key.
+	 * @param tNode the subtree root, may be null
+	 * @param searchKey the split key
+	 * @return The balanced pieces below and above the key
+	 */
+	static Split split(TreeNode tNode, int searchKey) {
+		if (tNode == null) {
+			return new Split();
+		}
+
+		TreeNode left = tNode.leftCircle;
+		TreeNode right = tNode.rightCircle;
+		if (searchKey == tNode.searchKey) {
+			Split pieces = new Split();
+			pieces.less = left;
+			pieces.greater = right;
+			pieces.match = detach(tNode);
+			return pieces;
+		}
+
+		if (searchKey < tNode.searchKey) {
+			Split pieces = split(left, searchKey);
+			pieces.greater = join(pieces.greater, tNode, right);
+			return pieces;
+		}
+
+		Split pieces = split(right, searchKey);
+		pieces.less = join(left, tNode, pieces.less);
+		return pieces;
+	}
+
+	/**
+	 * Joins two subtrees around a middle node. Every key of the left
+	 * subtree must be smaller than the middle key and every key of the
+	 * right subtree larger.
+	 * @param left the smaller keys, may be null
+	 * @param middle the node holding the middle key
+	 * @param right the larger keys, may be null
+	 * @return The root of the balanced result
+	 */
+	static TreeNode join(TreeNode left, TreeNode middle, TreeNode right) {
+		if (height(left) > height(right) + 1) {
+			return joinRight(left, middle, right);
+		}
+		if (height(right) > height(left) + 1) {
+			return joinLeft(left, middle, right);
+		}
+		return link(left, middle, right);
+	}
+
+	/**
+	 * Joins two subtrees without a middle node. Every key of the left
+	 * subtree must be smaller than every key of the right subtree.
+	 * @param left the smaller keys, may be null
+	 * @param right the larger keys, may be null
+	 * @return The root of the balanced result
+	 */
+	static TreeNode join(TreeNode left, TreeNode right) {
+		if (left == null) {
+			return right;
+		}
+		if (right == null) {
+			return left;
+		}
+
+		// Borrow the largest node of the left subtree as the middle
+		Split pieces = splitLast(left);
+		return join(pieces.less, pieces.match, right);
+	}
+
+	/**
+	 * Merges two subtrees into one holding every key of either.
+	 * @param first A subtree, may be null
+	 * @param second A subtree, may be null
+	 * @return The root of the balanced union
+	 */
+	static TreeNode union(TreeNode first, TreeNode second) {
+		return run(SetTask.UNION, first, second);
+	}
+
+	/**
+	 * Keeps the keys that are in both subtrees.
+	 * @param first A subtree, may be null
+	 * @param second A subtree, may be null
+	 * @return The root of the balanced intersection
+	 */
+	static TreeNode intersection(TreeNode first, TreeNode second) {
+		return run(SetTask.INTERSECTION, first, second);
+	}
+
+	/**
+	 * Keeps the keys of the first subtree that are not in the second.
+	 * @param first A subtree, may be null
+	 * @param second A subtree, may be null
+	 * @return The root of the balanced difference
+	 */
+	static TreeNode difference(TreeNode first, TreeNode second) {
+		return run(SetTask.DIFFERENCE, first, second);
+	}
+
+	/**
+	 * Runs one set operation on a pair of subtrees, forking the two halves
+	 * when the pair is large.
+	 */
+	@SuppressWarnings("serial")
+	private static final class SetTask extends RecursiveTask<TreeNode> {
+
+		static final int UNION = 0;
+		static final int INTERSECTION = 1;
+		static final int DIFFERENCE = 2;
+
+		private final int operation;
+		private final TreeNode first;
+		private final TreeNode second;
+
+		SetTask(int operation, TreeNode first, TreeNode second) {
+			this.operation = operation;
+			this.first = first;
+			this.second = second;
+		}
+
+		@Override
+		protected TreeNode compute() {
+			if (first == null) {
+				return operation == UNION ? second : null;
+			}
+			if (second == null) {
+				return operation == INTERSECTION ? null : first;
+			}
+			boolean large = (long) size(first) + size(second) >= PARALLEL_THRESHOLD;
+
+			// Split the second tree by the root key of the first, or for a
+			// difference the first tree by the root key of the second
+			TreeNode pivot;
+			TreeNode leftOf;
+			TreeNode rightOf;
+			Split pieces;
+			if (operation == DIFFERENCE) {
+				pivot = second;
+				leftOf = second.leftCircle;
+				rightOf = second.rightCircle;
+				pieces = split(first, second.searchKey);
+			} else {
+				pivot = first;
+				leftOf = first.leftCircle;
+				rightOf = first.rightCircle;
+				pieces = split(second, first.searchKey);
+			}
+
+			SetTask leftTask;
+			SetTask rightTask;
+			if (operation == DIFFERENCE) {
+				leftTask = new SetTask(operation, pieces.less, leftOf);
+				rightTask = new SetTask(operation, pieces.greater, rightOf);
+			} else {
+				leftTask = new SetTask(operation, leftOf, pieces.less);
+				rightTask = new SetTask(operation, rightOf, pieces.greater);
+			}
+
+			TreeNode left;
+			TreeNode right;
+			if (large) {
+				leftTask.fork();
+				right = rightTask.compute();
+				left = leftTask.join();
+			} else {
+				left = leftTask.compute();
+				right = rightTask.compute();
+			}
+
+			switch (operation) {
+				case UNION:
+					return TreeAlgebra.join(left, detach(pivot), right);
+				case INTERSECTION:
+					return pieces.match != null
+							? TreeAlgebra.join(left, detach(pivot), right)
+							: TreeAlgebra.join(left, right);
+				default:
+					return TreeAlgebra.join(left, right);
+			}
+		}
+
+		/**
+		 * Runs the task on the common pool when it is large, or in the
+		 * calling thread otherwise.
+		 * @return The root of the result
+		 */
+		TreeNode run() {
+			if ((long) size(first) + size(second) >= PARALLEL_THRESHOLD) {
+				return ForkJoinPool.commonPool().invoke(this);
+			}
+			return compute();
+		}
+	}
+
+	/**
+	 * Runs a set operation, on the common fork-join pool if it is large.
+	 * @param operation one of the SetTask operation codes
+	 * @param first A subtree, may be null
+	 * @param second A subtree, may be null
+	 * @return The root of the result
+	 */
+	private static TreeNode run(int operation, TreeNode first, TreeNode second) {
+		return new SetTask(operation, first, second).run();
+	}
+
+	/**
+	 * Walks down the right spine of the taller left subtree to where the
+	 * right subtree fits, links them there and rebalances on the way up.
+	 */
+	private static TreeNode joinRight(TreeNode left, TreeNode middle, TreeNode right) {
+		TreeNode spine = left.rightCircle;
+		if (height(spine) <= height(right) + 1) {
+			TreeNode joined = link(spine, middle, right);
+			if (height(joined) <= height(left.leftCircle) + 1) {
+				left.rightCircle = joined;
+				update(left);
+				return left;
+			}
+			left.rightCircle = TreeNode.rotateRight(joined);
+			update(left);
+			return TreeNode.rotateLeft(left);
+		}
+
+		left.rightCircle = joinRight(spine, middle, right);
+		update(left);
+		if (height(left.rightCircle) <= height(left.leftCircle) + 1) {
+			return left;
+		}
+		return TreeNode.rotateLeft(left);
+	}
+
+	/**
+	 * Walks down the left spine of the taller right subtree to where the
+	 * left subtree fits, links them there and rebalances on the way up.
+	 */
+	private static TreeNode joinLeft(TreeNode left, TreeNode middle, TreeNode right) {
+		TreeNode spine = right.leftCircle;
+		if (height(spine) <= height(left) + 1) {
+			TreeNode joined = link(left, middle, spine);
+			if (height(joined) <= height(right.rightCircle) + 1) {
+				right.leftCircle = joined;
+				update(right);
+				return right;
+			}
+			right.leftCircle = TreeNode.rotateLeft(joined);
+			update(right);
+			return TreeNode.rotateRight(right);
+		}
+
+		right.leftCircle = joinLeft(left, middle, spine);
+		update(right);
+		if (height(right.leftCircle) <= height(right.rightCircle) + 1) {
+			return right;
+		}
+		return TreeNode.rotateRight(right);
+	}
+
+	/**
+	 * Cuts the largest node off a subtree.
+	 * @param tNode A non-empty subtree
+	 * @return The rest of the subtree as less, and the largest node as match
+	 */
+	private static Split splitLast(TreeNode tNode) {
+		if (tNode.rightCircle == null) {
+			Split pieces = new Split();
+			pieces.less = tNode.leftCircle;
+			pieces.match = detach(tNode);
+			return pieces;
+		}
+
+		Split pieces = splitLast(tNode.rightCircle);
+		pieces.less = join(tNode.leftCircle, tNode, pieces.less);
+		return pieces;
+	}
+
+	private static TreeNode link(TreeNode left, TreeNode middle, TreeNode right) {
+		middle.leftCircle = left;
+		middle.rightCircle = right;
+		update(middle);
+		return middle;
+	}
+
+	private static TreeNode detach(TreeNode tNode) {
+		tNode.leftCircle = null;
+		tNode.rightCircle = null;
+		update(tNode);
+		return tNode;
+	}
+}
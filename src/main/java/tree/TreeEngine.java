@@ -0,0 +1,67 @@
+package tree;
+
+import java.util.PrimitiveIterator;
+
+/**
+ * The operations every tree structure offers, so that views and callers can
+ * work with any of them: tree.BinarySearchTree, tree.SplayTree, the
+ * slot-indexed trees and tree.ConcurrentBinaryTree. Keys are primitive ints
+ * and a tree holds each key at most once. Trees that can be drawn also
+ * implement tree.DrawableTree.
+ * @author Eric Canull
+ * @version 1.0
+ */
+public interface TreeEngine {
+
+	/**
+	 * Checks if the tree is empty.
+	 * @return <code>true</code> if the tree has no keys
+	 */
+	boolean isEmpty();
+
+	/**
+	 * Makes the tree empty.
+	 */
+	void makeEmpty();
+
+	/**
+	 * Inserts a new search key into the tree. A key that is already in
+	 * the tree is ignored.
+	 * @param searchKey a unique identifying value
+	 */
+	void insertItem(int searchKey);
+
+	/**
+	 * Retrieves a search key from the tree.
+	 * @param searchKey a unique identifying value
+	 * @return <code>true</code> if the key is in the tree
+	 */
+	boolean retrieveItem(int searchKey);
+
+	/**
+	 * Deletes a search key from the tree.
+	 * @param searchKey a unique identifying value
+	 * @return <code>true</code> if the key was found and deleted
+	 */
+	boolean deleteItem(int searchKey);
+
+	/**
+	 * Gets the number of keys in the tree.
+	 * @return The tree size
+	 */
+	int getSize();
+
+	/**
+	 * Gets the number of levels in the tree.
+	 * @return The tree height, zero for an empty tree
+	 */
+	int getHeight();
+
+	/**
+	 * Starts a lazy traversal of the keys.
+	 * @param order the traversal order
+	 * @return An iterator over the search keys in that order
+	 */
+	PrimitiveIterator.OfInt traversal(TraversalOrder order);
+
+}
@@ -0,0 +1,187 @@
+package tree;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.Objects;
+import java.util.PrimitiveIterator;
+
+/**
+ * Streams the keys of a traversal out as decimal text, each followed by a
+ * separator, without building the whole output in memory. Keys are encoded
+ * straight into one reusable byte buffer, which is written out whenever it
+ * fills up, so an export allocates nothing per key and holds at most one
+ * buffer of text however large the tree is. An exporter may be reused for
+ * many exports but not by two threads at once.
+ * @author Eric Canull
+ * @version 1.0
+ */
+public final class TreeExporter {
+
+	/**
+	 * The default buffer size in bytes.
+	 */
+	public static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+
+	/**
+	 * The longest encoded key, "-2147483648", plus the separator.
+	 */
+	private static final int MAX_KEY_LENGTH = 12;
+
+	private final byte[] bytes;
+	private final ByteBuffer buffer;    // Wraps bytes, for channels
+	private char[] chars;               // Created on the first export to a Writer
+	private final byte separator;
+
+	/**
+	 * Streams traversals out as space-separated decimal keys.
+	 */
+	public TreeExporter() {
+		this(DEFAULT_BUFFER_SIZE, ' ');
+	}
+
+	/**
+	 * Streams traversals out as decimal keys.
+	 * @param bufferSize the size of the reusable buffer in bytes
+	 * @param separator the ASCII character written after every key
+	 * @throws IllegalArgumentException if the buffer cannot hold one key or
+	 *         the separator is not ASCII
+	 * @Overload Default constructor
+	 */
+	public TreeExporter(int bufferSize, char separator) {
+		if (bufferSize < MAX_KEY_LENGTH) {
+			throw new IllegalArgumentException("Buffer too small: " + bufferSize);
+		}
+		if (separator > 0x7F) {
+			throw new IllegalArgumentException("Separator is not ASCII: " + separator);
+		}
+		this.bytes = new byte[bufferSize];
+		this.buffer = ByteBuffer.wrap(bytes);
+		this.separator = (byte) separator;
+	}
+
+	/**
+	 * Writes a traversal to a byte stream as ASCII text. The stream is
+	 * neither flushed nor closed.
+	 * @param tree the tree to traverse
+	 * @param order the traversal order
+	 * @param out the destination
+	 * @return The number of keys written
+	 * @throws IOException if the stream cannot be written
+	 */
+	public long export(TreeEngine tree, TraversalOrder order, OutputStream out) throws IOException {
+		Objects.requireNonNull(out);
+		return export(traversal(tree, order), (length) -> out.write(bytes, 0, length));
+	}
+
+	/**
+	 * Writes a traversal to a channel as ASCII text. The channel is not
+	 * closed.
+	 * @param tree the tree to traverse
+	 * @param order the traversal order
+	 * @param out the destination
+	 * @return The number of keys written
+	 * @throws IOException if the channel cannot be written
+	 */
+	public long export(TreeEngine tree, TraversalOrder order, WritableByteChannel out) throws IOException {
+		Objects.requireNonNull(out);
+		return export(traversal(tree, order), (length) -> {
+			buffer.clear().limit(length);
+			while (buffer.hasRemaining()) {
+				out.write(buffer);
+			}
+		});
+	}
+
+	/**
+	 * Writes a traversal to a character stream. The stream is neither
+	 * flushed nor closed.
+	 * @param tree the tree to traverse
+	 * @param order the traversal order
+	 * @param out the destination
+	 * @return The number of keys written
+	 * @throws IOException if the stream cannot be written
+	 */
+	public long export(TreeEngine tree, TraversalOrder order, Writer out) throws IOException {
+		Objects.requireNonNull(out);
+		if (chars == null) {
+			chars = new char[bytes.length];
+		}
+		return export(traversal(tree, order), (length) -> {
+			// ASCII bytes map one to one onto chars
+			for (int i = 0; i < length; i++) {
+				chars[i] = (char) bytes[i];
+			}
+			out.write(chars, 0, length);
+		});
+	}
+
+	/**
+	 * Starts the walk of an export. A Morris walk is run as a plain
+	 * in-order walk instead, since a destination that fails would stop it
+	 * with the tree still threaded.
+	 */
+	private static PrimitiveIterator.OfInt traversal(TreeEngine tree, TraversalOrder order) {
+		return tree.traversal(order == TraversalOrder.MORRIS_INORDER ? TraversalOrder.INORDER : order);
+	}
+
+	/**
+	 * Fills the buffer with encoded keys, draining it into the sink each
+	 * time too little room is left for another key.
+	 */
+	private long export(PrimitiveIterator.OfInt keys, Sink sink) throws IOException {
+		long count = 0;
+		int length = 0;
+		while (keys.hasNext()) {
+			if (bytes.length - length < MAX_KEY_LENGTH) {
+				sink.drain(length);
+				length = 0;
+			}
+			length = encode(keys.nextInt(), length);
+			bytes[length++] = separator;
+			count++;
+		}
+		if (length > 0) {
+			sink.drain(length);
+		}
+		return count;
+	}
+
+	/**
+	 * Writes a key in decimal into the buffer. The digits are produced
+	 * from the negated key, which covers Integer.MIN_VALUE as well.
+	 * @param searchKey the key
+	 * @param position where the text starts
+	 * @return The position just past the text
+	 */
+	private int encode(int searchKey, int position) {
+		int negative = searchKey < 0 ? searchKey : -searchKey;
+		if (searchKey < 0) {
+			bytes[position++] = '-';
+		}
+
+		int digits = 1;
+		for (int bound = -10; digits < 10 && negative <= bound; bound *= 10) {
+			digits++;
+		}
+
+		int end = position + digits;
+		for (int i = end - 1; i >= position; i--) {
+			int quotient = negative / 10;
+			bytes[i] = (byte) ('0' + quotient * 10 - negative);
+			negative = quotient;
+		}
+		return end;
+	}
+
+	/**
+	 * Takes the first bytes of the buffer.
+	 */
+	@FunctionalInterface
+	private interface Sink {
+
+		void drain(int length) throws IOException;
+	}
+}
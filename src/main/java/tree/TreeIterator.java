@@ -1,49 +1,49 @@
 package tree;
 
-import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
 
 /**
- * Iterates through the tree using the java.util.Iterator<E> interface.
+ * Iterates through the tree using the java.util.PrimitiveIterator.OfInt
+ * interface. Traversals are lazy: each call to nextInt() walks only as far
+ * as the next key, and the depth-first orders keep at most one stack entry
+ * per tree level. Keys are returned as primitive ints by nextInt().
  * @author Eric Canull
  * @version 1.0
  */
-public final class TreeIterator implements Iterator<Integer> {
+public final class TreeIterator implements PrimitiveIterator.OfInt {
 	
-	private BinaryTreeBasis binaryTree;
-	private TreeNode currentNode;
-	private LinkedList<TreeNode> queue;
+	private TreeEngine binaryTree;
+	private TraversalOrder order;
+	private PrimitiveIterator.OfInt traversal;
 	
 	/**
-	 * Iterates through the tree using the java.util.Iterator<E> interface.
-	 * @param binaryTree the abstract binary tree class
+	 * Iterates through the tree using the java.util.PrimitiveIterator.OfInt interface.
+	 * @param binaryTree the tree to walk
 	 */
-	public TreeIterator(BinaryTreeBasis binaryTree) {
+	public TreeIterator(TreeEngine binaryTree) {
 		this.binaryTree = binaryTree;
-		currentNode = null;
-		queue = new LinkedList<>();
+		order = null;
+		traversal = null;
 	}
 	
 	/**
-	 * Determines if there are elements in the queue. 
+	 * Determines if the traversal has more keys.
 	 * @Return true if the iteration has more elements
 	 */
 	public boolean hasNext() {
-		return !queue.isEmpty();
+		return traversal != null && traversal.hasNext();
 	}
 	
 	/**
-	 * Gets the next element in the queue.
-	 * @return An <code>Integer</code> numbered search key.
+	 * Gets the next key of the traversal.
+	 * @return An <code>int</code> numbered search key.
 	 */
-	public Integer next() throws NoSuchElementException {
-		try {
-			currentNode = queue.remove();
-			return currentNode.rootCircle.getSearchKey();
-		} catch (QueueException e) {
+	public int nextInt() throws NoSuchElementException {
+		if (traversal == null) {
 			throw new NoSuchElementException();
 		}
+		return traversal.nextInt();
 	}
 	
 	/**
@@ -54,62 +54,59 @@ public final class TreeIterator implements Iterator<Integer> {
 	}
 	
 	/**
-	 * Sets the tree traversal to in-order
+	 * Sets the tree traversal to pre-order
 	 */
 	public void setPreorder() {
-		queue.clear();
-		preorder(binaryTree.root);
-	}
-	
-	/**
-	 * Recursively traverses the tree in-order
-	 * @param treeNode A tree with nodes
-	 */
-	private void preorder(TreeNode treeNode) {
-		if (treeNode != null) {
-			queue.add(treeNode);
-			preorder(treeNode.leftCircle);
-			preorder(treeNode.rightCircle);
-		}
+		setOrder(TraversalOrder.PREORDER);
 	}
 	
 	/**
 	 * Sets the tree traversal to in-order
 	 */
 	public void setInorder() {
-		queue.clear();
-		inorder(binaryTree.root);
+		setOrder(TraversalOrder.INORDER);
 	}
-	
+
 	/**
-	 * Recursively traverses the tree in-order
-	 * @param treeNode A tree with nodes
+	 * Sets the tree traversal to a Morris in-order walk. The walk needs no
+	 * stack: it temporarily threads the right link of each in-order
+	 * predecessor back to its successor and removes the thread on the way
+	 * out. The tree must not be changed or read by anything else until the
+	 * walk has finished; starting another traversal on this iterator
+	 * finishes the walk first, which restores every link.
 	 */
-	private void inorder(TreeNode treeNode) {
-		if (treeNode != null) {
-			inorder(treeNode.leftCircle);
-			queue.add(treeNode);
-			inorder(treeNode.rightCircle);
-		}
+	public void setMorrisInorder() {
+		setOrder(TraversalOrder.MORRIS_INORDER);
 	}
 	
 	/**
 	 * Sets the tree to traverse in post-order
 	 */
 	public void setPostorder() {
-		queue.clear();
-		postorder(binaryTree.root);
+		setOrder(TraversalOrder.POSTORDER);
 	}
-	
+
+	/**
+	 * Sets the tree to traverse breadth-first, one level at a time. The
+	 * pending nodes of the widest level are held in a queue.
+	 */
+	public void setLevelorder() {
+		setOrder(TraversalOrder.LEVELORDER);
+	}
+
 	/**
-	 * Recursively traverses the tree post-order
-	 * @param treeNode A tree with nodes
+	 * Starts a new traversal of the tree. An unfinished Morris walk is run
+	 * to the end first to remove its threads.
+	 * @param newOrder the traversal order
 	 */
-	private void postorder(TreeNode treeNode) {
-		if (treeNode != null) {
-			postorder(treeNode.leftCircle);
-			postorder(treeNode.rightCircle);
-			queue.add(treeNode);
+	public void setOrder(TraversalOrder newOrder) {
+		if (order == TraversalOrder.MORRIS_INORDER) {
+			while (traversal.hasNext()) {
+				traversal.nextInt();
+			}
 		}
+
+		order = newOrder;
+		traversal = binaryTree.traversal(newOrder);
 	}
-}
\ No newline at end of file
+}
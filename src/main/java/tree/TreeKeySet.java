@@ -0,0 +1,451 @@
+package tree;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.SortedSet;
+
+/**
+ * A java.util.NavigableSet view of the keys of a binary search tree. The view
+ * may be limited to a key range and may run in descending order; reads and
+ * writes go straight through to the tree. Nearest-key queries descend the
+ * tree once, and iterators start from the node at the edge of the range, so
+ * a range scan visits O(height + k) nodes.
+ * @author Eric Canull
+ * @version 1.0
+ */
+final class TreeKeySet extends AbstractSet<Integer> implements NavigableSet<Integer> {
+
+	private final BinarySearchTree tree;
+
+	// The key range of the view, in ascending terms
+	private final boolean fromStart;
+	private final int low;
+	private final boolean lowInclusive;
+	private final boolean toEnd;
+	private final int high;
+	private final boolean highInclusive;
+
+	private final boolean descending;
+
+	/**
+	 * Views every key of the tree in ascending order.
+	 * @param tree the backing tree
+	 */
+	TreeKeySet(BinarySearchTree tree) {
+		this(tree, true, 0, true, true, 0, true, false);
+	}
+
+	/**
+	 * Views a key range of the tree.
+	 * @param tree the backing tree
+	 * @param fromStart <code>true</code> if the view has no lower bound
+	 * @param low the lower bound
+	 * @param lowInclusive <code>true</code> if the lower bound is in the view
+	 * @param toEnd <code>true</code> if the view has no upper bound
+	 * @param high the upper bound
+	 * @param highInclusive <code>true</code> if the upper bound is in the view
+	 * @param descending <code>true</code> if the view runs from high to low
+	 */
+	private TreeKeySet(BinarySearchTree tree, boolean fromStart, int low, boolean lowInclusive,
+					   boolean toEnd, int high, boolean highInclusive, boolean descending) {
+		this.tree = tree;
+		this.fromStart = fromStart;
+		this.low = low;
+		this.lowInclusive = lowInclusive;
+		this.toEnd = toEnd;
+		this.high = high;
+		this.highInclusive = highInclusive;
+		this.descending = descending;
+	}
+
+	@Override
+	public int size() {
+		int below = fromStart ? 0 : lowInclusive ? tree.rank(low) : tree.countAtMost(low);
+		int upTo = toEnd ? tree.getSize(tree.root) : highInclusive ? tree.countAtMost(high) : tree.rank(high);
+		return Math.max(0, upTo - below);
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return lowestNode() == null;
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		if (!(o instanceof Integer)) {
+			return false;
+		}
+		int searchKey = (Integer) o;
+		return inRange(searchKey) && tree.findNode(searchKey) != null;
+	}
+
+	@Override
+	public boolean add(Integer e) {
+		int searchKey = e;
+		if (!inRange(searchKey)) {
+			throw new IllegalArgumentException("Key out of range");
+		}
+		if (tree.findNode(searchKey) != null) {
+			return false;
+		}
+		tree.insertItem(searchKey);
+		return true;
+	}
+
+	@Override
+	public boolean remove(Object o) {
+		if (!(o instanceof Integer)) {
+			return false;
+		}
+		int searchKey = (Integer) o;
+		return inRange(searchKey) && tree.deleteItem(searchKey);
+	}
+
+	@Override
+	public void clear() {
+		if (fromStart && toEnd) {
+			tree.makeEmpty();
+		} else {
+			super.clear();
+		}
+	}
+
+	@Override
+	public Integer lower(Integer e) {
+		return keyOf(descending ? higherNode(e) : lowerNode(e));
+	}
+
+	@Override
+	public Integer floor(Integer e) {
+		return keyOf(descending ? ceilingNode(e) : floorNode(e));
+	}
+
+	@Override
+	public Integer ceiling(Integer e) {
+		return keyOf(descending ? floorNode(e) : ceilingNode(e));
+	}
+
+	@Override
+	public Integer higher(Integer e) {
+		return keyOf(descending ? lowerNode(e) : higherNode(e));
+	}
+
+	@Override
+	public Integer first() {
+		return keyOrThrow(descending ? highestNode() : lowestNode());
+	}
+
+	@Override
+	public Integer last() {
+		return keyOrThrow(descending ? lowestNode() : highestNode());
+	}
+
+	@Override
+	public Integer pollFirst() {
+		return poll(descending ? highestNode() : lowestNode());
+	}
+
+	@Override
+	public Integer pollLast() {
+		return poll(descending ? lowestNode() : highestNode());
+	}
+
+	@Override
+	public Iterator<Integer> iterator() {
+		return new KeyIterator(descending);
+	}
+
+	@Override
+	public Iterator<Integer> descendingIterator() {
+		return new KeyIterator(!descending);
+	}
+
+	@Override
+	public NavigableSet<Integer> descendingSet() {
+		return new TreeKeySet(tree, fromStart, low, lowInclusive, toEnd, high, highInclusive, !descending);
+	}
+
+	@Override
+	public Comparator<? super Integer> comparator() {
+		return descending ? Collections.reverseOrder() : null;
+	}
+
+	@Override
+	public NavigableSet<Integer> subSet(Integer fromElement, boolean fromInclusive,
+										Integer toElement, boolean toInclusive) {
+		if (descending) {
+			return range(toElement, toInclusive, fromElement, fromInclusive);
+		}
+		return range(fromElement, fromInclusive, toElement, toInclusive);
+	}
+
+	@Override
+	public NavigableSet<Integer> headSet(Integer toElement, boolean inclusive) {
+		if (descending) {
+			return range(toElement, inclusive, null, false);
+		}
+		return range(null, false, toElement, inclusive);
+	}
+
+	@Override
+	public NavigableSet<Integer> tailSet(Integer fromElement, boolean inclusive) {
+		if (descending) {
+			return range(null, false, fromElement, inclusive);
+		}
+		return range(fromElement, inclusive, null, false);
+	}
+
+	@Override
+	public SortedSet<Integer> subSet(Integer fromElement, Integer toElement) {
+		return subSet(fromElement, true, toElement, false);
+	}
+
+	@Override
+	public SortedSet<Integer> headSet(Integer toElement) {
+		return headSet(toElement, false);
+	}
+
+	@Override
+	public SortedSet<Integer> tailSet(Integer fromElement) {
+		return tailSet(fromElement, true);
+	}
+
+	/**
+	 * Narrows the view to a new range given in ascending terms.
+	 * @param newLow the new lower bound, or null to keep the current one
+	 * @param newLowInclusive <code>true</code> if the new lower bound is in the view
+	 * @param newHigh the new upper bound, or null to keep the current one
+	 * @param newHighInclusive <code>true</code> if the new upper bound is in the view
+	 * @return The narrowed view
+	 * @throws IllegalArgumentException if a bound lies outside the current
+	 *         range or the bounds are reversed
+	 */
+	private NavigableSet<Integer> range(Integer newLow, boolean newLowInclusive,
+										Integer newHigh, boolean newHighInclusive) {
+		if (newLow != null && newHigh != null && newLow > newHigh) {
+			throw new IllegalArgumentException("fromKey > toKey");
+		}
+		if (newLow != null && !boundInRange(newLow, newLowInclusive)) {
+			throw new IllegalArgumentException("fromKey out of range");
+		}
+		if (newHigh != null && !boundInRange(newHigh, newHighInclusive)) {
+			throw new IllegalArgumentException("toKey out of range");
+		}
+
+		return new TreeKeySet(tree,
+				newLow == null && fromStart, newLow == null ? low : newLow,
+				newLow == null ? lowInclusive : newLowInclusive,
+				newHigh == null && toEnd, newHigh == null ? high : newHigh,
+				newHigh == null ? highInclusive : newHighInclusive,
+				descending);
+	}
+
+	/**
+	 * Checks that a new bound does not widen the current range.
+	 * @param bound the new bound
+	 * @param inclusive <code>true</code> if the new bound is in the view
+	 * @return <code>true</code> if the bound fits inside the current range
+	 */
+	private boolean boundInRange(int bound, boolean inclusive) {
+		if (!fromStart && (bound < low || (bound == low && !lowInclusive && inclusive))) {
+			return false;
+		}
+		return toEnd || bound < high || (bound == high && (highInclusive || !inclusive));
+	}
+
+	private boolean tooLow(int searchKey) {
+		return !fromStart && (searchKey < low || (searchKey == low && !lowInclusive));
+	}
+
+	private boolean tooHigh(int searchKey) {
+		return !toEnd && (searchKey > high || (searchKey == high && !highInclusive));
+	}
+
+	private boolean inRange(int searchKey) {
+		return !tooLow(searchKey) && !tooHigh(searchKey);
+	}
+
+	/**
+	 * Drops a node found outside the view.
+	 * @param tNode A tree node or null
+	 * @return The node if its key is in range, otherwise null
+	 */
+	private TreeNode bounded(TreeNode tNode) {
+		return tNode == null || !inRange(tNode.searchKey) ? null : tNode;
+	}
+
+	private TreeNode lowestNode() {
+		if (fromStart) {
+			return bounded(BinarySearchTree.firstNode(tree.root));
+		}
+		return bounded(lowInclusive ? tree.ceilingNode(low) : tree.higherNode(low));
+	}
+
+	private TreeNode highestNode() {
+		if (toEnd) {
+			return bounded(BinarySearchTree.lastNode(tree.root));
+		}
+		return bounded(highInclusive ? tree.floorNode(high) : tree.lowerNode(high));
+	}
+
+	private TreeNode ceilingNode(int searchKey) {
+		return tooLow(searchKey) ? lowestNode() : bounded(tree.ceilingNode(searchKey));
+	}
+
+	private TreeNode higherNode(int searchKey) {
+		return tooLow(searchKey) ? lowestNode() : bounded(tree.higherNode(searchKey));
+	}
+
+	private TreeNode floorNode(int searchKey) {
+		return tooHigh(searchKey) ? highestNode() : bounded(tree.floorNode(searchKey));
+	}
+
+	private TreeNode lowerNode(int searchKey) {
+		return tooHigh(searchKey) ? highestNode() : bounded(tree.lowerNode(searchKey));
+	}
+
+	private static Integer keyOf(TreeNode tNode) {
+		return tNode == null ? null : tNode.searchKey;
+	}
+
+	private static Integer keyOrThrow(TreeNode tNode) {
+		if (tNode == null) {
+			throw new NoSuchElementException();
+		}
+		return tNode.searchKey;
+	}
+
+	private Integer poll(TreeNode tNode) {
+		if (tNode == null) {
+			return null;
+		}
+		int searchKey = tNode.searchKey;
+		tree.deleteItem(searchKey);
+		return searchKey;
+	}
+
+	/**
+	 * Walks the keys of the view with a stack seeded by one descent to the
+	 * edge of the range. Removing a key reseeds the stack past it, since
+	 * the delete may have rotated or relinked the nodes on the stack.
+	 */
+	private final class KeyIterator implements Iterator<Integer> {
+
+		private final boolean reverse;
+		private TreeNode[] stack = new TreeNode[16];
+		private int stackSize;
+		private int lastKey;
+		private boolean canRemove;
+
+		KeyIterator(boolean reverse) {
+			this.reverse = reverse;
+			if (reverse) {
+				if (toEnd) {
+					pushPath(tree.root);
+				} else {
+					seed(high, highInclusive);
+				}
+			} else {
+				if (fromStart) {
+					pushPath(tree.root);
+				} else {
+					seed(low, lowInclusive);
+				}
+			}
+			trim();
+		}
+
+		@Override
+		public boolean hasNext() {
+			return stackSize > 0;
+		}
+
+		@Override
+		public Integer next() {
+			if (stackSize == 0) {
+				throw new NoSuchElementException();
+			}
+
+			TreeNode tNode = stack[--stackSize];
+			stack[stackSize] = null;
+			pushPath(reverse ? tNode.leftCircle : tNode.rightCircle);
+			trim();
+
+			lastKey = tNode.searchKey;
+			canRemove = true;
+			return lastKey;
+		}
+
+		@Override
+		public void remove() {
+			if (!canRemove) {
+				throw new IllegalStateException();
+			}
+			canRemove = false;
+			tree.deleteItem(lastKey);
+
+			Arrays.fill(stack, 0, stackSize, null);
+			stackSize = 0;
+			seed(lastKey, false);
+			trim();
+		}
+
+		/**
+		 * Pushes the nodes from the root down to the first key at or
+		 * past a start key, in the direction of the walk.
+		 * @param start the start key
+		 * @param inclusive <code>true</code> if the start key itself is wanted
+		 */
+		private void seed(int start, boolean inclusive) {
+			TreeNode tNode = tree.root;
+			while (tNode != null) {
+				int searchKey = tNode.searchKey;
+				boolean wanted = reverse
+						? searchKey < start || (inclusive && searchKey == start)
+						: searchKey > start || (inclusive && searchKey == start);
+				if (wanted) {
+					push(tNode);
+					tNode = reverse ? tNode.rightCircle : tNode.leftCircle;
+				} else {
+					tNode = reverse ? tNode.leftCircle : tNode.rightCircle;
+				}
+			}
+		}
+
+		/**
+		 * Pushes a node and all of its descendants toward the start of the walk.
+		 * @param tNode the top of the path, may be null
+		 */
+		private void pushPath(TreeNode tNode) {
+			while (tNode != null) {
+				push(tNode);
+				tNode = reverse ? tNode.rightCircle : tNode.leftCircle;
+			}
+		}
+
+		/**
+		 * Ends the walk once the next key has left the range.
+		 */
+		private void trim() {
+			if (stackSize > 0) {
+				int searchKey = stack[stackSize - 1].searchKey;
+				if (reverse ? tooLow(searchKey) : tooHigh(searchKey)) {
+					Arrays.fill(stack, 0, stackSize, null);
+					stackSize = 0;
+				}
+			}
+		}
+
+		private void push(TreeNode tNode) {
+			if (stackSize == stack.length) {
+				stack = Arrays.copyOf(stack, stackSize * 2);
+			}
+			stack[stackSize++] = tNode;
+		}
+	}
+}
@@ -1,29 +1,103 @@
 package tree;
 
-import shape.Circle;
-
 /**
- * A binary tree using circle objects.
+ * A node of the binary tree. Holds the primitive search key and the child
+ * links; the trees behind tree.IntTreeMap and tree.IntMultiset use
+ * tree.PayloadNode to carry a value or a count as well. How the node is
+ * drawn is kept by the view that renders it.
  * @author Eric Canull
  * @version 1.0
  */
 public class TreeNode {
 	
-	public Circle rootCircle;
+	public int searchKey;
 	public TreeNode leftCircle;
 	public TreeNode rightCircle;
-	public boolean highlightFlag;
+
+	/**
+	 * The height of the subtree rooted at this node.
+	 */
+	public int height;
+
+	/**
+	 * The number of nodes in the subtree rooted at this node.
+	 */
+	public int size;
+
+	/**
+	 * The write that created the node, used by copy-on-write trees to tell
+	 * nodes they own from nodes shared with snapshots.
+	 */
+	long epoch;
 	
 	/**
-	 * A binary tree using circle objects.
-	 * @param rootCircle a root tree circle
+	 * A node of the binary tree.
+	 * @param searchKey the search key of the node
 	 * @param leftCircle a left tree circle
 	 * @param rightCircle a right tree circle
 	 */
-	public TreeNode(Circle rootCircle, TreeNode leftCircle, TreeNode rightCircle) {
-		this.rootCircle = rootCircle;
+	public TreeNode(int searchKey, TreeNode leftCircle, TreeNode rightCircle) {
+		this.searchKey = searchKey;
 		this.leftCircle = null;
 		this.rightCircle = null;
+		this.height = 1;
+		this.size = 1;
 	}
 
+	/**
+	 * Gets the cached height of a node.
+	 * @param tNode A tree.TreeNode or null
+	 * @return The subtree height, zero for an empty subtree
+	 */
+	static int height(TreeNode tNode) {
+		return tNode == null ? 0 : tNode.height;
+	}
+
+	/**
+	 * Gets the cached size of a node.
+	 * @param tNode A tree.TreeNode or null
+	 * @return The subtree size, zero for an empty subtree
+	 */
+	static int size(TreeNode tNode) {
+		return tNode == null ? 0 : tNode.size;
+	}
+
+	/**
+	 * Recomputes the cached height and size of a node from its children.
+	 * @param tNode A tree.TreeNode
+	 */
+	static void update(TreeNode tNode) {
+		tNode.height = Math.max(height(tNode.leftCircle), height(tNode.rightCircle)) + 1;
+		tNode.size = size(tNode.leftCircle) + size(tNode.rightCircle) + 1;
+	}
+
+	/**
+	 * Rotates a subtree to the right, lifting its left child. The caller
+	 * must be free to change both nodes.
+	 * @param tNode the root of the subtree
+	 * @return The new root of the subtree
+	 */
+	static TreeNode rotateRight(TreeNode tNode) {
+		TreeNode pivot = tNode.leftCircle;
+		tNode.leftCircle = pivot.rightCircle;
+		pivot.rightCircle = tNode;
+		update(tNode);
+		update(pivot);
+		return pivot;
+	}
+
+	/**
+	 * Rotates a subtree to the left, lifting its right child. The caller
+	 * must be free to change both nodes.
+	 * @param tNode the root of the subtree
+	 * @return The new root of the subtree
+	 */
+	static TreeNode rotateLeft(TreeNode tNode) {
+		TreeNode pivot = tNode.rightCircle;
+		tNode.rightCircle = pivot.leftCircle;
+		pivot.leftCircle = tNode;
+		update(tNode);
+		update(pivot);
+		return pivot;
+	}
 }
@@ -0,0 +1,221 @@
+package tree;
+
+import java.util.Arrays;
+
+/**
+ * A copy of the shape of a tree, for drawing. The nodes are numbered in
+ * preorder, so the root is node 0 and every child comes after its parent,
+ * and the keys and child links are held in three parallel int arrays. A
+ * view draws any tree.TreeEngine from its shape without knowing how the
+ * engine stores its nodes.
+ * @author Eric Canull
+ * @version 1.0
+ */
+public final class TreeShape {
+
+	/**
+	 * The index standing for a missing child.
+	 */
+	public static final int NONE = -1;
+
+	private static final TreeShape EMPTY = new TreeShape(new int[0], new int[0], new int[0], 0);
+
+	private final int[] keys;
+	private final int[] left;
+	private final int[] right;
+	private final int size;
+	private final int height;
+
+	/**
+	 * A copy of the shape of a tree.
+	 * @param keys the keys in preorder
+	 * @param left the left child of each node, or NONE
+	 * @param right the right child of each node, or NONE
+	 * @param size the number of nodes
+	 */
+	TreeShape(int[] keys, int[] left, int[] right, int size) {
+		this.keys = keys;
+		this.left = left;
+		this.right = right;
+		this.size = size;
+
+		// Children come after their parents, so a backward pass sees every
+		// child height before it is needed
+		int[] heights = new int[size];
+		for (int i = size - 1; i >= 0; i--) {
+			int leftHeight = left[i] == NONE ? 0 : heights[left[i]];
+			int rightHeight = right[i] == NONE ? 0 : heights[right[i]];
+			heights[i] = Math.max(leftHeight, rightHeight) + 1;
+		}
+		this.height = size == 0 ? 0 : heights[0];
+	}
+
+	/**
+	 * Copies the shape of a tree of linked nodes.
+	 * @param root the root of the tree, may be null
+	 * @param size the number of nodes in the tree
+	 * @return The shape of the tree
+	 */
+	static TreeShape of(TreeNode root, int size) {
+		if (root == null) {
+			return EMPTY;
+		}
+
+		int[] keys = new int[size];
+		int[] left = new int[size];
+		int[] right = new int[size];
+		TreeNode[] stack = new TreeNode[16];
+		int[] parents = new int[16];
+		int stackSize = 0;
+		int count = 0;
+
+		// Preorder walk; each stack entry remembers the node that links to
+		// it, encoded as 2 * parent for a left link and 2 * parent + 1 for a
+		// right link
+		stack[stackSize] = root;
+		parents[stackSize++] = NONE;
+		while (stackSize > 0) {
+			TreeNode tNode = stack[--stackSize];
+			int parent = parents[stackSize];
+			int node = count++;
+			keys[node] = tNode.searchKey;
+			left[node] = NONE;
+			right[node] = NONE;
+			if (parent != NONE) {
+				if ((parent & 1) == 0) {
+					left[parent >>> 1] = node;
+				} else {
+					right[parent >>> 1] = node;
+				}
+			}
+
+			if (stackSize + 2 > stack.length) {
+				stack = Arrays.copyOf(stack, stack.length * 2);
+				parents = Arrays.copyOf(parents, parents.length * 2);
+			}
+			if (tNode.rightCircle != null) {
+				stack[stackSize] = tNode.rightCircle;
+				parents[stackSize++] = 2 * node + 1;
+			}
+			if (tNode.leftCircle != null) {
+				stack[stackSize] = tNode.leftCircle;
+				parents[stackSize++] = 2 * node;
+			}
+		}
+
+		return new TreeShape(keys, left, right, count);
+	}
+
+	/**
+	 * Gets the number of nodes.
+	 * @return The tree size
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Determines if the shape has no nodes.
+	 * @return <code>true</code> if the tree was empty
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Gets the number of levels.
+	 * @return The tree height, zero for an empty tree
+	 */
+	public int height() {
+		return height;
+	}
+
+	/**
+	 * Gets the key of a node.
+	 * @param node the preorder number of the node, zero for the root
+	 * @return The search key
+	 */
+	public int key(int node) {
+		return keys[node];
+	}
+
+	/**
+	 * Gets the left child of a node.
+	 * @param node the preorder number of the node
+	 * @return The left child, or NONE
+	 */
+	public int left(int node) {
+		return left[node];
+	}
+
+	/**
+	 * Gets the right child of a node.
+	 * @param node the preorder number of the node
+	 * @return The right child, or NONE
+	 */
+	public int right(int node) {
+		return right[node];
+	}
+
+	/**
+	 * Compares two shapes node by node.
+	 * @param other the object to compare with
+	 * @return <code>true</code> if both shapes have the same keys linked
+	 *         the same way
+	 */
+	@Override
+	public boolean equals(Object other) {
+		if (this == other) {
+			return true;
+		}
+		if (!(other instanceof TreeShape) || ((TreeShape) other).size != size) {
+			return false;
+		}
+
+		TreeShape shape = (TreeShape) other;
+		for (int i = 0; i < size; i++) {
+			if (keys[i] != shape.keys[i] || left[i] != shape.left[i] || right[i] != shape.right[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public int hashCode() {
+		int hash = size;
+		for (int i = 0; i < size; i++) {
+			hash = 31 * (31 * (31 * hash + keys[i]) + left[i]) + right[i];
+		}
+		return hash;
+	}
+
+	/**
+	 * Traces the search for a key through the shape.
+	 * @param searchKey the search key
+	 * @return The keys visited and the direction taken at each
+	 */
+	public SearchPath searchPath(int searchKey) {
+		int[] visited = new int[height];
+		long[] rightTurns = new long[(height + 63) >>> 6];
+		int length = 0;
+
+		int node = size == 0 ? NONE : 0;
+		while (node != NONE) {
+			int nodeKey = keys[node];
+			visited[length] = nodeKey;
+			if (searchKey == nodeKey) {
+				return new SearchPath(visited, rightTurns, length + 1, true);
+			}
+			if (searchKey > nodeKey) {
+				rightTurns[length >>> 6] |= 1L << length;
+				node = right[node];
+			} else {
+				node = left[node];
+			}
+			length++;
+		}
+
+		return new SearchPath(visited, rightTurns, length, false);
+	}
+}
@@ -0,0 +1,190 @@
+package tree;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.PrimitiveIterator;
+
+/**
+ * Reads and writes the binary snapshot format of tree.BinarySearchTree. A
+ * snapshot is a 16 byte header (magic, format version, balance mode and key
+ * count) followed by the keys in preorder, all as little-endian ints. The
+ * preorder sequence fixes the shape of the tree, so loading rebuilds the
+ * exact same tree in one pass over a memory-mapped file without searching
+ * for any key.
+ * @author Eric Canull
+ * @version 1.0
+ */
+final class TreeSnapshot {
+
+	private static final int MAGIC = 0x46584253; // "FXBS"
+	private static final int VERSION = 1;
+	private static final int HEADER_BYTES = 16;
+
+	private static final int WRITE_BUFFER_BYTES = 1 << 16;
+	private static final long MAP_CHUNK_BYTES = 1L << 28;
+
+	private TreeSnapshot() {
+	}
+
+	/**
+	 * Writes a snapshot, replacing the file if it exists.
+	 * @param file the snapshot file
+	 * @param balanceMode the balance mode of the tree
+	 * @param count the number of keys in the tree
+	 * @param preorder the keys of the tree in preorder
+	 * @throws IOException if the file cannot be written
+	 */
+	static void write(Path file, BalanceMode balanceMode, int count, PrimitiveIterator.OfInt preorder)
+			throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.putInt(MAGIC).putInt(VERSION).putInt(balanceMode.ordinal()).putInt(count);
+
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			while (preorder.hasNext()) {
+				if (!buffer.hasRemaining()) {
+					drain(channel, buffer);
+				}
+				buffer.putInt(preorder.nextInt());
+			}
+			drain(channel, buffer);
+		}
+	}
+
+	/**
+	 * Loads a snapshot into a new tree. Each key becomes the left child of
+	 * the node on top of a stack of open nodes, or the right child of the
+	 * last node it pops; the cached heights and sizes are filled in by a
+	 * postorder pass afterwards, which also checks the balance of a tree
+	 * saved in AVL mode. Both passes take linear time.
+	 * @param file the snapshot file
+	 * @return The tree as it was saved
+	 * @throws IOException if the file cannot be read or is not a valid snapshot
+	 */
+	static BinarySearchTree read(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			if (channel.size() < HEADER_BYTES) {
+				throw new IOException("Not a tree snapshot: " + file);
+			}
+
+			ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES)
+					.order(ByteOrder.LITTLE_ENDIAN);
+			if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+				throw new IOException("Not a tree snapshot: " + file);
+			}
+			BalanceMode[] modes = BalanceMode.values();
+			int mode = header.getInt();
+			int count = header.getInt();
+			if (mode < 0 || mode >= modes.length || count < 0) {
+				throw new IOException("Corrupt tree snapshot: " + file);
+			}
+			if (channel.size() != HEADER_BYTES + 4L * count) {
+				throw new IOException("Truncated tree snapshot: " + file);
+			}
+
+			BinarySearchTree tree = new BinarySearchTree(modes[mode]);
+			TreeNode[] stack = new TreeNode[64];
+			int stackSize = 0;
+			long lowerBound = Long.MIN_VALUE; // Every later key lies right of the last popped node
+
+			for (long position = HEADER_BYTES; position < channel.size(); position += MAP_CHUNK_BYTES) {
+				long length = Math.min(MAP_CHUNK_BYTES, channel.size() - position);
+				IntBuffer keys = channel.map(FileChannel.MapMode.READ_ONLY, position, length)
+						.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+
+				while (keys.hasRemaining()) {
+					int searchKey = keys.get();
+					if (searchKey <= lowerBound) {
+						throw new IOException("Corrupt tree snapshot: " + file);
+					}
+
+					TreeNode tNode = new TreeNode(searchKey, null, null);
+					TreeNode parent = null;
+					while (stackSize > 0 && stack[stackSize - 1].searchKey < searchKey) {
+						parent = stack[--stackSize];
+					}
+
+					if (parent != null) {
+						parent.rightCircle = tNode;
+						lowerBound = parent.searchKey;
+					} else if (stackSize > 0) {
+						if (stack[stackSize - 1].searchKey == searchKey) {
+							throw new IOException("Corrupt tree snapshot: " + file);
+						}
+						stack[stackSize - 1].leftCircle = tNode;
+					} else {
+						tree.root = tNode;
+					}
+
+					if (stackSize == stack.length) {
+						stack = Arrays.copyOf(stack, stackSize * 2);
+					}
+					stack[stackSize++] = tNode;
+				}
+			}
+
+			if (!updateAll(tree.root, stack, tree.getBalanceMode() == BalanceMode.AVL)) {
+				throw new IOException("Unbalanced AVL tree snapshot: " + file);
+			}
+			return tree;
+		}
+	}
+
+	/**
+	 * Fills in the cached height and size of every node, children first.
+	 * A tree that must be balanced is checked node by node, since inserts
+	 * and deletes rely on the heights of its subtrees differing by at most
+	 * one.
+	 * @param root the root of the rebuilt tree, may be null
+	 * @param stack a scratch stack, grown as needed
+	 * @param balanced <code>true</code> to check the AVL balance
+	 * @return <code>false</code> if a node that must be balanced is not
+	 */
+	private static boolean updateAll(TreeNode root, TreeNode[] stack, boolean balanced) {
+		int stackSize = 0;
+		TreeNode tNode = root;
+
+		// Postorder: descend to the first leaf, then climb, entering each
+		// right subtree after its left sibling is done
+		while (true) {
+			while (tNode != null) {
+				if (stackSize == stack.length) {
+					stack = Arrays.copyOf(stack, stackSize * 2);
+				}
+				stack[stackSize++] = tNode;
+				tNode = tNode.leftCircle != null ? tNode.leftCircle : tNode.rightCircle;
+			}
+			if (stackSize == 0) {
+				return true;
+			}
+
+			TreeNode done = stack[--stackSize];
+			int leftHeight = done.leftCircle == null ? 0 : done.leftCircle.height;
+			int rightHeight = done.rightCircle == null ? 0 : done.rightCircle.height;
+			if (balanced && Math.abs(leftHeight - rightHeight) > 1) {
+				return false;
+			}
+			done.height = Math.max(leftHeight, rightHeight) + 1;
+			done.size = (done.leftCircle == null ? 0 : done.leftCircle.size)
+					+ (done.rightCircle == null ? 0 : done.rightCircle.size) + 1;
+
+			if (stackSize > 0 && stack[stackSize - 1].leftCircle == done) {
+				tNode = stack[stackSize - 1].rightCircle;
+			}
+		}
+	}
+
+	private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+}
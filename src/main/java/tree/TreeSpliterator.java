@@ -0,0 +1,199 @@
+package tree;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Spliterator;
+import java.util.function.IntConsumer;
+
+/**
+ * Splits the in-order key sequence of a tree by subtree, so that a parallel
+ * stream can hand each half of the tree to a different worker. A spliterator
+ * covers a left subtree, then a single node, then a right subtree; splitting
+ * hands the first part off and keeps the rest. The cached subtree sizes make
+ * every part exactly sized. The tree must not be changed while a spliterator
+ * over it is in use.
+ * @author Eric Canull
+ * @version 1.0
+ */
+public final class TreeSpliterator implements Spliterator.OfInt {
+
+	/**
+	 * The characteristics of every tree spliterator.
+	 */
+	static final int CHARACTERISTICS = Spliterator.ORDERED | Spliterator.SORTED | Spliterator.DISTINCT
+			| Spliterator.NONNULL | Spliterator.SIZED | Spliterator.SUBSIZED;
+
+	// The covered keys in order: leftTree, then middleNode, then rightTree
+	private TreeNode leftTree;
+	private TreeNode middleNode;
+	private TreeNode rightTree;
+
+	private long remaining;
+
+	// Traversal state once the first key has been consumed
+	private boolean started;
+	private TreeNode[] stack;
+	private int stackSize;
+
+	/**
+	 * Splits the keys of a whole tree.
+	 * @param root the root of the tree
+	 */
+	TreeSpliterator(TreeNode root) {
+		this(root, null, null);
+	}
+
+	/**
+	 * Splits the keys of part of a tree.
+	 * @param leftTree the subtree covered first, may be null
+	 * @param middleNode the node covered next, may be null
+	 * @param rightTree the subtree covered last, may be null
+	 */
+	private TreeSpliterator(TreeNode leftTree, TreeNode middleNode, TreeNode rightTree) {
+		this.leftTree = leftTree;
+		this.middleNode = middleNode;
+		this.rightTree = rightTree;
+		this.remaining = size(leftTree) + (middleNode == null ? 0 : 1) + size(rightTree);
+	}
+
+	/**
+	 * Performs the action on the next key, if there is one.
+	 * @param action the key consumer
+	 * @return <code>true</code> if a key was consumed
+	 */
+	@Override
+	public boolean tryAdvance(IntConsumer action) {
+		if (!started) {
+			start();
+		}
+
+		TreeNode treeNode;
+		if (stackSize > 0) {
+			treeNode = stack[--stackSize];
+			stack[stackSize] = null;
+			pushLeftPath(treeNode.rightCircle);
+		} else if (middleNode != null) {
+			treeNode = middleNode;
+			middleNode = null;
+			pushLeftPath(rightTree);
+			rightTree = null;
+		} else {
+			return false;
+		}
+
+		remaining--;
+		action.accept(treeNode.searchKey);
+		return true;
+	}
+
+	/**
+	 * Performs the action on every remaining key.
+	 * @param action the key consumer
+	 */
+	@Override
+	public void forEachRemaining(IntConsumer action) {
+		while (tryAdvance(action)) {
+			// Each call consumes one key
+		}
+	}
+
+	/**
+	 * Hands off the first part of the covered keys. Splitting is only
+	 * possible before traversal starts.
+	 * @return A spliterator over the leading keys, or null if this part
+	 *         cannot be split
+	 */
+	@Override
+	public Spliterator.OfInt trySplit() {
+		if (started) {
+			return null;
+		}
+
+		// A lone subtree is opened up into its left, root and right parts
+		if (leftTree != null && middleNode == null && rightTree == null) {
+			middleNode = leftTree;
+			rightTree = leftTree.rightCircle;
+			leftTree = leftTree.leftCircle;
+		}
+
+		TreeSpliterator prefix;
+		if (leftTree != null) {
+			prefix = new TreeSpliterator(leftTree, null, null);
+			leftTree = null;
+		} else if (middleNode != null && rightTree != null) {
+			prefix = new TreeSpliterator(null, middleNode, rightTree.leftCircle);
+			middleNode = rightTree;
+			rightTree = rightTree.rightCircle;
+		} else {
+			return null;
+		}
+
+		remaining -= prefix.remaining;
+		return prefix;
+	}
+
+	/**
+	 * Gets the exact number of keys left.
+	 * @return The remaining key count
+	 */
+	@Override
+	public long estimateSize() {
+		return remaining;
+	}
+
+	/**
+	 * Keys come out sorted, distinct and never null, and every part
+	 * knows its exact size.
+	 * @return The characteristic flags
+	 */
+	@Override
+	public int characteristics() {
+		return CHARACTERISTICS;
+	}
+
+	/**
+	 * Keys are sorted in their natural order.
+	 * @return null
+	 */
+	@Override
+	public Comparator<? super Integer> getComparator() {
+		return null;
+	}
+
+	/**
+	 * Sets up the stack for the covered left subtree.
+	 */
+	private void start() {
+		started = true;
+		stack = new TreeNode[16];
+		pushLeftPath(leftTree);
+		leftTree = null;
+		if (middleNode == null) {
+			pushLeftPath(rightTree);
+			rightTree = null;
+		}
+	}
+
+	/**
+	 * Gets the cached size of a subtree.
+	 * @param treeNode A tree node or null
+	 * @return The subtree size, zero for an empty subtree
+	 */
+	private static int size(TreeNode treeNode) {
+		return treeNode == null ? 0 : treeNode.size;
+	}
+
+	/**
+	 * Pushes a node and all of its left descendants.
+	 * @param treeNode the top of the path, may be null
+	 */
+	private void pushLeftPath(TreeNode treeNode) {
+		while (treeNode != null) {
+			if (stackSize == stack.length) {
+				stack = Arrays.copyOf(stack, stackSize * 2);
+			}
+			stack[stackSize++] = treeNode;
+			treeNode = treeNode.leftCircle;
+		}
+	}
+}
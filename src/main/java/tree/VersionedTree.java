@@ -0,0 +1,206 @@
+package tree;
+
+import java.util.Arrays;
+
+/**
+ * Keeps every version of a copy-on-write tree.BinarySearchTree. A write copies
+ * only the O(log n) nodes on its path and shares the rest with the version
+ * before it, so each version costs O(log n) space and is recorded by keeping
+ * its root. Undo, redo and viewing an older version swap the root of the
+ * working tree and take O(1) time; any version can be read through a
+ * snapshot without copying the tree.
+ *
+ * Change the tree through this class only; writes made directly on the
+ * working tree are not recorded. A write made after an undo drops the
+ * versions that could have been redone.
+ * @author Eric Canull
+ * @version 1.0
+ */
+public final class VersionedTree {
+
+	private final BinarySearchTree tree;   // The copy-on-write working tree
+
+	private TreeNode[] versions = new TreeNode[16];
+	private int versionCount;   // Versions recorded, including redoable ones
+	private int current;        // The version the working tree shows
+
+	/**
+	 * Keeps every version of a new, empty tree.
+	 * @param balanceMode the balancing strategy for inserts and deletes
+	 */
+	public VersionedTree(BalanceMode balanceMode) {
+		this(new BinarySearchTree(balanceMode, true));
+	}
+
+	/**
+	 * Keeps every version of a tree, starting from its current contents.
+	 * @param tree A writable tree in copy-on-write mode
+	 * @throws IllegalArgumentException if the tree is read-only or not in
+	 *         copy-on-write mode
+	 * @Overload Default constructor
+	 */
+	public VersionedTree(BinarySearchTree tree) {
+		if (!tree.isCopyOnWrite() || tree.isReadOnly()) {
+			throw new IllegalArgumentException("The tree must be a writable copy-on-write tree");
+		}
+		this.tree = tree;
+		versions[0] = tree.root;
+		versionCount = 1;
+	}
+
+	/**
+	 * Gets the working tree, which shows the current version. Use it for
+	 * queries, searches and traversals.
+	 * @return The working tree
+	 */
+	public BinarySearchTree getTree() {
+		return tree;
+	}
+
+	/**
+	 * Inserts a search key as a new version.
+	 * @param searchKey a unique identifying value
+	 * @return <code>true</code> if the key was new and a version was recorded
+	 */
+	public boolean insertItem(int searchKey) {
+		tree.insertItem(searchKey);
+		return commit();
+	}
+
+	/**
+	 * Deletes a search key as a new version.
+	 * @param searchKey a unique identifying value
+	 * @return <code>true</code> if the key was deleted and a version was recorded
+	 */
+	public boolean deleteItem(int searchKey) {
+		tree.deleteItem(searchKey);
+		return commit();
+	}
+
+	/**
+	 * Inserts a batch of search keys as one new version.
+	 * @param newKeys search keys in any order, repeats allowed
+	 * @return <code>true</code> if a version was recorded
+	 */
+	public boolean insertAll(int[] newKeys) {
+		tree.insertAll(newKeys);
+		return commit();
+	}
+
+	/**
+	 * Empties the tree as a new version.
+	 * @return <code>true</code> if the tree had keys and a version was recorded
+	 */
+	public boolean makeEmpty() {
+		tree.makeEmpty();
+		return commit();
+	}
+
+	/**
+	 * Goes back to the previous version.
+	 * @return <code>false</code> if there is no earlier version
+	 */
+	public boolean undo() {
+		if (current == 0) {
+			return false;
+		}
+		viewVersion(current - 1);
+		return true;
+	}
+
+	/**
+	 * Goes forward to the version that was last undone.
+	 * @return <code>false</code> if there is nothing to redo
+	 */
+	public boolean redo() {
+		if (current + 1 == versionCount) {
+			return false;
+		}
+		viewVersion(current + 1);
+		return true;
+	}
+
+	/**
+	 * Determines if there is an earlier version to go back to.
+	 * @return <code>true</code> if undo() would change the tree
+	 */
+	public boolean canUndo() {
+		return current > 0;
+	}
+
+	/**
+	 * Determines if there is an undone version to go forward to.
+	 * @return <code>true</code> if redo() would change the tree
+	 */
+	public boolean canRedo() {
+		return current + 1 < versionCount;
+	}
+
+	/**
+	 * Makes the working tree show a recorded version. The later versions
+	 * stay recorded until the next write.
+	 * @param version the version number, zero for the initial tree
+	 * @throws IndexOutOfBoundsException if no such version is recorded
+	 */
+	public void viewVersion(int version) {
+		checkVersion(version);
+		current = version;
+		tree.restore(versions[version]);
+	}
+
+	/**
+	 * Gets a read-only tree showing a recorded version, for queries that
+	 * look back in time. The working tree is not affected.
+	 * @param version the version number, zero for the initial tree
+	 * @return A read-only tree
+	 * @throws IndexOutOfBoundsException if no such version is recorded
+	 */
+	public BinarySearchTree getVersion(int version) {
+		checkVersion(version);
+		return new BinarySearchTree(tree, versions[version]);
+	}
+
+	/**
+	 * Gets the number of the version the working tree shows.
+	 * @return The current version number
+	 */
+	public int getCurrentVersion() {
+		return current;
+	}
+
+	/**
+	 * Gets the number of recorded versions, including undone ones.
+	 * @return The version count
+	 */
+	public int getVersionCount() {
+		return versionCount;
+	}
+
+	/**
+	 * Records the root of the working tree as a new version if the last
+	 * write changed it. Every change copies the root, so an unchanged root
+	 * means the write was a no-op.
+	 * @return <code>true</code> if a version was recorded
+	 */
+	private boolean commit() {
+		TreeNode newRoot = tree.root;
+		if (newRoot == versions[current]) {
+			return false;
+		}
+
+		// A new write drops the redoable versions
+		Arrays.fill(versions, current + 1, versionCount, null);
+		if (current + 1 == versions.length) {
+			versions = Arrays.copyOf(versions, versions.length * 2);
+		}
+		versions[++current] = newRoot;
+		versionCount = current + 1;
+		return true;
+	}
+
+	private void checkVersion(int version) {
+		if (version < 0 || version >= versionCount) {
+			throw new IndexOutOfBoundsException("No version " + version);
+		}
+	}
+}
@@ -0,0 +1,182 @@
+package controller;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import tree.BalanceMode;
+import tree.BinarySearchTree;
+import tree.DrawableTree;
+import tree.SearchPath;
+
+/**
+ * Draws random sequences of inserts, deletes and searches frame by frame
+ * and checks that the dirty regions of each frame cover every circle and
+ * line that appears, disappears, moves or changes its highlight since the
+ * frame before, for versioned and in-place trees, balanced or not.
+ * @author Eric Canull
+ * @version 1.0
+ */
+public class TreeFrameTest {
+
+	private static final double E = TreeFrame.CIRCLE_EXTENT;
+	private static final double L = TreeFrame.LINE_EXTENT;
+	private static final double SAME = 1e-6;
+
+	@Test
+	public void dirtyRegionsCoverChanges() {
+		int partial = 0;
+		for (int seed = 0; seed < 40; seed++) {
+			BalanceMode mode = seed % 2 == 0 ? BalanceMode.AVL : BalanceMode.NONE;
+			partial += replay(new Random(seed), new BinarySearchTree(mode, seed % 4 < 2));
+		}
+		// Most frames change a small part of the picture
+		assertTrue(partial > 40 * 400 / 2);
+	}
+
+	@Test
+	public void unchangedTreeHasNoDirtyRegions() {
+		BinarySearchTree tree = new BinarySearchTree(BalanceMode.AVL, true);
+		for (int searchKey = 0; searchKey < 50; searchKey++) {
+			tree.insertItem(searchKey);
+		}
+		TreeLayout layout = TreeLayout.of(tree, null);
+		TreeFrame frame = new TreeFrame(layout, 1200, 600, null, null, null);
+		TreeFrame again = new TreeFrame(TreeLayout.of(tree, layout), 1200, 600, null, null, frame);
+		double[] dirty = again.dirtyRegions(frame);
+		assertNotNull(dirty);
+		assertEquals(0, dirty.length);
+	}
+
+	@Test
+	public void singleNodeOnNarrowCanvas() {
+		BinarySearchTree tree = new BinarySearchTree();
+		tree.insertItem(5);
+		TreeFrame frame = new TreeFrame(TreeLayout.of(tree, null), 10, 100, null, null, null);
+		List<double[][]> drawn = drawables(frame);
+		assertEquals(1, drawn.size());
+		assertFalse(Double.isNaN(drawn.get(0)[0][2]));
+	}
+
+	/**
+	 * Draws 400 random changes to a tree, with the canvas width changing now
+	 * and then, and checks every frame against the one before.
+	 * @return The number of frames repainted in part
+	 */
+	private static int replay(Random random, DrawableTree tree) {
+		TreeLayout layout = null;
+		TreeFrame frame = null;
+		double width = 1200;
+		double height = 600;
+		int partial = 0;
+
+		for (int step = 0; step < 400; step++) {
+			int searchKey = random.nextInt(200);
+			SearchPath searchPath = null;
+			Integer insertKey = null;
+			int action = random.nextInt(10);
+			if (action < 6) {
+				tree.insertItem(searchKey);
+				insertKey = searchKey;
+			} else if (action < 8) {
+				tree.deleteItem(searchKey);
+			} else {
+				searchPath = tree.searchPath(searchKey);
+			}
+			if (random.nextInt(50) == 0) {
+				width = 600 + random.nextInt(800);
+			}
+
+			layout = TreeLayout.of(tree, layout);
+			TreeFrame next = new TreeFrame(layout, width, height, searchPath, insertKey, frame);
+			double[] dirty = next.dirtyRegions(frame);
+			if (dirty != null) {
+				partial++;
+				List<double[][]> before = drawables(frame);
+				List<double[][]> after = drawables(next);
+				assertCovered(before, after, dirty);
+				assertCovered(after, before, dirty);
+			}
+			frame = next;
+		}
+		return partial;
+	}
+
+	/**
+	 * Checks that every drawable of one frame that the other frame does not
+	 * draw the same is inside a dirty region.
+	 */
+	private static void assertCovered(List<double[][]> frame, List<double[][]> other, double[] dirty) {
+		for (double[][] drawable : frame) {
+			if (!contains(other, drawable[0]) && !covered(drawable[1], dirty)) {
+				fail("Not repainted: " + Arrays.toString(drawable[0]));
+			}
+		}
+	}
+
+	private static boolean contains(List<double[][]> drawables, double[] look) {
+		for (double[][] drawable : drawables) {
+			if (same(drawable[0], look)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean same(double[] a, double[] b) {
+		for (int i = 0; i < a.length; i++) {
+			if (Math.abs(a[i] - b[i]) > SAME) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean covered(double[] box, double[] dirty) {
+		for (int i = 0; i < dirty.length; i += 4) {
+			if (box[0] >= dirty[i] - SAME && box[1] >= dirty[i + 1] - SAME
+					&& box[0] + box[2] <= dirty[i] + dirty[i + 2] + SAME
+					&& box[1] + box[3] <= dirty[i + 1] + dirty[i + 3] + SAME) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Lists what a frame draws: each circle as {0, key, x, y, lit, 0} and each
+	 * line as {1, x1, y1, x2, y2, lit}, with the box it covers.
+	 */
+	private static List<double[][]> drawables(TreeFrame frame) {
+		List<double[][]> drawn = new ArrayList<>();
+		frame.visit(-1e9, -1e9, 2e9, 2e9, (node, x, y) -> {
+			drawn.add(new double[][] {
+					{ 0, node.key, x, y, frame.circleLit(node.key) ? 1 : 0, 0 },
+					{ x - E, y - E, 2 * E, 2 * E } });
+			line(drawn, frame, x, y, node.left, node.leftDx);
+			line(drawn, frame, x, y, node.right, node.rightDx);
+		});
+		return drawn;
+	}
+
+	private static void line(List<double[][]> drawn, TreeFrame frame, double x, double y,
+			TreeLayout.Node child, double childDx) {
+		if (child == null) {
+			return;
+		}
+		double childX = frame.childX(x, childDx);
+		double childY = y + frame.rowHeight;
+		drawn.add(new double[][] {
+				{ 1, x, y, childX, childY, frame.lineLit(child.key) ? 1 : 0 },
+				{ Math.min(x, childX) - L, y - L, Math.abs(x - childX) + 2 * L, frame.rowHeight + 2 * L } });
+	}
+}
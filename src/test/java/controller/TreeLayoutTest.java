@@ -0,0 +1,232 @@
+package controller;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.Test;
+
+import tree.BalanceMode;
+import tree.BinarySearchTree;
+import tree.VersionedTree;
+
+/**
+ * Lays out trees one change after another and checks that every layout
+ * reused from the one before is the layout made from scratch, for a
+ * versioned tree, matched by node identity, and for a tree that changes
+ * its nodes in place, matched through its shape, and that a write to a
+ * large versioned tree makes new layout nodes only along its path.
+ * @author Eric Canull
+ * @version 1.0
+ */
+public class TreeLayoutTest {
+
+	@Test
+	public void incrementalMatchesRebuild() {
+		for (BalanceMode mode : BalanceMode.values()) {
+			Random random = new Random(24);
+			VersionedTree versions = new VersionedTree(mode);
+			BinarySearchTree inPlace = new BinarySearchTree(mode);
+			TreeLayout persistent = null;
+			TreeLayout copied = null;
+
+			for (int step = 0; step < 3000; step++) {
+				int searchKey = random.nextInt(400);
+				int action = random.nextInt(10);
+				if (action < 5) {
+					versions.insertItem(searchKey);
+					inPlace.insertItem(searchKey);
+				} else if (action < 8) {
+					versions.deleteItem(searchKey);
+					inPlace.deleteItem(searchKey);
+				} else if (action < 9) {
+					int[] batch = new int[random.nextInt(20)];
+					for (int i = 0; i < batch.length; i++) {
+						batch[i] = random.nextInt(400);
+					}
+					versions.insertAll(batch);
+					inPlace.insertAll(batch);
+				} else {
+					// Go back and forth through the history; the tree on the
+					// side follows the version shown
+					versions.viewVersion(random.nextInt(versions.getVersionCount()));
+					inPlace = new BinarySearchTree(mode);
+					inPlace.insertAll(versions.getTree().keys().toArray());
+					copied = null;
+				}
+
+				persistent = TreeLayout.of(versions.getTree(), persistent);
+				assertSameLayout(TreeLayout.of(versions.getTree(), null).root, persistent.root);
+				copied = TreeLayout.of(inPlace, copied);
+				assertSameLayout(TreeLayout.of(inPlace, null).root, copied.root);
+				if (step % 100 == 0) {
+					assertTidy(persistent);
+					assertTidy(copied);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void persistentAndCopiedShapesAgree() {
+		BinarySearchTree versioned = new BinarySearchTree(BalanceMode.AVL, true);
+		BinarySearchTree inPlace = new BinarySearchTree(BalanceMode.AVL);
+		Random random = new Random(25);
+		for (int i = 0; i < 2000; i++) {
+			int searchKey = random.nextInt(5000);
+			versioned.insertItem(searchKey);
+			inPlace.insertItem(searchKey);
+		}
+		assertSameLayout(TreeLayout.of(inPlace, null).root, TreeLayout.of(versioned, null).root);
+	}
+
+	@Test
+	public void writeMakesNodesAlongItsPath() {
+		VersionedTree versions = new VersionedTree(BalanceMode.AVL);
+		Random random = new Random(26);
+		int[] keys = new int[100000];
+		for (int i = 0; i < keys.length; i++) {
+			keys[i] = 2 * random.nextInt(1 << 24);
+		}
+		versions.insertAll(keys);
+		TreeLayout layout = TreeLayout.of(versions.getTree(), null);
+		assertSame(layout, TreeLayout.of(versions.getTree(), layout));
+
+		for (int step = 0; step < 200; step++) {
+			int searchKey = 2 * random.nextInt(1 << 24) + step % 2;
+			if (step % 3 == 0) {
+				versions.deleteItem(versions.getTree().select(random.nextInt(versions.getTree().getSize())));
+			} else {
+				versions.insertItem(searchKey);
+			}
+			TreeLayout next = TreeLayout.of(versions.getTree(), layout);
+
+			// A write copies its path and the nodes it rotates
+			int height = next.height();
+			assertTrue(newNodes(next) <= height + 3);
+			assertTrue(next.unchanged.length <= 2 * height + 3);
+			for (TreeLayout.Node node : next.unchanged) {
+				assertFalse(next.isNew(node));
+			}
+			layout = next;
+		}
+		assertSameLayout(TreeLayout.of(versions.getTree(), null).root, layout.root);
+	}
+
+	@Test
+	public void emptyTree() {
+		VersionedTree versions = new VersionedTree(BalanceMode.AVL);
+		TreeLayout layout = TreeLayout.of(versions.getTree(), null);
+		assertNull(layout.root);
+		assertEquals(0, layout.height());
+		assertSame(layout, TreeLayout.of(versions.getTree(), layout));
+
+		versions.insertItem(1);
+		layout = TreeLayout.of(versions.getTree(), layout);
+		assertEquals(1, layout.height());
+		versions.deleteItem(1);
+		layout = TreeLayout.of(versions.getTree(), layout);
+		assertNull(layout.root);
+	}
+
+	/**
+	 * Checks that every parent is centered over its children, a lone child
+	 * half a unit to its side, and that the nodes of each level are in key
+	 * order and at least one unit apart.
+	 */
+	private static void assertTidy(TreeLayout layout) {
+		List<TreeMap<Integer, Double>> levels = new ArrayList<>();
+		Deque<Object[]> stack = new ArrayDeque<>();
+		if (layout.root != null) {
+			stack.push(new Object[] { layout.root, 0.0, 0 });
+		}
+		while (!stack.isEmpty()) {
+			Object[] entry = stack.pop();
+			TreeLayout.Node node = (TreeLayout.Node) entry[0];
+			double x = (Double) entry[1];
+			int level = (Integer) entry[2];
+			if (levels.size() == level) {
+				levels.add(new TreeMap<>());
+			}
+			levels.get(level).put(node.key, x);
+
+			if (node.left != null && node.right != null) {
+				assertEquals(0, node.leftDx + node.rightDx, 1e-9);
+			} else if (node.left != null || node.right != null) {
+				assertEquals(node.left != null ? -0.5 : 0.5, node.left != null ? node.leftDx : node.rightDx, 0);
+			}
+			if (node.left != null) {
+				stack.push(new Object[] { node.left, x + node.leftDx, level + 1 });
+			}
+			if (node.right != null) {
+				stack.push(new Object[] { node.right, x + node.rightDx, level + 1 });
+			}
+		}
+
+		assertEquals(layout.height(), levels.size());
+		for (TreeMap<Integer, Double> level : levels) {
+			double last = Double.NEGATIVE_INFINITY;
+			for (double x : level.values()) {
+				assertTrue(x - last >= 1 - 1e-9);
+				last = x;
+			}
+		}
+	}
+
+	/**
+	 * Counts the nodes a layout made, which are all reached through new
+	 * nodes from the root.
+	 */
+	private static int newNodes(TreeLayout layout) {
+		int count = 0;
+		Deque<TreeLayout.Node> stack = new ArrayDeque<>();
+		if (layout.root != null && layout.isNew(layout.root)) {
+			stack.push(layout.root);
+		}
+		while (!stack.isEmpty()) {
+			TreeLayout.Node node = stack.pop();
+			count++;
+			for (TreeLayout.Node child : new TreeLayout.Node[] { node.left, node.right }) {
+				if (child != null && layout.isNew(child)) {
+					stack.push(child);
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Checks that two layouts have the same keys, links and offsets. The
+	 * layout of a subtree depends only on the subtree, so a reused layout
+	 * is exactly the one made from scratch.
+	 */
+	static void assertSameLayout(TreeLayout.Node expected, TreeLayout.Node actual) {
+		Deque<TreeLayout.Node[]> stack = new ArrayDeque<>();
+		stack.push(new TreeLayout.Node[] { expected, actual });
+		while (!stack.isEmpty()) {
+			TreeLayout.Node[] pair = stack.pop();
+			if (pair[0] == null || pair[1] == null) {
+				assertSame(pair[0], pair[1]);
+				continue;
+			}
+			assertEquals(pair[0].key, pair[1].key);
+			assertEquals(pair[0].size, pair[1].size);
+			assertEquals(pair[0].height, pair[1].height);
+			assertEquals(pair[0].leftDx, pair[1].leftDx, 0);
+			assertEquals(pair[0].rightDx, pair[1].rightDx, 0);
+			assertEquals(pair[0].minX, pair[1].minX, 0);
+			assertEquals(pair[0].maxX, pair[1].maxX, 0);
+			stack.push(new TreeLayout.Node[] { pair[0].left, pair[1].left });
+			stack.push(new TreeLayout.Node[] { pair[0].right, pair[1].right });
+		}
+	}
+}
@@ -0,0 +1,330 @@
+package tree;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+/**
+ * Stress tests for the concurrent tree. Threads record every operation
+ * with the times it was called and returned, and the history is checked
+ * against a sequential set. A set is linearizable if the history of each
+ * key is, so each key is checked on its own with a Wing and Gong search.
+ * @author Eric Canull
+ * @version 1.0
+ */
+public class ConcurrentBinaryTreeTest {
+
+	private static final int THREADS = 8;
+	private static final int KEYS = 1024;
+	private static final int ROUNDS_PER_KEY = 4;   // Operations on each key by each thread
+
+	private static final int INSERT = 0;
+	private static final int DELETE = 1;
+	private static final int RETRIEVE = 2;
+
+	@Test(timeout = 120000)
+	public void mixedOperationsAreLinearizable() throws InterruptedException {
+		for (int round = 0; round < 6; round++) {
+			// Odd rounds visit the keys in ascending order, so inserts keep
+			// landing at the right edge and force rebuilds
+			checkLinearizable(runHistory(new ConcurrentBinaryTree(), round, round % 2 == 1));
+		}
+	}
+
+	@Test(timeout = 120000)
+	public void sortedInsertsStayBalanced() {
+		ConcurrentBinaryTree tree = new ConcurrentBinaryTree();
+		int count = 100000;
+		for (int i = 0; i < count; i++) {
+			tree.insertItem(i);
+		}
+
+		assertEquals(count, tree.getSize());
+		assertTrue("height " + tree.getHeight(), tree.getHeight() <= maxHeight(count));
+		assertAscending(tree, count);
+	}
+
+	@Test(timeout = 120000)
+	public void concurrentSortedInsertsStayBalanced() throws InterruptedException {
+		ConcurrentBinaryTree tree = new ConcurrentBinaryTree();
+		int count = 200000;
+		AtomicInteger next = new AtomicInteger();
+		runThreads(thread -> {
+			for (int key = next.getAndIncrement(); key < count; key = next.getAndIncrement()) {
+				tree.insertItem(key);
+			}
+		});
+
+		assertEquals(count, tree.getSize());
+		// A rebuild given up because a writer changed its parent can leave a
+		// leaf a little too deep until the next insert near it
+		assertTrue("height " + tree.getHeight(), tree.getHeight() <= maxHeight(count) + 2);
+		assertAscending(tree, count);
+	}
+
+	@Test(timeout = 120000)
+	public void makeEmptyRunsAlongsideWriters() throws InterruptedException {
+		ConcurrentBinaryTree tree = new ConcurrentBinaryTree();
+		AtomicBoolean stop = new AtomicBoolean();
+		Thread clearer = new Thread(() -> {
+			while (!stop.get()) {
+				tree.makeEmpty();
+				Thread.yield();
+			}
+		});
+
+		clearer.start();
+		runThreads(thread -> {
+			Random random = new Random(thread);
+			for (int i = 0; i < 50000; i++) {
+				int key = random.nextInt(4096);
+				if (random.nextBoolean()) {
+					tree.insertItem(key);
+				} else {
+					tree.deleteItem(key);
+				}
+			}
+		});
+		stop.set(true);
+		clearer.join();
+
+		int keys = 0;
+		PrimitiveIterator.OfInt traversal = tree.traversal(TraversalOrder.INORDER);
+		while (traversal.hasNext()) {
+			traversal.nextInt();
+			keys++;
+		}
+		assertEquals(keys, tree.getSize());
+
+		tree.makeEmpty();
+		assertTrue(tree.isEmpty());
+		assertEquals(0, tree.getSize());
+		assertFalse(tree.traversal(TraversalOrder.INORDER).hasNext());
+	}
+
+	/**
+	 * Runs every thread through every key a few times, calling a random
+	 * operation on each, and gathers what they did.
+	 */
+	private static List<Operation> runHistory(ConcurrentBinaryTree tree, long seed, boolean ascending)
+			throws InterruptedException {
+		List<List<Operation>> logs = new ArrayList<>();
+		for (int t = 0; t < THREADS; t++) {
+			logs.add(new ArrayList<>());
+		}
+
+		runThreads(thread -> {
+			Random random = new Random(seed * THREADS + thread);
+			List<Operation> log = logs.get(thread);
+			int[] keys = new int[KEYS];
+			for (int i = 0; i < KEYS; i++) {
+				keys[i] = i * 3;
+			}
+
+			for (int pass = 0; pass < ROUNDS_PER_KEY; pass++) {
+				if (!ascending) {
+					shuffle(keys, random);
+				}
+				for (int key : keys) {
+					int type = random.nextInt(10) < 4 ? INSERT : random.nextBoolean() ? DELETE : RETRIEVE;
+					long invoked = System.nanoTime();
+					boolean result = false;
+					if (type == INSERT) {
+						tree.insertItem(key);
+					} else if (type == DELETE) {
+						result = tree.deleteItem(key);
+					} else {
+						result = tree.retrieveItem(key);
+					}
+					log.add(new Operation(key, type, result, invoked, System.nanoTime()));
+				}
+			}
+		});
+
+		List<Operation> history = new ArrayList<>();
+		for (List<Operation> log : logs) {
+			history.addAll(log);
+		}
+		return history;
+	}
+
+	/**
+	 * Checks the history of every key against a sequential set.
+	 */
+	private static void checkLinearizable(List<Operation> history) {
+		history.sort(Comparator.comparingInt((Operation op) -> op.key).thenComparingLong(op -> op.invoked));
+		int from = 0;
+		while (from < history.size()) {
+			int to = from;
+			while (to < history.size() && history.get(to).key == history.get(from).key) {
+				to++;
+			}
+
+			Operation[] ops = history.subList(from, to).toArray(new Operation[0]);
+			if (!new KeyHistory(ops).linearizable()) {
+				fail("Not linearizable for key " + ops[0].key + ": " + Arrays.toString(ops));
+			}
+			from = to;
+		}
+	}
+
+	private static void runThreads(Worker worker) throws InterruptedException {
+		CountDownLatch start = new CountDownLatch(1);
+		AtomicReference<Throwable> failure = new AtomicReference<>();
+		Thread[] threads = new Thread[THREADS];
+		for (int t = 0; t < THREADS; t++) {
+			int thread = t;
+			threads[t] = new Thread(() -> {
+				try {
+					start.await();
+					worker.run(thread);
+				} catch (Throwable e) {
+					failure.compareAndSet(null, e);
+				}
+			});
+			threads[t].start();
+		}
+
+		start.countDown();
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		if (failure.get() != null) {
+			throw new AssertionError(failure.get());
+		}
+	}
+
+	private static void assertAscending(ConcurrentBinaryTree tree, int count) {
+		PrimitiveIterator.OfInt traversal = tree.traversal(TraversalOrder.INORDER);
+		for (int i = 0; i < count; i++) {
+			assertEquals(i, traversal.nextInt());
+		}
+		assertFalse(traversal.hasNext());
+	}
+
+	/**
+	 * Gets the height limit of the tree, counting the sentinel leaf.
+	 */
+	private static int maxHeight(int keys) {
+		return 2 * (64 - Long.numberOfLeadingZeros(keys + 1L)) + 1;
+	}
+
+	private static void shuffle(int[] keys, Random random) {
+		for (int i = keys.length - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			int swap = keys[i];
+			keys[i] = keys[j];
+			keys[j] = swap;
+		}
+	}
+
+	@FunctionalInterface
+	private interface Worker {
+
+		void run(int thread) throws Exception;
+	}
+
+	/**
+	 * One recorded call.
+	 */
+	private static final class Operation {
+
+		final int key;
+		final int type;
+		final boolean result;
+		final long invoked;
+		final long returned;
+
+		Operation(int key, int type, boolean result, long invoked, long returned) {
+			this.key = key;
+			this.type = type;
+			this.result = result;
+			this.invoked = invoked;
+			this.returned = returned;
+		}
+
+		@Override
+		public String toString() {
+			String name = type == INSERT ? "insert" : type == DELETE ? "delete" : "retrieve";
+			return name + "=" + result + "@[" + invoked + "," + returned + "]";
+		}
+	}
+
+	/**
+	 * The calls on one key, sorted by call time. Searches for an order
+	 * that respects real time, where a call that returned before another
+	 * was called comes first, and that a set holding or not holding the
+	 * key would answer the same way. Failed states are remembered so each
+	 * is tried once.
+	 */
+	private static final class KeyHistory {
+
+		private final Operation[] ops;
+		private final long done;
+		private final Set<Long> failed = new HashSet<>();
+
+		KeyHistory(Operation[] ops) {
+			if (ops.length > 62) {
+				throw new IllegalArgumentException("Too many calls on one key: " + ops.length);
+			}
+			this.ops = ops;
+			this.done = (1L << ops.length) - 1;
+		}
+
+		boolean linearizable() {
+			return search(0, false);
+		}
+
+		private boolean search(long placed, boolean present) {
+			if (placed == done) {
+				return true;
+			}
+			if (!failed.add(placed << 1 | (present ? 1 : 0))) {
+				return false;
+			}
+
+			// Only a call made before every unplaced call returned may go next
+			long firstReturn = Long.MAX_VALUE;
+			for (int i = 0; i < ops.length; i++) {
+				if ((placed & 1L << i) == 0) {
+					firstReturn = Math.min(firstReturn, ops[i].returned);
+				}
+			}
+
+			for (int i = 0; i < ops.length && ops[i].invoked <= firstReturn; i++) {
+				if ((placed & 1L << i) != 0) {
+					continue;
+				}
+				Operation op = ops[i];
+				boolean next;
+				if (op.type == INSERT) {
+					next = true;
+				} else if (op.result != present) {
+					continue;
+				} else {
+					next = op.type == RETRIEVE && present;
+				}
+				if (search(placed | 1L << i, next)) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+}
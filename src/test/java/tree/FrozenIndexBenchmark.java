@@ -0,0 +1,119 @@
+package tree;
+
+import java.util.Random;
+
+/**
+ * Times retrieveItem, floor and ceiling on a frozen index against the
+ * pointer tree it was frozen from, at sizes from well inside the CPU caches
+ * to well beyond them. Every search of a run uses the same fixed-seed
+ * random queries, half of them keys in the tree and half falling in the
+ * gaps between keys; each figure is the best of several timed passes
+ * after warm-up passes. Run it from the test classpath, optionally with
+ * the sizes to measure:
+ *
+ * <pre>
+ * java -cp target/classes:target/test-classes tree.FrozenIndexBenchmark 65536 4194304
+ * </pre>
+ * @author Eric Canull
+ * @version 1.0
+ */
+public final class FrozenIndexBenchmark {
+
+	private static final int[] DEFAULT_SIZES = { 1 << 12, 1 << 16, 1 << 20, 1 << 22 };
+	private static final int QUERIES = 1 << 20;
+	private static final int WARMUP_PASSES = 3;
+	private static final int TIMED_PASSES = 5;
+
+	private static long sink;   // Keeps the results alive
+
+	private FrozenIndexBenchmark() {
+	}
+
+	public static void main(String[] args) {
+		int[] sizes = DEFAULT_SIZES;
+		if (args.length > 0) {
+			sizes = new int[args.length];
+			for (int i = 0; i < args.length; i++) {
+				sizes[i] = Integer.parseInt(args[i]);
+			}
+		}
+
+		System.out.printf("%10s %-10s %12s %12s %8s%n", "size", "search", "tree ns/op", "frozen ns/op", "speedup");
+		for (int size : sizes) {
+			run(size);
+		}
+		System.out.println("(checksum " + sink + ")");
+	}
+
+	private static void run(int size) {
+		Random random = new Random(size);
+
+		// Keys 0, 4, 8, ... inserted in random order, so the nodes are
+		// spread over the heap the way a live tree's are
+		int[] keys = new int[size];
+		for (int i = 0; i < size; i++) {
+			keys[i] = 4 * i;
+		}
+		for (int i = size - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			int swap = keys[i];
+			keys[i] = keys[j];
+			keys[j] = swap;
+		}
+		BinarySearchTree tree = new BinarySearchTree(BalanceMode.AVL);
+		for (int searchKey : keys) {
+			tree.insertItem(searchKey);
+		}
+		FrozenIndex index = tree.freeze();
+
+		int[] queries = new int[QUERIES];
+		for (int i = 0; i < QUERIES; i++) {
+			queries[i] = 2 * random.nextInt(2 * size - 1);   // Half on keys, half in the gaps between them
+		}
+
+		report(size, "retrieve",
+				time(queries, searchKey -> tree.retrieveItem(searchKey) ? 1 : 0),
+				time(queries, searchKey -> index.retrieveItem(searchKey) ? 1 : 0));
+		report(size, "floor",
+				time(queries, searchKey -> tree.floor(searchKey)),
+				time(queries, searchKey -> valueOf(index.floor(searchKey))));
+		report(size, "ceiling",
+				time(queries, searchKey -> tree.ceiling(searchKey)),
+				time(queries, searchKey -> valueOf(index.ceiling(searchKey))));
+	}
+
+	/**
+	 * Runs every query through a search, keeping the fastest timed pass.
+	 * @return The best time per query in nanoseconds
+	 */
+	private static double time(int[] queries, Search search) {
+		long best = Long.MAX_VALUE;
+		for (int pass = 0; pass < WARMUP_PASSES + TIMED_PASSES; pass++) {
+			long start = System.nanoTime();
+			long sum = 0;
+			for (int searchKey : queries) {
+				sum += search.run(searchKey);
+			}
+			long elapsed = System.nanoTime() - start;
+			sink += sum;
+			if (pass >= WARMUP_PASSES) {
+				best = Math.min(best, elapsed);
+			}
+		}
+		return (double) best / queries.length;
+	}
+
+	private static void report(int size, String name, double treeTime, double frozenTime) {
+		System.out.printf("%10d %-10s %12.1f %12.1f %7.2fx%n", size, name, treeTime, frozenTime, treeTime / frozenTime);
+	}
+
+	private static int valueOf(Integer searchKey) {
+		return searchKey == null ? 0 : searchKey;
+	}
+
+	@FunctionalInterface
+	private interface Search {
+
+		int run(int searchKey);
+	}
+}
@@ -0,0 +1,119 @@
+package tree;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.function.IntSupplier;
+
+import org.junit.Test;
+
+/**
+ * Checks the searches of a frozen index against a TreeSet holding the same
+ * keys, for every size up to a few hundred so that every shape of the last
+ * Eytzinger level is covered, and for the edges where a search runs off
+ * one end of the keys.
+ * @author Eric Canull
+ * @version 1.0
+ */
+public class FrozenIndexTest {
+
+	@Test
+	public void emptyIndex() {
+		FrozenIndex index = new BinarySearchTree().freeze();
+		assertTrue(index.isEmpty());
+		assertEquals(0, index.size());
+		for (int searchKey : new int[] { Integer.MIN_VALUE, -1, 0, 1, Integer.MAX_VALUE }) {
+			assertFalse(index.retrieveItem(searchKey));
+			assertNull(index.floor(searchKey));
+			assertNull(index.ceiling(searchKey));
+			assertNull(index.higher(searchKey));
+			assertNull(index.lower(searchKey));
+		}
+	}
+
+	@Test
+	public void keyBelowMin() {
+		FrozenIndex index = freeze(10, 20, 30);
+		assertNull(index.floor(9));
+		assertNull(index.lower(10));
+		assertEquals(Integer.valueOf(10), index.ceiling(9));
+		assertEquals(Integer.valueOf(10), index.higher(Integer.MIN_VALUE));
+		assertFalse(index.retrieveItem(Integer.MIN_VALUE));
+	}
+
+	@Test
+	public void keyAboveMax() {
+		FrozenIndex index = freeze(10, 20, 30);
+		assertNull(index.ceiling(31));
+		assertNull(index.higher(30));
+		assertEquals(Integer.valueOf(30), index.floor(31));
+		assertEquals(Integer.valueOf(30), index.lower(Integer.MAX_VALUE));
+		assertFalse(index.retrieveItem(Integer.MAX_VALUE));
+	}
+
+	@Test
+	public void extremeKeys() {
+		FrozenIndex index = freeze(Integer.MIN_VALUE, 0, Integer.MAX_VALUE);
+		assertTrue(index.retrieveItem(Integer.MIN_VALUE));
+		assertTrue(index.retrieveItem(Integer.MAX_VALUE));
+		assertEquals(Integer.valueOf(Integer.MIN_VALUE), index.floor(-1));
+		assertEquals(Integer.valueOf(Integer.MAX_VALUE), index.ceiling(1));
+		assertNull(index.lower(Integer.MIN_VALUE));
+		assertNull(index.higher(Integer.MAX_VALUE));
+	}
+
+	@Test
+	public void matchesTreeSetForEverySize() {
+		Random random = new Random(15);
+		for (int size = 0; size <= 300; size++) {
+			TreeSet<Integer> expected = new TreeSet<>();
+			BinarySearchTree tree = new BinarySearchTree(BalanceMode.AVL);
+			while (expected.size() < size) {
+				int searchKey = 2 * random.nextInt(1000);   // Even keys, so odd queries fall in gaps
+				expected.add(searchKey);
+				tree.insertItem(searchKey);
+			}
+
+			FrozenIndex index = tree.freeze();
+			assertEquals(size, index.size());
+			for (int searchKey = -3; searchKey <= 2003; searchKey++) {
+				assertEquals(expected.contains(searchKey), index.retrieveItem(searchKey));
+				assertEquals(expected.floor(searchKey), index.floor(searchKey));
+				assertEquals(expected.ceiling(searchKey), index.ceiling(searchKey));
+				assertEquals(expected.higher(searchKey), index.higher(searchKey));
+				assertEquals(expected.lower(searchKey), index.lower(searchKey));
+
+				int query = searchKey;
+				assertNearest(expected.floor(searchKey), () -> tree.floor(query));
+				assertNearest(expected.ceiling(searchKey), () -> tree.ceiling(query));
+				assertNearest(expected.higher(searchKey), () -> tree.higher(query));
+				assertNearest(expected.lower(searchKey), () -> tree.lower(query));
+			}
+		}
+	}
+
+	/**
+	 * Checks a nearest-key query of the tree, which throws where the index
+	 * and the TreeSet give null.
+	 */
+	private static void assertNearest(Integer expected, IntSupplier query) {
+		try {
+			int found = query.getAsInt();
+			assertEquals(expected, Integer.valueOf(found));
+		} catch (TreeException missing) {
+			assertNull(expected);
+		}
+	}
+
+	private static FrozenIndex freeze(int... keys) {
+		BinarySearchTree tree = new BinarySearchTree(BalanceMode.AVL);
+		for (int searchKey : keys) {
+			tree.insertItem(searchKey);
+		}
+		return tree.freeze();
+	}
+}
@@ -0,0 +1,90 @@
+package tree;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+/**
+ * Runs random inserts and deletes on a GenericTree and a TreeSet with the
+ * same comparator and checks that they agree on every query, and that the
+ * cached heights and sizes stay correct.
+ * @author Eric Canull
+ * @version 1.0
+ */
+public class GenericTreeTest {
+
+	@Test
+	public void matchesTreeSet() {
+		for (BalanceMode mode : BalanceMode.values()) {
+			check(mode, Comparator.naturalOrder(), 16);
+			check(mode, Comparator.reverseOrder(), 17);
+		}
+	}
+
+	@Test
+	public void emptyTree() {
+		GenericTree<String> tree = new GenericTree<>(Comparator.naturalOrder(), BalanceMode.AVL);
+		assertNull(tree.floor("a"));
+		assertNull(tree.ceiling("a"));
+		assertFalse(tree.retrieveItem("a"));
+		assertFalse(tree.deleteItem("a"));
+		assertFalse(tree.iterator().hasNext());
+		assertEquals(0, tree.getHeight());
+		try {
+			tree.first();
+			fail("An empty tree has no first key");
+		} catch (TreeException expected) {
+			// The tree is empty
+		}
+	}
+
+	@Test(expected = NullPointerException.class)
+	public void rejectsNullKeys() {
+		new GenericTree<String>(Comparator.naturalOrder()).insertItem(null);
+	}
+
+	private static void check(BalanceMode mode, Comparator<Integer> comparator, long seed) {
+		Random random = new Random(seed);
+		GenericTree<Integer> tree = new GenericTree<>(comparator, mode);
+		TreeSet<Integer> expected = new TreeSet<>(comparator);
+		for (int i = 0; i < 4000; i++) {
+			int searchKey = random.nextInt(1000);
+			if (random.nextInt(3) == 0) {
+				assertEquals(expected.remove(searchKey), tree.deleteItem(searchKey));
+			} else {
+				expected.add(searchKey);
+				tree.insertItem(searchKey);
+			}
+
+			int query = random.nextInt(1100) - 50;
+			assertEquals(expected.contains(query), tree.retrieveItem(query));
+			assertEquals(expected.floor(query), tree.floor(query));
+			assertEquals(expected.ceiling(query), tree.ceiling(query));
+			if (i % 100 == 0) {
+				checkTree(expected, tree, mode);
+			}
+		}
+		checkTree(expected, tree, mode);
+	}
+
+	private static void checkTree(TreeSet<Integer> expected, GenericTree<Integer> tree, BalanceMode mode) {
+		List<Integer> keys = new ArrayList<>();
+		tree.forEach(keys::add);
+		assertEquals(new ArrayList<>(expected), keys);
+		assertEquals(expected.size(), tree.getSize());
+		if (!expected.isEmpty()) {
+			assertEquals(expected.first(), tree.first());
+			assertEquals(expected.last(), tree.last());
+		}
+		TreeChecks.assertLinked(tree.root, mode == BalanceMode.AVL);
+	}
+}
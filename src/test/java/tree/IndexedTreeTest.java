@@ -0,0 +1,140 @@
+package tree;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Checks the slot-indexed trees against a TreeSet through random inserts
+ * and deletes, including the cached heights and AVL balance of the slots,
+ * and that a memory-mapped tree reopened from its file holds the same
+ * keys in the same shape.
+ * @author Eric Canull
+ * @version 1.0
+ */
+public class IndexedTreeTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void pooledTreeMatchesTreeSet() {
+		for (BalanceMode mode : BalanceMode.values()) {
+			PooledBinaryTree tree = new PooledBinaryTree(mode, 4);
+			churn(tree, new TreeSet<>(), new Random(10), 20000);
+		}
+	}
+
+	@Test
+	public void offHeapTreeMatchesTreeSet() throws IOException {
+		for (BalanceMode mode : BalanceMode.values()) {
+			try (OffHeapBinaryTree tree = new OffHeapBinaryTree(mode)) {
+				churn(tree, new TreeSet<>(), new Random(11), 20000);
+			}
+		}
+	}
+
+	@Test
+	public void reopensMappedTree() throws IOException {
+		Path file = folder.getRoot().toPath().resolve("tree.bin");
+		TreeSet<Integer> expected = new TreeSet<>();
+		Random random = new Random(12);
+		String shape;
+
+		try (OffHeapBinaryTree tree = OffHeapBinaryTree.open(file, BalanceMode.AVL)) {
+			assertTrue(tree.isFileBacked());
+			churn(tree, expected, random, 30000);
+			shape = shapeOf(tree);
+		}
+
+		// The file keeps the AVL mode it was created with
+		try (OffHeapBinaryTree tree = OffHeapBinaryTree.open(file, BalanceMode.NONE)) {
+			assertEquals(BalanceMode.AVL, tree.getBalanceMode());
+			assertEquals(shape, shapeOf(tree));
+			checkTree(expected, tree);
+
+			// Reused free slots and new slots both survive the next reopen
+			churn(tree, expected, random, 30000);
+			shape = shapeOf(tree);
+		}
+
+		try (OffHeapBinaryTree tree = OffHeapBinaryTree.open(file, BalanceMode.AVL)) {
+			assertEquals(shape, shapeOf(tree));
+			checkTree(expected, tree);
+		}
+	}
+
+	@Test
+	public void rejectsForeignFile() throws IOException {
+		Path file = folder.getRoot().toPath().resolve("foreign.bin");
+		Files.write(file, new byte[128]);
+		try {
+			OffHeapBinaryTree.open(file, BalanceMode.AVL).close();
+			fail("A file without the tree header was opened");
+		} catch (IOException expected) {
+			// Not a tree file
+		}
+	}
+
+	/**
+	 * Applies random inserts and deletes to a tree and the TreeSet holding
+	 * the same keys, checking them against each other along the way.
+	 */
+	private static void churn(IndexedTreeBasis tree, TreeSet<Integer> expected, Random random, int writes) {
+		for (int i = 0; i < writes; i++) {
+			int searchKey = random.nextInt(writes / 2);
+			if (random.nextInt(3) == 0) {
+				assertEquals(expected.remove(searchKey), tree.deleteItem(searchKey));
+			} else {
+				expected.add(searchKey);
+				tree.insertItem(searchKey);
+			}
+			if (i % 1000 == 0) {
+				checkTree(expected, tree);
+			}
+		}
+		checkTree(expected, tree);
+	}
+
+	private static void checkTree(TreeSet<Integer> expected, IndexedTreeBasis tree) {
+		TreeChecks.assertKeys(expected, tree);
+		int height = checkSlots(tree, tree.rootIndex, tree.getBalanceMode() == BalanceMode.AVL);
+		assertEquals(height, tree.getHeight());
+	}
+
+	/**
+	 * @return The height of the subtree under a slot
+	 */
+	private static int checkSlots(IndexedTreeBasis tree, int node, boolean balanced) {
+		if (node == IndexedTreeBasis.NIL) {
+			return 0;
+		}
+		int leftHeight = checkSlots(tree, tree.left(node), balanced);
+		int rightHeight = checkSlots(tree, tree.right(node), balanced);
+		if (balanced) {
+			assertTrue("Slot " + node + " is unbalanced", Math.abs(leftHeight - rightHeight) <= 1);
+		}
+		int height = Math.max(leftHeight, rightHeight) + 1;
+		assertEquals("Cached height of slot " + node, height, tree.height(node));
+		return height;
+	}
+
+	/**
+	 * Writes the keys in preorder, which fixes the shape of the tree.
+	 */
+	private static String shapeOf(IndexedTreeBasis tree) {
+		StringBuilder text = new StringBuilder();
+		tree.traversal(TraversalOrder.PREORDER).forEachRemaining((int searchKey) -> text.append(searchKey).append(' '));
+		return text.toString();
+	}
+}
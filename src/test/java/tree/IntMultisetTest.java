@@ -0,0 +1,122 @@
+package tree;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.Test;
+
+/**
+ * Runs random adds and removes on an IntMultiset and on a TreeMap of
+ * counts and checks that they agree on every count, on the keys and
+ * occurrences they iterate, and that a key whose count reaches zero is
+ * gone.
+ * @author Eric Canull
+ * @version 1.0
+ */
+public class IntMultisetTest {
+
+	@Test
+	public void matchesTreeMapOfCounts() {
+		Random random = new Random(21);
+		IntMultiset multiset = new IntMultiset();
+		TreeMap<Integer, Integer> expected = new TreeMap<>();
+		long size = 0;
+
+		for (int step = 0; step < 20000; step++) {
+			int key = random.nextInt(300) - 150;
+			int oldCount = expected.getOrDefault(key, 0);
+			int occurrences = random.nextInt(4);
+			switch (random.nextInt(4)) {
+			case 0:
+				assertEquals(oldCount, multiset.add(key));
+				expected.put(key, oldCount + 1);
+				size++;
+				break;
+			case 1:
+				assertEquals(oldCount, multiset.add(key, occurrences));
+				if (oldCount + occurrences > 0) {
+					expected.put(key, oldCount + occurrences);
+				}
+				size += occurrences;
+				break;
+			case 2:
+				assertEquals(oldCount > 0, multiset.remove(key));
+				size -= remove(expected, key, 1);
+				break;
+			default:
+				assertEquals(oldCount, multiset.remove(key, occurrences));
+				size -= remove(expected, key, occurrences);
+				break;
+			}
+
+			assertEquals(expected.getOrDefault(key, 0).intValue(), multiset.count(key));
+			assertEquals(expected.containsKey(key), multiset.contains(key));
+			assertEquals(size, multiset.size());
+			if (step % 100 == 0) {
+				checkContents(expected, multiset);
+			}
+		}
+		checkContents(expected, multiset);
+	}
+
+	@Test
+	public void lastRemoveUnlinksKey() {
+		IntMultiset multiset = new IntMultiset();
+		for (int key = 0; key < 64; key++) {
+			multiset.add(key, 3);
+		}
+		for (int key = 0; key < 64; key += 2) {
+			assertEquals(3, multiset.remove(key, 2));
+			assertTrue(multiset.contains(key));
+			assertTrue(multiset.remove(key));
+			assertFalse(multiset.contains(key));
+			assertFalse(multiset.remove(key));
+		}
+		assertEquals(32, multiset.distinctSize());
+		assertEquals(96, multiset.size());
+		assertEquals(0, multiset.distinctKeys().filter(key -> key % 2 == 0).count());
+
+		// Removing more occurrences than there are takes them all
+		assertEquals(3, multiset.remove(1, 10));
+		assertFalse(multiset.contains(1));
+		assertEquals(31, multiset.distinctSize());
+	}
+
+	/**
+	 * Removes occurrences from the expected counts, dropping a count that
+	 * reaches zero.
+	 * @return The number of occurrences removed
+	 */
+	private static int remove(TreeMap<Integer, Integer> expected, int key, int occurrences) {
+		int oldCount = expected.getOrDefault(key, 0);
+		int removed = Math.min(oldCount, occurrences);
+		if (oldCount - removed == 0) {
+			expected.remove(key);
+		} else {
+			expected.put(key, oldCount - removed);
+		}
+		return removed;
+	}
+
+	private static void checkContents(TreeMap<Integer, Integer> expected, IntMultiset multiset) {
+		assertEquals(expected.size(), multiset.distinctSize());
+		assertEquals(expected.isEmpty(), multiset.isEmpty());
+		assertArrayEquals(expected.keySet().stream().mapToInt(Integer::intValue).toArray(),
+				multiset.distinctKeys().toArray());
+
+		PrimitiveIterator.OfInt occurrences = multiset.iterator();
+		for (Map.Entry<Integer, Integer> entry : expected.entrySet()) {
+			for (int i = 0; i < entry.getValue(); i++) {
+				assertEquals(entry.getKey().intValue(), occurrences.nextInt());
+			}
+		}
+		assertFalse(occurrences.hasNext());
+	}
+}
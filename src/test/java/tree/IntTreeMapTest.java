@@ -0,0 +1,139 @@
+package tree;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.Test;
+
+/**
+ * Runs random puts, removes, computeIfAbsent() and merge() calls on an
+ * IntTreeMap and a TreeMap and checks that they end up with the same
+ * entries, including when a mapping function returns null or throws.
+ * @author Eric Canull
+ * @version 1.0
+ */
+public class IntTreeMapTest {
+
+	@Test
+	public void matchesTreeMap() {
+		Random random = new Random(21);
+		IntTreeMap<String> map = new IntTreeMap<>();
+		TreeMap<Integer, String> expected = new TreeMap<>();
+
+		for (int step = 0; step < 20000; step++) {
+			int key = random.nextInt(500) - 250;
+			String value = "v" + random.nextInt(10);
+			switch (random.nextInt(6)) {
+			case 0:
+				assertEquals(expected.put(key, value), map.put(key, value));
+				break;
+			case 1:
+				assertEquals(expected.remove(key), map.remove(key));
+				break;
+			case 2:
+				assertEquals(expected.get(key), map.get(key));
+				assertEquals(expected.containsKey(key), map.containsKey(key));
+				break;
+			case 3: {
+				// Computes null for every third key, which must leave no mapping
+				String computed = key % 3 == 0 ? null : value;
+				assertEquals(expected.computeIfAbsent(key, k -> computed), map.computeIfAbsent(key, k -> computed));
+				break;
+			}
+			case 4:
+				assertEquals(expected.merge(key, value, IntTreeMapTest::combine),
+						map.merge(key, value, IntTreeMapTest::combine));
+				break;
+			default:
+				computeThrows(map, expected, key);
+				break;
+			}
+			if (step % 100 == 0) {
+				checkEntries(expected, map);
+			}
+		}
+		checkEntries(expected, map);
+	}
+
+	@Test
+	public void computeIfAbsentCleansUp() {
+		IntTreeMap<String> map = new IntTreeMap<>();
+		assertNull(map.computeIfAbsent(1, k -> null));
+		assertFalse(map.containsKey(1));
+		assertEquals(0, map.size());
+
+		try {
+			map.computeIfAbsent(2, k -> {
+				throw new IllegalStateException("No value for " + k);
+			});
+			fail("The exception of the mapping function was not passed on");
+		} catch (IllegalStateException expected) {
+			assertFalse(map.containsKey(2));
+			assertEquals(0, map.size());
+		}
+
+		assertEquals("a", map.computeIfAbsent(3, k -> "a"));
+		assertEquals("a", map.computeIfAbsent(3, k -> "b"));
+		assertEquals(1, map.size());
+	}
+
+	@Test
+	public void mergeWithNullRemoves() {
+		IntTreeMap<String> map = new IntTreeMap<>();
+		for (int key = 0; key < 100; key++) {
+			map.put(key, "v" + key);
+		}
+		for (int key = 0; key < 100; key += 2) {
+			assertNull(map.merge(key, "x", (oldValue, value) -> null));
+		}
+		assertEquals(50, map.size());
+		for (int key = 0; key < 100; key++) {
+			assertEquals(key % 2 == 1, map.containsKey(key));
+		}
+
+		// A new key takes the given value without calling the function
+		assertEquals("y", map.merge(0, "y", (oldValue, value) -> null));
+		assertEquals("y", map.get(0));
+	}
+
+	/**
+	 * Appends a value to the old one, or drops the key when the old value
+	 * already ends with it.
+	 */
+	private static String combine(String oldValue, String value) {
+		return oldValue.endsWith(value) ? null : oldValue.substring(0, Math.min(oldValue.length(), 6)) + value;
+	}
+
+	private static void computeThrows(IntTreeMap<String> map, TreeMap<Integer, String> expected, int key) {
+		String before = expected.get(key);
+		try {
+			String value = map.computeIfAbsent(key, k -> {
+				throw new IllegalStateException();
+			});
+			assertEquals(before, value);   // A present key never calls the function
+		} catch (IllegalStateException thrown) {
+			assertNull(before);
+		}
+	}
+
+	private static void checkEntries(TreeMap<Integer, String> expected, IntTreeMap<String> map) {
+		assertEquals(expected.size(), map.size());
+		assertEquals(expected.isEmpty(), map.isEmpty());
+		List<Map.Entry<Integer, String>> entries = new ArrayList<>();
+		map.forEach((key, value) -> entries.add(new AbstractMap.SimpleEntry<>(key, value)));
+		assertEquals(new ArrayList<>(expected.entrySet()), entries);
+		if (!expected.isEmpty()) {
+			assertEquals(expected.firstKey().intValue(), map.firstKey());
+			assertEquals(expected.lastKey().intValue(), map.lastKey());
+		}
+	}
+}
@@ -0,0 +1,133 @@
+package tree;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+import java.util.PrimitiveIterator;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+/**
+ * Runs random inserts and deletes on a LongTree and a TreeSet and checks
+ * that they agree on every query, including keys beyond the int range, and
+ * that a missing floor or ceiling is reported by an exception.
+ * @author Eric Canull
+ * @version 1.0
+ */
+public class LongTreeTest {
+
+	private static final long SPREAD = 1L << 40;
+
+	@Test
+	public void matchesTreeSet() {
+		for (BalanceMode mode : BalanceMode.values()) {
+			Random random = new Random(16);
+			LongTree tree = new LongTree(mode);
+			TreeSet<Long> expected = new TreeSet<>();
+			for (int i = 0; i < 4000; i++) {
+				long searchKey = SPREAD * random.nextInt(1000);
+				if (random.nextInt(3) == 0) {
+					assertEquals(expected.remove(searchKey), tree.deleteItem(searchKey));
+				} else {
+					expected.add(searchKey);
+					tree.insertItem(searchKey);
+				}
+
+				long query = SPREAD * (random.nextInt(1100) - 50) + random.nextInt(2);
+				assertEquals(expected.contains(query), tree.retrieveItem(query));
+				checkNearest(expected, tree, query);
+				if (i % 100 == 0) {
+					checkTree(expected, tree, mode);
+				}
+			}
+			checkTree(expected, tree, mode);
+		}
+	}
+
+	@Test
+	public void extremeKeys() {
+		LongTree tree = new LongTree(BalanceMode.AVL);
+		tree.insertItem(Long.MIN_VALUE);
+		tree.insertItem(0);
+		tree.insertItem(Long.MAX_VALUE);
+
+		assertEquals(Long.MIN_VALUE, tree.floor(-1));
+		assertEquals(Long.MAX_VALUE, tree.ceiling(1));
+		assertEquals(Long.MIN_VALUE, tree.ceiling(Long.MIN_VALUE));
+		assertEquals(Long.MAX_VALUE, tree.floor(Long.MAX_VALUE));
+		assertEquals(Long.MIN_VALUE, tree.first());
+		assertEquals(Long.MAX_VALUE, tree.last());
+	}
+
+	@Test
+	public void missingNearestKeyThrows() {
+		LongTree tree = new LongTree(BalanceMode.AVL);
+		assertMissing(tree, 0);
+		tree.insertItem(10);
+		tree.insertItem(20);
+		try {
+			tree.floor(9);
+			fail("No key is at most 9");
+		} catch (TreeException expected) {
+			// Below the first key
+		}
+		try {
+			tree.ceiling(21);
+			fail("No key is at least 21");
+		} catch (TreeException expected) {
+			// Above the last key
+		}
+		assertEquals(10, tree.floor(19));
+		assertEquals(20, tree.ceiling(11));
+	}
+
+	private static void checkNearest(TreeSet<Long> expected, LongTree tree, long query) {
+		Long floor = expected.floor(query);
+		Long ceiling = expected.ceiling(query);
+		if (floor == null || ceiling == null) {
+			assertMissing(tree, query);
+		}
+		if (floor != null) {
+			assertEquals(floor.longValue(), tree.floor(query));
+		}
+		if (ceiling != null) {
+			assertEquals(ceiling.longValue(), tree.ceiling(query));
+		}
+	}
+
+	/**
+	 * Checks that the floor, the ceiling or both are missing for a query,
+	 * as far as the tree reports it.
+	 */
+	private static void assertMissing(LongTree tree, long query) {
+		int misses = 0;
+		try {
+			tree.floor(query);
+		} catch (TreeException expected) {
+			misses++;
+		}
+		try {
+			tree.ceiling(query);
+		} catch (TreeException expected) {
+			misses++;
+		}
+		assertEquals(tree.isEmpty() ? 2 : 1, misses);
+	}
+
+	private static void checkTree(TreeSet<Long> expected, LongTree tree, BalanceMode mode) {
+		PrimitiveIterator.OfLong keys = tree.keys();
+		for (long searchKey : expected) {
+			assertEquals(searchKey, keys.nextLong());
+		}
+		assertFalse(keys.hasNext());
+		assertEquals(expected.size(), tree.getSize());
+		if (!expected.isEmpty()) {
+			assertEquals(expected.first().longValue(), tree.first());
+			assertEquals(expected.last().longValue(), tree.last());
+		}
+		TreeChecks.assertLinked(tree.root, mode == BalanceMode.AVL);
+	}
+}
@@ -0,0 +1,121 @@
+package tree;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+/**
+ * Runs random inserts, retrieves and deletes on a SplayTree and a TreeSet
+ * and checks that they agree, that every operation leaves the key it
+ * reached at the root, and that the height, shape and search paths match
+ * the linked nodes.
+ * @author Eric Canull
+ * @version 1.0
+ */
+public class SplayTreeTest {
+
+	@Test
+	public void matchesTreeSet() {
+		Random random = new Random(20);
+		SplayTree tree = new SplayTree();
+		TreeSet<Integer> expected = new TreeSet<>();
+
+		for (int step = 0; step < 20000; step++) {
+			int searchKey = random.nextInt(1000);
+			switch (random.nextInt(3)) {
+			case 0:
+				expected.add(searchKey);
+				tree.insertItem(searchKey);
+				assertEquals(searchKey, tree.root.searchKey);
+				break;
+			case 1:
+				assertEquals(expected.contains(searchKey), tree.retrieveItem(searchKey));
+				if (!expected.isEmpty()) {
+					assertSplayed(expected, searchKey, tree.root.searchKey);
+				}
+				break;
+			default:
+				assertEquals(expected.remove(searchKey), tree.deleteItem(searchKey));
+				break;
+			}
+			assertEquals(expected.size(), tree.getSize());
+			if (step % 100 == 0) {
+				checkTree(expected, tree);
+			}
+		}
+		checkTree(expected, tree);
+	}
+
+	@Test
+	public void sortedInsertsThenScattered() {
+		// Sorted inserts leave a path; later lookups shorten it again
+		SplayTree tree = new SplayTree();
+		TreeSet<Integer> expected = new TreeSet<>();
+		for (int searchKey = 0; searchKey < 2000; searchKey++) {
+			tree.insertItem(searchKey);
+			expected.add(searchKey);
+		}
+		assertEquals(2000, tree.getHeight());
+
+		Random random = new Random(21);
+		for (int i = 0; i < 2000; i++) {
+			assertTrue(tree.retrieveItem(random.nextInt(2000)));
+		}
+		assertTrue(tree.getHeight() < 200);
+		checkTree(expected, tree);
+	}
+
+	@Test
+	public void emptyTree() {
+		SplayTree tree = new SplayTree();
+		assertFalse(tree.retrieveItem(1));
+		assertFalse(tree.deleteItem(1));
+		assertEquals(0, tree.getHeight());
+		assertEquals(0, tree.shape().size());
+		assertFalse(tree.searchPath(1).isFound());
+
+		tree.insertItem(1);
+		assertTrue(tree.deleteItem(1));
+		assertTrue(tree.isEmpty());
+		assertNull(tree.root);
+	}
+
+	/**
+	 * Checks that a retrieve left the key at the root, or else the key
+	 * next to it on one side.
+	 */
+	private static void assertSplayed(TreeSet<Integer> expected, int searchKey, int rootKey) {
+		if (expected.contains(searchKey)) {
+			assertEquals(searchKey, rootKey);
+		} else {
+			Integer floor = expected.floor(searchKey);
+			Integer ceiling = expected.ceiling(searchKey);
+			assertTrue(Integer.valueOf(rootKey).equals(floor) || Integer.valueOf(rootKey).equals(ceiling));
+		}
+	}
+
+	private static void checkTree(TreeSet<Integer> expected, SplayTree tree) {
+		TreeChecks.assertKeys(expected, tree);
+		int height = height(tree.root);
+		assertEquals(height, tree.getHeight());
+		assertEquals(height, tree.shape().height());
+		assertEquals(expected.size(), tree.shape().size());
+
+		// A traced search finds exactly the keys in the tree and does not splay
+		int root = tree.isEmpty() ? 0 : tree.root.searchKey;
+		for (int searchKey : new int[] { -1, 0, 500, 999, 1000 }) {
+			assertEquals(expected.contains(searchKey), tree.searchPath(searchKey).isFound());
+		}
+		assertEquals(root, tree.isEmpty() ? 0 : tree.root.searchKey);
+	}
+
+	private static int height(TreeNode tNode) {
+		return tNode == null ? 0 : 1 + Math.max(height(tNode.leftCircle), height(tNode.rightCircle));
+	}
+}
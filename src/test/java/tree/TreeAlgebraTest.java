@@ -0,0 +1,145 @@
+package tree;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+/**
+ * Checks split, join and the set operations against a TreeSet holding the
+ * same keys, and that every result is a valid AVL tree. Sizes run from
+ * empty trees to pairs above the size at which the set operations fork.
+ * @author Eric Canull
+ * @version 1.0
+ */
+public class TreeAlgebraTest {
+
+	private static final int PARALLEL_SIZE = 1 << 13;
+
+	private static final int UNION = 0;
+	private static final int INTERSECTION = 1;
+	private static final int DIFFERENCE = 2;
+
+	@Test
+	public void splitMatchesTreeSet() {
+		Random random = new Random(19);
+		for (int size = 0; size <= 120; size++) {
+			for (BalanceMode mode : BalanceMode.values()) {
+				TreeSet<Integer> keys = randomKeys(random, size, 400);
+				int splitKey = random.nextInt(440) - 20;   // Sometimes below or above every key
+
+				BinarySearchTree less = tree(mode, keys);
+				BinarySearchTree greater = less.split(splitKey);
+
+				TreeChecks.assertKeys(keys.headSet(splitKey, false), less);
+				TreeChecks.assertKeys(keys.tailSet(splitKey, true), greater);
+				TreeChecks.assertAvl(less.root);
+				TreeChecks.assertAvl(greater.root);
+				assertEquals(mode, greater.getBalanceMode());
+			}
+		}
+	}
+
+	@Test
+	public void joinMatchesTreeSet() {
+		Random random = new Random(20);
+		for (int i = 0; i < 500; i++) {
+			// Sizes far apart make the spines of very different heights
+			int bound = random.nextInt(2000) + 1;
+			TreeSet<Integer> all = randomKeys(random, random.nextInt(Math.min(bound, 400) + 1), bound);
+			int cut = random.nextInt(bound + 1);
+
+			BinarySearchTree left = tree(BalanceMode.AVL, all.headSet(cut, false));
+			BinarySearchTree right = tree(BalanceMode.AVL, all.tailSet(cut, true));
+			BinarySearchTree joined = BinarySearchTree.join(left, right);
+
+			TreeChecks.assertKeys(all, joined);
+			TreeChecks.assertAvl(joined.root);
+			assertTrue(left.isEmpty());
+			assertTrue(right.isEmpty());
+		}
+	}
+
+	@Test
+	public void joinRejectsOverlappingTrees() {
+		BinarySearchTree left = tree(BalanceMode.AVL, randomKeys(new Random(1), 10, 100));
+		BinarySearchTree right = tree(BalanceMode.AVL, randomKeys(new Random(2), 10, 100));
+		try {
+			BinarySearchTree.join(left, right);
+			fail("Overlapping trees were joined");
+		} catch (TreeException expected) {
+			assertEquals(10, left.getSize());
+			assertEquals(10, right.getSize());
+		}
+	}
+
+	@Test
+	public void setOperationsMatchTreeSet() {
+		Random random = new Random(21);
+		for (int i = 0; i < 300; i++) {
+			int bound = random.nextInt(600) + 1;
+			TreeSet<Integer> first = randomKeys(random, random.nextInt(Math.min(bound, 300) + 1), bound);
+			TreeSet<Integer> second = randomKeys(random, random.nextInt(Math.min(bound, 300) + 1), bound);
+			for (int operation = UNION; operation <= DIFFERENCE; operation++) {
+				checkOperation(operation, first, second);
+			}
+		}
+	}
+
+	@Test(timeout = 120000)
+	public void parallelSetOperationsMatchTreeSet() {
+		Random random = new Random(22);
+		int bound = 8 * PARALLEL_SIZE;
+		TreeSet<Integer> first = randomKeys(random, 3 * PARALLEL_SIZE, bound);
+		TreeSet<Integer> second = randomKeys(random, 2 * PARALLEL_SIZE, bound);
+		TreeSet<Integer> small = randomKeys(random, 100, bound);
+		for (int operation = UNION; operation <= DIFFERENCE; operation++) {
+			checkOperation(operation, first, second);
+			checkOperation(operation, second, first);
+			checkOperation(operation, first, small);
+			checkOperation(operation, small, first);
+		}
+	}
+
+	private static void checkOperation(int operation, TreeSet<Integer> firstKeys, TreeSet<Integer> secondKeys) {
+		TreeSet<Integer> expected = new TreeSet<>(firstKeys);
+		BinarySearchTree first = tree(BalanceMode.AVL, firstKeys);
+		BinarySearchTree second = tree(BalanceMode.AVL, secondKeys);
+		BinarySearchTree result;
+		if (operation == UNION) {
+			expected.addAll(secondKeys);
+			result = BinarySearchTree.union(first, second);
+		} else if (operation == INTERSECTION) {
+			expected.retainAll(secondKeys);
+			result = BinarySearchTree.intersection(first, second);
+		} else {
+			expected.removeAll(secondKeys);
+			result = BinarySearchTree.difference(first, second);
+		}
+
+		TreeChecks.assertKeys(expected, result);
+		TreeChecks.assertAvl(result.root);
+		assertTrue(first.isEmpty());
+		assertTrue(second.isEmpty());
+	}
+
+	private static TreeSet<Integer> randomKeys(Random random, int size, int bound) {
+		TreeSet<Integer> keys = new TreeSet<>();
+		while (keys.size() < Math.min(size, bound)) {
+			keys.add(random.nextInt(bound));
+		}
+		return keys;
+	}
+
+	private static BinarySearchTree tree(BalanceMode mode, Iterable<Integer> keys) {
+		BinarySearchTree tree = new BinarySearchTree(mode);
+		for (int searchKey : keys) {
+			tree.insertItem(searchKey);
+		}
+		return tree;
+	}
+}
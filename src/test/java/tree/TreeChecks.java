@@ -0,0 +1,108 @@
+package tree;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.PrimitiveIterator;
+
+/**
+ * Assertions shared by the tree tests: the keys a tree holds, and the
+ * search order, cached sizes and heights and AVL balance of linked nodes.
+ * @author Eric Canull
+ * @version 1.0
+ */
+final class TreeChecks {
+
+	private TreeChecks() {
+	}
+
+	/**
+	 * Checks that an in-order walk of a tree gives exactly the expected
+	 * keys, and that the tree reports their number.
+	 * @param expected the keys in ascending order
+	 * @param tree the tree to check
+	 */
+	static void assertKeys(Collection<Integer> expected, TreeEngine tree) {
+		assertEquals(expected.size(), tree.getSize());
+		assertEquals(expected.isEmpty(), tree.isEmpty());
+		PrimitiveIterator.OfInt keys = tree.traversal(TraversalOrder.INORDER);
+		Iterator<Integer> want = expected.iterator();
+		while (want.hasNext()) {
+			assertTrue("Missing keys from " + tree.getClass().getSimpleName(), keys.hasNext());
+			assertEquals(want.next().intValue(), keys.nextInt());
+		}
+		assertFalse("Extra keys in " + tree.getClass().getSimpleName(), keys.hasNext());
+	}
+
+	/**
+	 * Checks the search order and cached height and size of every node
+	 * under a root, and that every node is AVL balanced.
+	 * @param root the subtree root, may be null
+	 */
+	static void assertAvl(TreeNode root) {
+		check(root, Long.MIN_VALUE, Long.MAX_VALUE, true);
+	}
+
+	/**
+	 * Checks the search order and cached height and size of every node
+	 * under a root.
+	 * @param root the subtree root, may be null
+	 */
+	static void assertLinked(TreeNode root) {
+		check(root, Long.MIN_VALUE, Long.MAX_VALUE, false);
+	}
+
+	/**
+	 * Checks the cached height and size of every node of a linked tree,
+	 * and that every node is AVL balanced if the tree keeps it so. The key
+	 * order is left to an in-order walk of the keys.
+	 * @param root the subtree root, may be null
+	 * @param balanced <code>true</code> to check the AVL balance
+	 */
+	static void assertLinked(LinkedTreeBasis.Node<?> root, boolean balanced) {
+		check(root, balanced);
+	}
+
+	/**
+	 * @return The height of the subtree
+	 */
+	private static int check(LinkedTreeBasis.Node<?> tNode, boolean balanced) {
+		if (tNode == null) {
+			return 0;
+		}
+		int leftHeight = check(tNode.left, balanced);
+		int rightHeight = check(tNode.right, balanced);
+		if (balanced) {
+			assertTrue("A node is unbalanced", Math.abs(leftHeight - rightHeight) <= 1);
+		}
+
+		int height = Math.max(leftHeight, rightHeight) + 1;
+		assertEquals(height, tNode.height);
+		assertEquals(LinkedTreeBasis.size(tNode.left) + LinkedTreeBasis.size(tNode.right) + 1, tNode.size);
+		return height;
+	}
+
+	/**
+	 * @return The height of the subtree
+	 */
+	private static int check(TreeNode tNode, long low, long high, boolean balanced) {
+		if (tNode == null) {
+			return 0;
+		}
+		assertTrue("Key " + tNode.searchKey + " out of order", tNode.searchKey > low && tNode.searchKey < high);
+		int leftHeight = check(tNode.leftCircle, low, tNode.searchKey, balanced);
+		int rightHeight = check(tNode.rightCircle, tNode.searchKey, high, balanced);
+		if (balanced) {
+			assertTrue("Node " + tNode.searchKey + " is unbalanced", Math.abs(leftHeight - rightHeight) <= 1);
+		}
+
+		int height = Math.max(leftHeight, rightHeight) + 1;
+		assertEquals("Cached height of " + tNode.searchKey, height, tNode.height);
+		assertEquals("Cached size of " + tNode.searchKey,
+				TreeNode.size(tNode.leftCircle) + TreeNode.size(tNode.rightCircle) + 1, tNode.size);
+		return height;
+	}
+}
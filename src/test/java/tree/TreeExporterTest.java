@@ -0,0 +1,114 @@
+package tree;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Checks the text an export writes in every traversal order and through
+ * every kind of destination, and that a destination failing part way
+ * leaves the tree as it was.
+ * @author Eric Canull
+ * @version 1.0
+ */
+public class TreeExporterTest {
+
+	@Test
+	public void writesEveryOrder() throws IOException {
+		BinarySearchTree tree = randomTree(5000, 22);
+		TreeExporter exporter = new TreeExporter(64, ',');
+		for (TraversalOrder order : TraversalOrder.values()) {
+			String expected = expectedText(tree, order, ',');
+
+			ByteArrayOutputStream stream = new ByteArrayOutputStream();
+			assertEquals(tree.getSize(), exporter.export(tree, order, stream));
+			assertEquals(expected, new String(stream.toByteArray(), StandardCharsets.US_ASCII));
+
+			ByteArrayOutputStream channel = new ByteArrayOutputStream();
+			exporter.export(tree, order, Channels.newChannel(channel));
+			assertEquals(expected, new String(channel.toByteArray(), StandardCharsets.US_ASCII));
+
+			StringWriter writer = new StringWriter();
+			exporter.export(tree, order, writer);
+			assertEquals(expected, writer.toString());
+		}
+	}
+
+	@Test
+	public void writesExtremeKeys() throws IOException {
+		BinarySearchTree tree = new BinarySearchTree(BalanceMode.AVL);
+		for (int searchKey : new int[] { Integer.MIN_VALUE, -10, -9, 0, 9, 10, Integer.MAX_VALUE }) {
+			tree.insertItem(searchKey);
+		}
+		StringWriter writer = new StringWriter();
+		new TreeExporter().export(tree, TraversalOrder.INORDER, writer);
+		assertEquals("-2147483648 -10 -9 0 9 10 2147483647 ", writer.toString());
+	}
+
+	@Test
+	public void failingStreamLeavesTreeIntact() {
+		BinarySearchTree tree = randomTree(100000, 7);
+		String expected = expectedText(tree, TraversalOrder.INORDER, ' ');
+		OutputStream failing = new OutputStream() {
+
+			private int writes;
+
+			@Override
+			public void write(int b) throws IOException {
+				write(new byte[] { (byte) b }, 0, 1);
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) throws IOException {
+				if (++writes == 3) {
+					throw new IOException("Disk full");
+				}
+			}
+		};
+
+		try {
+			new TreeExporter(256, ' ').export(tree, TraversalOrder.MORRIS_INORDER, failing);
+			fail("The stream failure was not passed on");
+		} catch (IOException expectedFailure) {
+			// The export stops part way through the walk
+		}
+
+		assertEquals(expected, expectedText(tree, TraversalOrder.INORDER, ' '));
+		assertEquals(100000, tree.getSize());
+	}
+
+	private static BinarySearchTree randomTree(int size, long seed) {
+		Random random = new Random(seed);
+		BinarySearchTree tree = new BinarySearchTree(BalanceMode.AVL);
+		while (tree.getSize() < size) {
+			tree.insertItem(random.nextInt());
+		}
+		return tree;
+	}
+
+	/**
+	 * Builds the text of a traversal with a StringBuilder. The walk is
+	 * bounded by the tree size, so a tree left cyclic fails instead of
+	 * running forever.
+	 */
+	private static String expectedText(BinarySearchTree tree, TraversalOrder order, char separator) {
+		StringBuilder text = new StringBuilder();
+		PrimitiveIterator.OfInt keys = tree.traversal(order);
+		for (int i = 0; i < tree.getSize(); i++) {
+			text.append(keys.nextInt()).append(separator);
+		}
+		assertFalse("The walk ran past the tree size", keys.hasNext());
+		return text.toString();
+	}
+}
@@ -0,0 +1,152 @@
+package tree;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Saves trees and loads them back, checking that the loaded tree has the
+ * same keys, shape and cached heights and sizes, and that files which are
+ * not valid snapshots are refused with an IOException.
+ * @author Eric Canull
+ * @version 1.0
+ */
+public class TreeSnapshotTest {
+
+	private static final int MAGIC = 0x46584253;
+	private static final int VERSION = 1;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void roundTripKeepsShape() throws IOException {
+		Random random = new Random(11);
+		for (BalanceMode mode : BalanceMode.values()) {
+			for (int size : new int[] { 0, 1, 2, 3, 100, 20000 }) {
+				BinarySearchTree tree = new BinarySearchTree(mode);
+				TreeSet<Integer> expected = new TreeSet<>();
+				while (expected.size() < size) {
+					int searchKey = random.nextInt();
+					expected.add(searchKey);
+					tree.insertItem(searchKey);
+				}
+
+				Path file = folder.newFile().toPath();
+				tree.save(file);
+				BinarySearchTree loaded = BinarySearchTree.load(file);
+
+				assertEquals(mode, loaded.getBalanceMode());
+				assertEquals(tree.getHeight(), loaded.getHeight());
+				assertArrayEquals(preorder(tree), preorder(loaded));
+				TreeChecks.assertKeys(expected, loaded);
+				checkNodes(loaded);
+
+				// The loaded tree takes writes like any other
+				for (int i = 0; i < 200; i++) {
+					int searchKey = random.nextInt();
+					if (expected.add(searchKey)) {
+						loaded.insertItem(searchKey);
+					}
+				}
+				TreeChecks.assertKeys(expected, loaded);
+				checkNodes(loaded);
+			}
+		}
+	}
+
+	@Test
+	public void loadsUnbalancedChain() throws IOException {
+		Path file = snapshot(BalanceMode.NONE.ordinal(), 1, 2, 3, 4);
+		BinarySearchTree loaded = BinarySearchTree.load(file);
+		assertEquals(4, loaded.getHeight());
+		TreeChecks.assertKeys(Arrays.asList(1, 2, 3, 4), loaded);
+	}
+
+	@Test
+	public void rejectsUnbalancedAvlSnapshot() throws IOException {
+		assertCorrupt(snapshot(BalanceMode.AVL.ordinal(), 1, 2, 3));
+		// Balanced at the root, unbalanced below it
+		assertCorrupt(snapshot(BalanceMode.AVL.ordinal(), 10, 5, 4, 3, 20, 30, 40));
+	}
+
+	@Test
+	public void rejectsCorruptFiles() throws IOException {
+		assertCorrupt(write(new byte[8]));
+		assertCorrupt(write(header(MAGIC + 1, VERSION, 0, 0).array()));
+		assertCorrupt(write(header(MAGIC, VERSION + 1, 0, 0).array()));
+		assertCorrupt(snapshot(BalanceMode.values().length, 1));
+		assertCorrupt(write(Arrays.copyOf(bytes(0, 2, 1, 3), 24)));   // Truncated
+		assertCorrupt(snapshot(BalanceMode.NONE.ordinal(), 2, 1, 1));  // Duplicate key
+		assertCorrupt(snapshot(BalanceMode.NONE.ordinal(), 5, 2, 8, 3));   // Out of order
+	}
+
+	/**
+	 * Checks the cached heights and sizes, and the balance of an AVL tree.
+	 */
+	private static void checkNodes(BinarySearchTree tree) {
+		if (tree.getBalanceMode() == BalanceMode.AVL) {
+			TreeChecks.assertAvl(tree.root);
+		} else {
+			TreeChecks.assertLinked(tree.root);
+		}
+	}
+
+	private static int[] preorder(BinarySearchTree tree) {
+		int[] keys = new int[tree.getSize()];
+		PrimitiveIterator.OfInt walk = tree.traversal(TraversalOrder.PREORDER);
+		for (int i = 0; i < keys.length; i++) {
+			keys[i] = walk.nextInt();
+		}
+		return keys;
+	}
+
+	private static void assertCorrupt(Path file) {
+		try {
+			BinarySearchTree.load(file);
+			fail("Loaded an invalid snapshot");
+		} catch (IOException expected) {
+			// Refused
+		}
+	}
+
+	/**
+	 * Writes a snapshot by hand, with the given keys in preorder.
+	 */
+	private Path snapshot(int mode, int... preorder) throws IOException {
+		return write(bytes(mode, preorder));
+	}
+
+	private static byte[] bytes(int mode, int... preorder) {
+		ByteBuffer buffer = header(MAGIC, VERSION, mode, preorder.length);
+		for (int searchKey : preorder) {
+			buffer.putInt(searchKey);
+		}
+		return buffer.array();
+	}
+
+	private static ByteBuffer header(int magic, int version, int mode, int count) {
+		ByteBuffer buffer = ByteBuffer.allocate(16 + 4 * count).order(ByteOrder.LITTLE_ENDIAN);
+		return buffer.putInt(magic).putInt(version).putInt(mode).putInt(count);
+	}
+
+	private Path write(byte[] bytes) throws IOException {
+		Path file = folder.newFile().toPath();
+		Files.write(file, bytes);
+		return file;
+	}
+}
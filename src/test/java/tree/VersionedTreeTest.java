@@ -0,0 +1,173 @@
+package tree;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+/**
+ * Replays random histories of writes, undos, redos and version jumps on a
+ * VersionedTree and checks the working tree and every recorded version
+ * against TreeSet copies of the states the history went through.
+ * @author Eric Canull
+ * @version 1.0
+ */
+public class VersionedTreeTest {
+
+	@Test
+	public void undoAndRedo() {
+		VersionedTree versions = new VersionedTree(BalanceMode.AVL);
+		assertFalse(versions.canUndo());
+		assertFalse(versions.undo());
+		assertFalse(versions.redo());
+
+		assertTrue(versions.insertItem(5));
+		assertTrue(versions.insertItem(3));
+		assertTrue(versions.deleteItem(5));
+		assertEquals(3, versions.getCurrentVersion());
+
+		assertTrue(versions.undo());
+		TreeChecks.assertKeys(set(3, 5), versions.getTree());
+		assertTrue(versions.undo());
+		TreeChecks.assertKeys(set(5), versions.getTree());
+		assertTrue(versions.canRedo());
+		assertTrue(versions.redo());
+		TreeChecks.assertKeys(set(3, 5), versions.getTree());
+
+		// A write after an undo drops the versions that could be redone
+		assertTrue(versions.insertItem(7));
+		assertFalse(versions.canRedo());
+		assertEquals(4, versions.getVersionCount());
+		TreeChecks.assertKeys(set(3, 5, 7), versions.getTree());
+		TreeChecks.assertKeys(set(3, 5), versions.getVersion(2));
+	}
+
+	@Test
+	public void viewVersion() {
+		VersionedTree versions = new VersionedTree(BalanceMode.AVL);
+		for (int searchKey = 0; searchKey < 10; searchKey++) {
+			versions.insertItem(searchKey);
+		}
+		versions.viewVersion(4);
+		assertEquals(4, versions.getCurrentVersion());
+		TreeChecks.assertKeys(set(0, 1, 2, 3), versions.getTree());
+		assertEquals(11, versions.getVersionCount());
+
+		versions.viewVersion(0);
+		assertTrue(versions.getTree().isEmpty());
+		versions.viewVersion(10);
+		assertEquals(10, versions.getTree().getSize());
+
+		try {
+			versions.viewVersion(11);
+			fail("Version 11 was never recorded");
+		} catch (IndexOutOfBoundsException expected) {
+			assertEquals(10, versions.getCurrentVersion());
+		}
+	}
+
+	@Test
+	public void noOpWriteRecordsNoVersion() {
+		VersionedTree versions = new VersionedTree(BalanceMode.AVL);
+		assertFalse(versions.deleteItem(1));
+		assertFalse(versions.makeEmpty());
+		assertFalse(versions.insertAll(new int[0]));
+		assertEquals(1, versions.getVersionCount());
+
+		assertTrue(versions.insertAll(new int[] { 3, 1, 2 }));
+		assertFalse(versions.insertItem(2));
+		assertFalse(versions.deleteItem(4));
+		assertFalse(versions.insertAll(new int[] { 1, 3, 3 }));
+		assertEquals(2, versions.getVersionCount());
+
+		// A no-op after an undo keeps the redoable version
+		assertTrue(versions.undo());
+		assertFalse(versions.deleteItem(1));
+		assertTrue(versions.canRedo());
+	}
+
+	@Test
+	public void replaysRandomHistory() {
+		for (BalanceMode mode : BalanceMode.values()) {
+			Random random = new Random(13);
+			VersionedTree versions = new VersionedTree(mode);
+			List<TreeSet<Integer>> states = new ArrayList<>();
+			states.add(new TreeSet<>());
+			int current = 0;
+
+			for (int step = 0; step < 3000; step++) {
+				TreeSet<Integer> next = new TreeSet<>(states.get(current));
+				boolean recorded;
+				int action = random.nextInt(20);
+				if (action < 8) {
+					int searchKey = random.nextInt(300);
+					next.add(searchKey);
+					recorded = versions.insertItem(searchKey);
+				} else if (action < 13) {
+					int searchKey = random.nextInt(300);
+					next.remove(searchKey);
+					recorded = versions.deleteItem(searchKey);
+				} else if (action < 14) {
+					int[] batch = new int[random.nextInt(40)];
+					for (int i = 0; i < batch.length; i++) {
+						batch[i] = random.nextInt(300);
+						next.add(batch[i]);
+					}
+					recorded = versions.insertAll(batch);
+				} else if (action == 14 && random.nextInt(10) == 0) {
+					next.clear();
+					recorded = versions.makeEmpty();
+				} else if (action < 17) {
+					assertEquals(current > 0, versions.undo());
+					current = Math.max(current - 1, 0);
+					continue;
+				} else if (action < 19) {
+					assertEquals(current + 1 < states.size(), versions.redo());
+					current = Math.min(current + 1, states.size() - 1);
+					continue;
+				} else {
+					current = random.nextInt(states.size());
+					versions.viewVersion(current);
+					continue;
+				}
+
+				// A write records a version exactly when it changes the keys
+				assertEquals(!next.equals(states.get(current)), recorded);
+				if (recorded) {
+					states.subList(current + 1, states.size()).clear();
+					states.add(next);
+					current++;
+				}
+				assertEquals(current, versions.getCurrentVersion());
+				assertEquals(states.size(), versions.getVersionCount());
+				TreeChecks.assertKeys(states.get(current), versions.getTree());
+				if (mode == BalanceMode.AVL) {
+					TreeChecks.assertAvl(versions.getTree().root);
+				}
+
+				int old = random.nextInt(states.size());
+				TreeChecks.assertKeys(states.get(old), versions.getVersion(old));
+			}
+
+			// Later writes left every recorded version as it was
+			for (int version = 0; version < states.size(); version++) {
+				TreeChecks.assertKeys(states.get(version), versions.getVersion(version));
+			}
+		}
+	}
+
+	private static TreeSet<Integer> set(int... keys) {
+		TreeSet<Integer> set = new TreeSet<>();
+		for (int searchKey : keys) {
+			set.add(searchKey);
+		}
+		return set;
+	}
+}